@@ -1,9 +1,29 @@
+drop table if exists item_name_suffix;
 drop table if exists item CASCADE;
+drop sequence if exists item_seq;
+-- increment by = JPA allocation-size(pooled-lo) - JPA는 시퀀스 값 하나로 id 50개를 미리 할당
+-- JdbcTemplate/MyBatis/R2DBC insert는 default로 시퀀스 값을 그대로 id로 씀 - insert마다 id가 50씩 건너뜀 (1, 51, 101, ...)
+-- 따로 increment by 1 시퀀스를 쓰면 JPA가 할당한 구간과 id가 겹치므로 같은 시퀀스를 쓰고 빈 id는 그대로 둠
+create sequence item_seq start with 1 increment by 50;
 create table item
 (
-    id        bigint generated by default as identity,
+    id        bigint default next value for item_seq,
     item_name varchar(10),
     price     integer,
     quantity  integer,
+    version   bigint default 0 not null, -- 수정할 때마다 +1, update ... where id = ? and version = ?로 동시 수정 충돌 확인
     primary key (id)
 );
+-- 가격 범위, 가격순, 이름순 - (값, id) 순서 그대로 읽다가 limit에서 멈춤 (정렬 없음)
+create index item_price_id on item (price, id);
+create index item_name_id on item (item_name, id);
+
+-- item_name의 모든 접미사 - '%x%' 검색을 x로 시작하는 접미사 범위 조회로 바꿔서 인덱스(primary key)를 탐
+-- 저장소가 item을 저장, 수정하는 같은 트랜잭션에서 직접 씀 (ItemNameSuffixes), 삭제는 on delete cascade
+create table item_name_suffix
+(
+    suffix  varchar(10) not null,
+    item_id bigint      not null,
+    primary key (suffix, item_id),
+    foreign key (item_id) references item (id) on delete cascade
+);
@@ -0,0 +1,238 @@
+package hello.itemservice;
+
+import hello.itemservice.config.*;
+import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSummary;
+import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.repository.file.MappedFileItemRepository;
+import hello.itemservice.repository.memory.MemoryColumnarItemRepository;
+import hello.itemservice.repository.memory.MemoryItemRepository;
+import hello.itemservice.service.ItemService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ItemService 구현(설정)별 성능 비교
+ * - 설정 하나, 데이터 건수 하나마다 스프링 컨테이너를 새로 띄우고 임베디드 H2(jdbc:h2:mem)에 데이터를 채운 뒤 측정
+ * - 실행: ./gradlew jmh (gc 프로파일러로 할당량도 같이 측정, 결과는 build/results/jmh)
+ * - save는 측정하는 동안 데이터가 계속 늘어남
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ItemServiceBenchmark {
+
+    public enum Backend {
+        MEMORY(MemoryConfig.class, false),
+        MEMORY_COLUMNAR(MemoryColumnarConfig.class, false),
+        MAPPED_FILE(MappedFileConfig.class, false),
+        JDBC_TEMPLATE_V1(JdbcTemplateV1Config.class, true),
+        JDBC_TEMPLATE_V2(JdbcTemplateV2Config.class, true),
+        JDBC_TEMPLATE_V3(JdbcTemplateV3Config.class, true),
+        MYBATIS(MyBatisConfig.class, true),
+        JPA(JpaConfig.class, true),
+        SPRING_DATA_JPA(SpringDataJpaConfig.class, true),
+        QUERYDSL(QuerydslConfig.class, true),
+        V2(V2Config.class, true);
+
+        private final Class<?> config;
+        private final boolean database; // true면 초기 데이터를 JDBC 배치로 바로 넣음
+
+        Backend(Class<?> config, boolean database) {
+            this.config = config;
+            this.database = database;
+        }
+    }
+
+    public enum SearchShape {
+        NONE(null, null),
+        NAME("item12", null),
+        PRICE(null, 10000),
+        NAME_AND_PRICE("item12", 10000);
+
+        private final String itemName;
+        private final Integer maxPrice;
+
+        SearchShape(String itemName, Integer maxPrice) {
+            this.itemName = itemName;
+            this.maxPrice = maxPrice;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ItemServiceState {
+
+        @Param
+        Backend backend;
+
+        @Param({"1000", "100000", "1000000"})
+        int rows;
+
+        ConfigurableApplicationContext context;
+        ItemService itemService;
+        Path storeDirectory;
+        long[] ids; // 채운 데이터의 id - DB 저장소는 시퀀스가 50씩 건너뛰므로 1 ~ rows가 아님
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            storeDirectory = Files.createTempDirectory("item-store");
+            context = new SpringApplicationBuilder(BenchmarkApplication.class, backend.config)
+                    .web(WebApplicationType.NONE)
+                    .bannerMode(Banner.Mode.OFF)
+                    .logStartupInfo(false)
+                    .run(
+                            // 커맨드 라인 인자는 application.properties보다 우선
+                            "--spring.profiles.active=benchmark",
+                            "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID(),
+                            "--spring.datasource.username=sa",
+                            "--spring.jpa.hibernate.ddl-auto=none",
+                            "--spring.sql.init.mode=always",
+                            "--itemservice.mapped-file.directory=" + storeDirectory,
+                            "--logging.level.root=warn",
+                            "--logging.level.org.springframework.jdbc=warn",
+                            "--logging.level.org.hibernate.SQL=warn",
+                            "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=warn",
+                            "--logging.level.hello.itemservice=warn");
+            itemService = context.getBean(ItemService.class);
+            clearStore(); // 메모리 저장소는 static이라 이전 trial 데이터가 남아있을 수 있음
+            load();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            clearStore();
+            context.close();
+            FileSystemUtils.deleteRecursively(storeDirectory);
+        }
+
+        long randomId() {
+            return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        }
+
+        private void load() {
+            if (backend.database) {
+                JdbcTemplate template = new JdbcTemplate(context.getBean(DataSource.class));
+                List<Object[]> batch = new ArrayList<>();
+                for (int i = 0; i < rows; i++) {
+                    Item item = newItem(i);
+                    batch.add(new Object[]{item.getItemName(), item.getPrice(), item.getQuantity()});
+                    if (batch.size() == 10_000) {
+                        template.batchUpdate("insert into item(item_name, price, quantity) values (?,?,?)", batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    template.batchUpdate("insert into item(item_name, price, quantity) values (?,?,?)", batch);
+                }
+                // 저장소를 거치지 않으므로 item_name_suffix도 직접 - ItemNameSuffixes.of(~)와 같은 행 (이름은 최대 10자)
+                template.update("insert into item_name_suffix(suffix, item_id)"
+                        + " select substring(i.item_name, s.x), i.id from item i"
+                        + " join system_range(1, 10) s on s.x <= length(i.item_name)");
+                ids = template.queryForList("select id from item order by id", Long.class).stream()
+                        .mapToLong(Long::longValue)
+                        .toArray();
+                return;
+            }
+            ItemRepository itemRepository = context.getBean(ItemRepository.class);
+            ids = new long[rows];
+            for (int i = 0; i < rows; i++) {
+                ids[i] = itemRepository.save(newItem(i)).getId();
+            }
+        }
+
+        private void clearStore() {
+            ItemRepository itemRepository = context.getBean(ItemRepository.class);
+            if (itemRepository instanceof MemoryItemRepository) {
+                ((MemoryItemRepository) itemRepository).clearStore();
+            }
+            if (itemRepository instanceof MemoryColumnarItemRepository) {
+                ((MemoryColumnarItemRepository) itemRepository).clearStore();
+            }
+            if (itemRepository instanceof MappedFileItemRepository) {
+                ((MappedFileItemRepository) itemRepository).clearStore();
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SearchState {
+
+        @Param
+        SearchShape shape;
+
+        ItemSearchCond cond;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            cond = new ItemSearchCond(shape.itemName, shape.maxPrice);
+        }
+    }
+
+    @Benchmark
+    public Item save(ItemServiceState state) {
+        return state.itemService.save(newItem(ThreadLocalRandom.current().nextInt(10_000)));
+    }
+
+    @Benchmark
+    public void update(ItemServiceState state) {
+        int i = ThreadLocalRandom.current().nextInt(10_000);
+        state.itemService.update(state.randomId(), new ItemUpdateDto("upd" + i, price(i), i % 100));
+    }
+
+    @Benchmark
+    public Optional<Item> findById(ItemServiceState state) {
+        return state.itemService.findById(state.randomId());
+    }
+
+    @Benchmark
+    public List<Item> findAll(ItemServiceState state, SearchState search) {
+        return state.itemService.findItems(search.cond);
+    }
+
+    @Benchmark
+    public List<ItemSummary> findSummaries(ItemServiceState state, SearchState search) {
+        return state.itemService.findItemSummaries(search.cond);
+    }
+
+    private static Item newItem(int i) {
+        return new Item("item" + (i % 10_000), price(i), i % 100);
+    }
+
+    private static int price(int i) {
+        return (i % 1000) * 100 + 100; // 100 ~ 100000, maxPrice=10000이면 약 10%
+    }
+
+    /**
+     * 컴포넌트 스캔 없이 자동 설정만 - 비교할 설정 클래스는 SpringApplicationBuilder에서 같이 넘김
+     * hello.itemservice 패키지에 있어야 매퍼, 스프링 데이터 JPA 리포지토리, 엔티티를 찾음
+     * R2DBC 자동 설정은 ItemServiceApplication과 같이 제외 - ConnectionFactory가 있으면 DataSource 자동 설정이 빠짐
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
+    static class BenchmarkApplication {
+    }
+}
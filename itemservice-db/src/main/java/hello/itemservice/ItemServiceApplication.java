@@ -5,6 +5,8 @@ import hello.itemservice.repository.ItemRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Profile;
@@ -12,6 +14,8 @@ import org.springframework.context.annotation.Profile;
 
 @Slf4j
 // @Import(MemoryConfig.class)
+// @Import(MemoryColumnarConfig.class)
+// @Import(MappedFileConfig.class)
 // @Import(JdbcTemplateV1Config.class)
 // @Import(JdbcTemplateV2Config.class)
 // @Import(JdbcTemplateV3Config.class)
@@ -20,7 +24,11 @@ import org.springframework.context.annotation.Profile;
 // @Import(SpringDataJpaConfig.class)
 // @Import(QuerydslConfig.class)
 @Import(V2Config.class)
-@SpringBootApplication(scanBasePackages = "hello.itemservice.web")
+// R2DBC 자동 설정 제외 - 커넥션은 ReactiveItemConfig가 spring.datasource.url로, R2dbcTransactionManager가 있으면 JPA 트랜잭션 매니저가 등록 안 됨
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class},
+		scanBasePackages = {"hello.itemservice.web", "hello.itemservice.cache", "hello.itemservice.metrics",
+		"hello.itemservice.querylog", "hello.itemservice.reactive", "hello.itemservice.routing",
+		"hello.itemservice.stock"})
 public class ItemServiceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,283 @@
+package hello.itemservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemIdChunks;
+import hello.itemservice.repository.ItemPriceBucket;
+import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSort;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
+import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.service.ItemService;
+import lombok.Value;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ItemService 앞단 캐시 (데코레이터)
+ * - findById(~): id -> Item, findAllById(~)도 같은 캐시 - 없는 것만 모아서 한 번에
+ * - findItems(~): 정규화한 검색 조건 -> 결과 목록, findItemSummaries(~)도 같은 캐시
+ * - save, update 후 영향 받는 항목만 무효화, 저장소 종류와 상관없이 동작
+ * - updateItems(~)는 어떤 상품이 바뀌었는지 모르므로 전부 무효화
+ * - addQuantities(~)는 재고만 바뀜 - 반영된 상품만 id별로 무효화, 검색 결과는 그 상품이 들어있는 것만
+ * - Item은 변경 가능한 객체(@Data, JPA 엔티티) - 캐시에는 복사본을 넣고, 꺼낼 때도 복사본을 돌려줌
+ *   호출한 쪽에서 set(~)해도 캐시와 다른 요청에 보이지 않음
+ */
+public class CachingItemService implements ItemService {
+
+    private final ItemService target;
+    private final Cache<Long, Item> itemCache;
+    private final Cache<SearchKey, List<Item>> searchCache;
+
+    // 쓰기마다 증가 - 쓰기와 겹친 조회 결과가 캐시에 남지 않게 확인용
+    private final AtomicLong writeVersion = new AtomicLong();
+
+    public CachingItemService(ItemService target, ItemServiceCacheProperties properties) {
+        this.target = target;
+        this.itemCache = build(properties.getItem());
+        this.searchCache = build(properties.getSearch());
+    }
+
+    @Override
+    public Item save(Item item) {
+        Item savedItem = target.save(item);
+        writeVersion.incrementAndGet();
+        searchCache.asMap().entrySet().removeIf(entry -> entry.getKey().affects(entry.getValue(),
+                savedItem.getId(), savedItem.getItemName(), savedItem.getPrice()));
+        return savedItem;
+    }
+
+    @Override
+    public void update(Long itemId, ItemUpdateDto updateParam) {
+        target.update(itemId, updateParam);
+        writeVersion.incrementAndGet();
+        itemCache.invalidate(itemId);
+        // 기존 값으로 걸려 있던 결과(목록에 itemId 포함) + 새 값으로 걸리게 되는 결과
+        searchCache.asMap().entrySet().removeIf(entry -> contains(entry.getValue(), itemId)
+                || entry.getKey().affects(entry.getValue(), itemId, updateParam.getItemName(), updateParam.getPrice()));
+    }
+
+    @Override
+    public int updateItems(ItemSearchCond cond, ItemBulkUpdateDto updateParam) {
+        int updated = target.updateItems(cond, updateParam);
+        invalidateAll();
+        return updated;
+    }
+
+    @Override
+    public int updateItemsById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam) {
+        int updated = target.updateItemsById(itemIds, updateParam);
+        invalidateAll();
+        return updated;
+    }
+
+    @Override
+    public List<Long> addQuantities(Map<Long, Integer> deltas) {
+        List<Long> rejected = target.addQuantities(deltas);
+        writeVersion.incrementAndGet();
+        Set<Long> applied = new HashSet<>(deltas.keySet());
+        applied.removeAll(rejected); // 재고 부족, 없는 상품은 그대로
+        for (Long itemId : applied) {
+            itemCache.invalidate(itemId);
+        }
+        searchCache.asMap().entrySet().removeIf(entry -> entry.getValue().stream()
+                .anyMatch(item -> applied.contains(item.getId())));
+        return rejected;
+    }
+
+    @Override
+    public Optional<Item> findById(Long id) {
+        Item cached = itemCache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(copyOf(cached));
+        }
+        long version = writeVersion.get();
+        Optional<Item> item = target.findById(id);
+        item.ifPresent(value -> putIfUnchanged(itemCache, id, copyOf(value), version));
+        return item;
+    }
+
+    @Override
+    public List<Item> findAllById(Collection<Long> ids) {
+        List<Long> sorted = ItemIdChunks.sorted(ids);
+        Map<Long, Item> found = new HashMap<>();
+        itemCache.getAllPresent(sorted).forEach((id, item) -> found.put(id, copyOf(item)));
+        if (found.size() < sorted.size()) {
+            List<Long> missing = new ArrayList<>(sorted.size() - found.size());
+            for (Long id : sorted) {
+                if (!found.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            long version = writeVersion.get();
+            for (Item item : target.findAllById(missing)) {
+                putIfUnchanged(itemCache, item.getId(), copyOf(item), version);
+                found.put(item.getId(), item);
+            }
+        }
+        List<Item> items = new ArrayList<>(found.size());
+        for (Long id : sorted) {
+            Item item = found.get(id);
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public List<Item> findItems(ItemSearchCond cond) {
+        return copyOf(search(cond));
+    }
+
+    // 검색 캐시를 그대로 씀 - 무효화가 Item 목록 기준이라 따로 캐시하지 않고 캐시된 목록에서 옮김 (ItemSummary는 불변이라 복사 없이)
+    @Override
+    public List<ItemSummary> findItemSummaries(ItemSearchCond cond) {
+        return ItemSummary.listOf(search(cond));
+    }
+
+    // 집계는 조건마다 한 번의 쿼리라 캐시하지 않음 - 어떤 쓰기에도 값이 바뀜
+    @Override
+    public ItemStats findStats(ItemSearchCond cond) {
+        return target.findStats(cond);
+    }
+
+    @Override
+    public List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize) {
+        return target.findPriceHistogram(cond, bucketSize);
+    }
+
+    // 캐시에 들어있는 목록 그대로 - 밖으로 내보내지 않음
+    private List<Item> search(ItemSearchCond cond) {
+        SearchKey key = SearchKey.of(cond);
+        List<Item> cached = searchCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long version = writeVersion.get();
+        List<Item> items = List.copyOf(copyOf(target.findItems(cond)));
+        putIfUnchanged(searchCache, key, items, version);
+        return items;
+    }
+
+    public void clear() {
+        itemCache.invalidateAll();
+        searchCache.invalidateAll();
+    }
+
+    private void invalidateAll() {
+        writeVersion.incrementAndGet();
+        clear();
+    }
+
+    /**
+     * 조회 도중 쓰기가 있었으면 넣었던 값을 다시 뺌 - 넣은 다음 확인해야 무효화와 순서가 엇갈려도 안전
+     */
+    private <K, V> void putIfUnchanged(Cache<K, V> cache, K key, V value, long version) {
+        cache.put(key, value);
+        if (writeVersion.get() != version) {
+            cache.invalidate(key);
+        }
+    }
+
+    private static Item copyOf(Item item) {
+        Item copy = new Item(item.getItemName(), item.getPrice(), item.getQuantity());
+        copy.setId(item.getId());
+        copy.setVersion(item.getVersion());
+        return copy;
+    }
+
+    private static List<Item> copyOf(List<Item> items) {
+        List<Item> copies = new ArrayList<>(items.size());
+        for (Item item : items) {
+            copies.add(copyOf(item));
+        }
+        return copies;
+    }
+
+    private static boolean contains(List<Item> items, Long itemId) {
+        for (Item item : items) {
+            if (itemId.equals(item.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <K, V> Cache<K, V> build(ItemServiceCacheProperties.Spec spec) {
+        return Caffeine.newBuilder()
+                .maximumSize(spec.getMaximumSize())
+                .expireAfterWrite(spec.getExpireAfterWrite())
+                .build();
+    }
+
+    /**
+     * 검색 조건 캐시 키 - 빈 문자열 itemName은 조건 없음(null)과 같은 키
+     */
+    @Value
+    static class SearchKey {
+        String itemName;
+        Integer minPrice;
+        Integer maxPrice;
+        ItemSort sort;
+        Long lastId;
+        Integer limit;
+
+        static SearchKey of(ItemSearchCond cond) {
+            String itemName = ObjectUtils.isEmpty(cond.getItemName()) ? null : cond.getItemName();
+            return new SearchKey(itemName, cond.getMinPrice(), cond.getMaxPrice(), ItemSort.of(cond),
+                    sortedById(cond) ? cond.getLastId() : null, cond.getLimit());
+        }
+
+        // lastId는 id 순에서만 쓰이므로 가격순, 이름순 키에서는 뺌
+        private static boolean sortedById(ItemSearchCond cond) {
+            return ItemSort.of(cond) == ItemSort.ID;
+        }
+
+        /**
+         * 페이지에 이 값의 Item이 들어가야 하는지 - 조건에 맞고, lastId 뒤이고(id 순),
+         * 꽉 찬 페이지라면 정렬 순서상 마지막 Item 앞이어야 함
+         */
+        boolean affects(List<Item> page, Long id, String name, Integer price) {
+            if (!matches(name, price) || (lastId != null && id <= lastId)) {
+                return false;
+            }
+            if (limit == null || page.size() < limit) {
+                return true;
+            }
+            Item probe = new Item(name, price, null);
+            probe.setId(id);
+            return !page.isEmpty() && sort.order().compare(probe, page.get(page.size() - 1)) < 0;
+        }
+
+        /**
+         * 저장소의 검색 조건(이름 like %itemName%, 가격 범위, 정렬 기준 값 있음)과 같은 기준
+         * - 공백뿐인 itemName은 저장소마다 처리가 달라서 항상 걸리는 것으로 봄 (넓게 무효화)
+         */
+        boolean matches(String name, Integer price) {
+            if (StringUtils.hasText(itemName) && (name == null || !name.contains(itemName))) {
+                return false;
+            }
+            if (!sort.accepts(name, price)) {
+                return false;
+            }
+            if (minPrice == null && maxPrice == null) {
+                return true;
+            }
+            return price != null && (minPrice == null || price >= minPrice) && (maxPrice == null || price <= maxPrice);
+        }
+    }
+}
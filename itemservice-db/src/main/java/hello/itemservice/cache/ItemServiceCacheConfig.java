@@ -0,0 +1,35 @@
+package hello.itemservice.cache;
+
+import hello.itemservice.service.ItemService;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * 어떤 설정(@Import)을 쓰든 등록된 ItemService 빈을 CachingItemService로 감쌈
+ * - itemservice.cache.enabled=true일 때만 - 기본은 캐시 없이 원래 ItemService 그대로
+ *   다른 인스턴스, 직접 SQL로 바뀐 값은 만료(expire-after-write)까지 보이지 않으므로 켤 때 확인
+ */
+@Configuration
+@ConditionalOnProperty(name = "itemservice.cache.enabled", havingValue = "true")
+public class ItemServiceCacheConfig {
+
+    // BeanPostProcessor는 다른 빈보다 먼저 만들어지므로 static, 설정 값도 Binder로 직접 읽음
+    @Bean
+    public static BeanPostProcessor cachingItemServicePostProcessor(Environment environment) {
+        ItemServiceCacheProperties properties = Binder.get(environment)
+                .bindOrCreate("itemservice.cache", ItemServiceCacheProperties.class);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof ItemService && !(bean instanceof CachingItemService)) {
+                    return new CachingItemService((ItemService) bean, properties);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package hello.itemservice.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * ItemService 캐시 설정 - application.properties의 itemservice.cache.*
+ */
+@Data
+@ConfigurationProperties("itemservice.cache")
+public class ItemServiceCacheProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * findById(~) 캐시
+     */
+    private Spec item = new Spec(10_000, Duration.ofMinutes(10));
+
+    /**
+     * findItems(~) 검색 결과 캐시, 키는 정규화한 ItemSearchCond
+     */
+    private Spec search = new Spec(1_000, Duration.ofMinutes(1));
+
+    @Data
+    public static class Spec {
+        private long maximumSize;
+        private Duration expireAfterWrite;
+
+        public Spec() {
+        }
+
+        public Spec(long maximumSize, Duration expireAfterWrite) {
+            this.maximumSize = maximumSize;
+            this.expireAfterWrite = expireAfterWrite;
+        }
+    }
+}
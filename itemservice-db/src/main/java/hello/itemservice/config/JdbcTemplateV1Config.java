@@ -1,20 +1,24 @@
 package hello.itemservice.config;
 
 import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemRepositoryProperties;
 import hello.itemservice.repository.jdbctemplate.JdbcTemplateItemRepositoryV1;
 import hello.itemservice.service.ItemService;
 import hello.itemservice.service.ItemServiceV1;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import javax.sql.DataSource;
 
 @Configuration
+@EnableConfigurationProperties(ItemRepositoryProperties.class)
 @RequiredArgsConstructor
 public class JdbcTemplateV1Config {
 
     private final DataSource dataSource;
+    private final ItemRepositoryProperties properties;
 
     @Bean
     public ItemService itemService() {
@@ -23,7 +27,7 @@ public class JdbcTemplateV1Config {
 
     @Bean
     public ItemRepository itemRepository() {
-        return new JdbcTemplateItemRepositoryV1(dataSource);
+        return new JdbcTemplateItemRepositoryV1(dataSource, properties);
     }
 
 }
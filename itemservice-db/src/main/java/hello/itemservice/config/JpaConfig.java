@@ -1,23 +1,28 @@
 package hello.itemservice.config;
 
 import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemRepositoryProperties;
 import hello.itemservice.repository.jpa.JpaItemRepository;
 import hello.itemservice.service.ItemService;
 import hello.itemservice.service.ItemServiceV1;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import javax.persistence.EntityManager;
 
 @Configuration
+@EnableConfigurationProperties(ItemRepositoryProperties.class)
 // @RequiredArgsConstructor
 public class JpaConfig {
 
     private final EntityManager em;
+    private final ItemRepositoryProperties properties;
 
-    public JpaConfig(EntityManager em) {
+    public JpaConfig(EntityManager em, ItemRepositoryProperties properties) {
         this.em = em;
+        this.properties = properties;
     }
 
     @Bean
@@ -27,7 +32,7 @@ public class JpaConfig {
 
     @Bean
     public ItemRepository itemRepository() {
-        return new JpaItemRepository(em);
+        return new JpaItemRepository(em, properties);
     }
 
 }
@@ -0,0 +1,32 @@
+package hello.itemservice.config;
+
+import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.file.MappedFileItemRepository;
+import hello.itemservice.service.ItemService;
+import hello.itemservice.service.ItemServiceV1;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class MappedFileConfig {
+
+    @Value("${itemservice.mapped-file.directory:item-store}")
+    private String directory;
+
+    @Value("${itemservice.mapped-file.sync-on-write:false}")
+    private boolean syncOnWrite;
+
+    @Bean
+    public ItemService itemService() {
+        return new ItemServiceV1(itemRepository());
+    }
+
+    @Bean
+    public ItemRepository itemRepository() { // close()는 스프링 컨테이너 종료 시 자동 호출
+        return new MappedFileItemRepository(Path.of(directory), syncOnWrite);
+    }
+
+}
@@ -1,24 +1,37 @@
 package hello.itemservice.config;
 
 import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemRepositoryProperties;
 import hello.itemservice.repository.mybatis.ItemMapper;
 import hello.itemservice.repository.mybatis.MyBatisItemRepository;
 import hello.itemservice.service.ItemService;
 import hello.itemservice.service.ItemServiceV1;
 import lombok.RequiredArgsConstructor;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.boot.autoconfigure.ConfigurationCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
+@EnableConfigurationProperties(ItemRepositoryProperties.class)
 @RequiredArgsConstructor
 public class MyBatisConfig {
 
     private final ItemMapper itemMapper;
+    private final SqlSessionTemplate sqlSessionTemplate; // mybatis 모듈이 등록, 검색 쿼리를 statement id로 실행할 때 사용
+    private final ItemRepositoryProperties properties;
     // DataSource는?? - mybatis 모듈이 DataSource, PlatformTransactionManager 등 읽어들여서 Mapper와 연결시켜줌
     // 'ItemMapper' 타입의 bean을 찾을 수 없습니다. - 빨간줄 뜨는데 동작에 문제 없음, 컴파일 시 스캔 대상 아니어서 빨간줄
     // ItemServiceApplication에서 아래와 같이 바꿔주면 빨간줄 사라짐
     // scanBasePackages = {"hello.itemservice.web", "hello.itemservice.repository.mybatis"}
 
+    // SqlSessionFactory 만들 때 적용 - ItemMapper에 의존하는 이 설정 객체 없이 만들 수 있게 static
+    @Bean
+    public static ConfigurationCustomizer fetchSizeCustomizer(ItemRepositoryProperties properties) {
+        return configuration -> configuration.setDefaultFetchSize(properties.getFetchSize());
+    }
+
     @Bean
     public ItemService itemService() {
         return new ItemServiceV1(itemRepository());
@@ -26,7 +39,7 @@ public class MyBatisConfig {
 
     @Bean
     public ItemRepository itemRepository() {
-        return new MyBatisItemRepository(itemMapper);
+        return new MyBatisItemRepository(itemMapper, sqlSessionTemplate, properties);
     }
 
 }
@@ -1,20 +1,24 @@
 package hello.itemservice.config;
 
 import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemRepositoryProperties;
 import hello.itemservice.repository.jpa.JpaItemRepositoryV3;
 import hello.itemservice.service.ItemService;
 import hello.itemservice.service.ItemServiceV1;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import javax.persistence.EntityManager;
 
 @Configuration
+@EnableConfigurationProperties(ItemRepositoryProperties.class)
 @RequiredArgsConstructor
 public class QuerydslConfig {
 
     private final EntityManager em;
+    private final ItemRepositoryProperties properties;
 
     @Bean
     public ItemService itemService() {
@@ -23,7 +27,7 @@ public class QuerydslConfig {
 
     @Bean
     public ItemRepository itemRepository() {
-        return new JpaItemRepositoryV3(em);
+        return new JpaItemRepositoryV3(em, properties);
     }
 
 }
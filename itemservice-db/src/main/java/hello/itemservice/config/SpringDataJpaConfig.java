@@ -1,20 +1,35 @@
 package hello.itemservice.config;
 
 import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemRepositoryProperties;
 import hello.itemservice.repository.jpa.JpaItemRepositoryV2;
 import hello.itemservice.repository.jpa.SpringDataJpaItemRepository;
 import hello.itemservice.service.ItemService;
 import hello.itemservice.service.ItemServiceV1;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import javax.persistence.EntityManager;
+
 @Configuration
+@EnableConfigurationProperties(ItemRepositoryProperties.class)
 @RequiredArgsConstructor
 public class SpringDataJpaConfig {
 
-    // EntityManager 필요 없음, 알아서 처리해줌
     private final SpringDataJpaItemRepository springDataJpaItemRepository;
+    private final EntityManager em; // saveAll(~), streamAll(~)에서 flush, clear, detach 용도
+    private final ItemRepositoryProperties properties;
+
+    // Spring Data 쿼리 메서드는 힌트를 코드로 못 넣어서 streamAll(~)의 fetch size는 Hibernate 전역 설정으로
+    // EntityManagerFactory 만들 때 적용 - 이 설정 객체 없이 만들 수 있게 static
+    @Bean
+    public static HibernatePropertiesCustomizer fetchSizeCustomizer(ItemRepositoryProperties properties) {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.STATEMENT_FETCH_SIZE, properties.getFetchSize());
+    }
 
     @Bean
     public ItemService itemService() {
@@ -23,7 +38,7 @@ public class SpringDataJpaConfig {
 
     @Bean
     public ItemRepository itemRepository() {
-        return new JpaItemRepositoryV2(springDataJpaItemRepository);
+        return new JpaItemRepositoryV2(springDataJpaItemRepository, em, properties);
     }
 
 }
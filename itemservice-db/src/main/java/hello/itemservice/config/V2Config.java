@@ -1,23 +1,27 @@
 package hello.itemservice.config;
 
 import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemRepositoryProperties;
 import hello.itemservice.repository.jpa.JpaItemRepositoryV3;
 import hello.itemservice.repository.v2.ItemQueryRepositoryV2;
 import hello.itemservice.repository.v2.ItemRepositoryV2;
 import hello.itemservice.service.ItemService;
 import hello.itemservice.service.ItemServiceV2;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import javax.persistence.EntityManager;
 
 @Configuration
+@EnableConfigurationProperties(ItemRepositoryProperties.class)
 @RequiredArgsConstructor
 public class V2Config {
 
     private final EntityManager em;
     private final ItemRepositoryV2 itemRepositoryV2; // SpringDataJPA 제공
+    private final ItemRepositoryProperties properties;
 
     @Bean
     public ItemService itemService() {
@@ -26,11 +30,11 @@ public class V2Config {
 
     @Bean
     public ItemQueryRepositoryV2 itemQueryRepositoryV2() {
-        return new ItemQueryRepositoryV2(em);
+        return new ItemQueryRepositoryV2(em, properties);
     }
 
     @Bean
     public ItemRepository itemRepository() { // 테스트에서 testDatainit()에서 사용하고 있어서 남겨둠
-        return new JpaItemRepositoryV3(em);
+        return new JpaItemRepositoryV3(em, properties);
     }
 }
@@ -1,15 +1,24 @@
 package hello.itemservice.domain;
 
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "item") // 2차 캐시 - em.find(~)가 DB 대신 캐시에서, 크기/TTL은 application.conf
 // @Table(name = "item") // 객체 이름과 같으면 @Table 생략 가능
 public class Item {
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // IDENTITY는 insert batch 불가 -> item_seq 시퀀스에서 pooled-lo로 미리 할당 (ItemIdGenerator)
+    @Id @GeneratedValue(generator = "item_seq")
+    @GenericGenerator(name = "item_seq", strategy = "hello.itemservice.domain.ItemIdGenerator",
+            parameters = @Parameter(name = "sequence_name", value = "item_seq"))
     private Long id;
 
     // @Column(name = "item_name", length = 10) // 카멜 케이스를 스네이크 케이스로 자동 변환, length는 DDL에 필요한 정보이므로 생략 가능
@@ -18,6 +27,12 @@ public class Item {
     private Integer price;
     private Integer quantity;
 
+    // 수정할 때마다 +1 - update ... where id = ? and version = ? 로 충돌 확인 (ItemVersions)
+    // JPA 저장소는 읽은 다음 변경 감지로 (@Version), JdbcTemplate, MyBatis는 읽지 않고 그 update 한 번으로
+    // null이면 새 엔티티로 봄(Spring Data isNew) - 저장하면 0
+    @Version
+    private Long version;
+
     public Item() { // JPA는 public 또는 protected 기본 생성자 필수(JPA 명세에 명시된 내용, 프록시 기술 관련), 없으면 에러
     }
 
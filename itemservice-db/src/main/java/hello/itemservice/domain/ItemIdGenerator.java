@@ -0,0 +1,34 @@
+package hello.itemservice.domain;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * item_seq 시퀀스 + pooled-lo 옵티마이저
+ * - IDENTITY는 persist 시점에 바로 insert 해야 해서 JDBC batch가 꺼짐, 시퀀스로 id를 미리 받아두면 batch 가능
+ * - 시퀀스 값 하나로 [값, 값 + allocationSize) 구간을 메모리에서 발급
+ * - allocationSize는 spring.jpa.properties.itemservice.id.allocation-size, DB 시퀀스의 increment by와 같아야 함
+ */
+public class ItemIdGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE = "itemservice.id.allocation-size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        int allocationSize = ConfigurationHelper.getInt(ALLOCATION_SIZE, settings, DEFAULT_ALLOCATION_SIZE);
+
+        params.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize));
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -0,0 +1,39 @@
+package hello.itemservice.domain;
+
+import lombok.Data;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * item_name_suffix 테이블 - JPQL, Querydsl 서브쿼리에서 검색, JPA 저장소는 Item과 같이 persist/remove (ItemNameSuffixEntities)
+ * - 키 두 개뿐이라 수정은 없음 (@Immutable) - 이름이 바뀌면 행을 지우고 새로 넣음
+ */
+@Getter
+@Entity
+@Immutable
+@IdClass(ItemNameSuffix.Key.class)
+public class ItemNameSuffix {
+
+    @Id
+    private String suffix;
+
+    @Id
+    private Long itemId;
+
+    protected ItemNameSuffix() {
+    }
+
+    public ItemNameSuffix(String suffix, Long itemId) {
+        this.suffix = suffix;
+        this.itemId = itemId;
+    }
+
+    @Data
+    public static class Key implements Serializable {
+        private String suffix;
+        private Long itemId;
+    }
+}
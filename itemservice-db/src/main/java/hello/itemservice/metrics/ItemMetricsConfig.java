@@ -0,0 +1,30 @@
+package hello.itemservice.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * 어떤 설정(@Import)을 쓰든 ItemRepository, ItemService 빈의 메서드별 시간, 결과 건수, 예외를 메트릭으로
+ * - /actuator/metrics/itemservice.calls?tag=backend:JdbcTemplateItemRepositoryV3, /actuator/prometheus
+ * - 캐시(CachingItemService)는 이 프록시 바깥에서 감싸므로 service 메트릭은 캐시 miss만 기록됨
+ * - 백분위, histogram 버킷은 기본으로 꺼짐 - itemservice.metrics.percentile-histogram=true로 켬 (ItemMetricsProperties)
+ * - itemservice.metrics.enabled=false면 프록시를 만들지 않음
+ */
+@Configuration
+@ConditionalOnProperty(name = "itemservice.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class ItemMetricsConfig {
+
+    // BeanPostProcessor는 다른 빈보다 먼저 만들어지므로 static, 설정 값도 Binder로 직접 읽음
+    @Bean
+    public static ItemMetricsPostProcessor itemMetricsPostProcessor(Environment environment,
+                                                                    ObjectProvider<MeterRegistry> registryProvider) {
+        ItemMetricsProperties properties = Binder.get(environment)
+                .bindOrCreate("itemservice.metrics", ItemMetricsProperties.class);
+        return new ItemMetricsPostProcessor(registryProvider, properties);
+    }
+}
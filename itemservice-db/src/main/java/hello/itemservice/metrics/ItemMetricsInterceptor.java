@@ -0,0 +1,159 @@
+package hello.itemservice.metrics;
+
+import hello.itemservice.service.ItemService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.util.ClassUtils;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 메서드 호출마다 시간, 결과 건수, 예외를 기록
+ * - itemservice.calls (Timer): layer, backend, method, outcome(success, error)
+ * - itemservice.results (DistributionSummary): 목록 크기, Optional은 0/1, streamAll(~)은 action에 넘긴 건수, updateAll(~)은 수정된 건수
+ * - itemservice.errors (Counter): + exception
+ * - 미터는 (구현 클래스, 메서드)별로 한 번만 등록해 두고 재사용 - 호출마다 레지스트리 조회 없음
+ *   errors는 예외 클래스가 처음 나올 때 등록해서 (구현 클래스, 메서드) 안에 같이 둠
+ */
+public class ItemMetricsInterceptor implements MethodInterceptor {
+
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private final ItemMetricsProperties properties;
+    private final ConcurrentMap<MeterKey, Meters> meters = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    public ItemMetricsInterceptor(ObjectProvider<MeterRegistry> registryProvider, ItemMetricsProperties properties) {
+        this.registryProvider = registryProvider;
+        this.properties = properties;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Class<?> backend = ClassUtils.getUserClass(invocation.getThis().getClass()); // CGLIB 프록시면 원래 클래스
+        Meters meter = meters.computeIfAbsent(new MeterKey(backend, invocation.getMethod().getName()), this::register);
+
+        long[] streamed = countStreamed(invocation.getArguments());
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            meter.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            long size = streamed != null ? streamed[0] : sizeOf(result);
+            if (size >= 0) {
+                meter.results.record(size);
+            }
+            return result;
+        } catch (Throwable e) {
+            meter.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            meter.errors.computeIfAbsent(e.getClass(), exception -> errorCounter(meter.tags, exception)).increment();
+            throw e;
+        }
+    }
+
+    /**
+     * streamAll(~)처럼 Consumer를 받으면 건수를 세는 Consumer로 바꿔 끼움 - 목록이 없어서 결과 크기를 알 수 없으므로
+     */
+    @SuppressWarnings("unchecked")
+    private static long[] countStreamed(Object[] arguments) {
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] instanceof Consumer) {
+                Consumer<Object> action = (Consumer<Object>) arguments[i];
+                long[] count = new long[1];
+                arguments[i] = (Consumer<Object>) item -> {
+                    count[0]++;
+                    action.accept(item);
+                };
+                return count;
+            }
+        }
+        return null;
+    }
+
+    private static long sizeOf(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Integer) {
+            return (Integer) result;
+        }
+        return -1; // save, update 등은 기록 안 함
+    }
+
+    private Meters register(MeterKey key) {
+        MeterRegistry registry = registry();
+        Tags tags = Tags.of(
+                "layer", ItemService.class.isAssignableFrom(key.backend) ? "service" : "repository",
+                "backend", key.backend.getSimpleName(),
+                "method", key.method);
+        return new Meters(tags, timer(tags, "success", registry), timer(tags, "error", registry),
+                DistributionSummary.builder("itemservice.results")
+                        .description("ItemRepository, ItemService 결과 건수")
+                        .tags(tags)
+                        .publishPercentiles(properties.getPercentiles())
+                        .register(registry));
+    }
+
+    private Timer timer(Tags tags, String outcome, MeterRegistry registry) {
+        return Timer.builder("itemservice.calls")
+                .description("ItemRepository, ItemService 메서드 실행 시간")
+                .tags(tags)
+                .tag("outcome", outcome)
+                .publishPercentiles(properties.getPercentiles())
+                .publishPercentileHistogram(properties.isPercentileHistogram())
+                .register(registry);
+    }
+
+    private Counter errorCounter(Tags tags, Class<?> exception) {
+        return Counter.builder("itemservice.errors")
+                .description("ItemRepository, ItemService 메서드 예외")
+                .tags(tags)
+                .tag("exception", exception.getSimpleName())
+                .register(registry());
+    }
+
+    // 빈 후처리기가 먼저 만들어지므로 레지스트리는 첫 호출 때 가져옴
+    private MeterRegistry registry() {
+        MeterRegistry current = registry;
+        if (current == null) {
+            current = registryProvider.getIfAvailable(() -> Metrics.globalRegistry);
+            registry = current;
+        }
+        return current;
+    }
+
+    @Value
+    private static class MeterKey {
+        Class<?> backend;
+        String method;
+    }
+
+    private static class Meters {
+        private final Tags tags;
+        private final Timer success;
+        private final Timer error;
+        private final DistributionSummary results;
+        private final ConcurrentMap<Class<?>, Counter> errors = new ConcurrentHashMap<>();
+
+        Meters(Tags tags, Timer success, Timer error, DistributionSummary results) {
+            this.tags = tags;
+            this.success = success;
+            this.error = error;
+            this.results = results;
+        }
+    }
+}
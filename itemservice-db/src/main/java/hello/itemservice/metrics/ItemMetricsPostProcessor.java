@@ -0,0 +1,51 @@
+package hello.itemservice.metrics;
+
+import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.v2.ItemQueryRepositoryV2;
+import hello.itemservice.service.ItemService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * ItemRepository, ItemService, ItemQueryRepositoryV2 빈에 ItemMetricsInterceptor를 붙임
+ * - 이미 프록시(@Transactional, @Repository 예외 변환)면 그 프록시에 advisor만 맨 앞에 추가, 아니면 새 프록시
+ * - 클래스 기반 프록시(CGLIB) - instanceof MemoryItemRepository 등 구현 클래스 타입으로 쓰는 곳이 그대로 동작
+ * - 타입에 선언된 메서드만 측정 (clearStore(), close() 등 제외)
+ */
+public class ItemMetricsPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+    private static final List<Class<?>> MEASURED_TYPES =
+            List.of(ItemRepository.class, ItemService.class, ItemQueryRepositoryV2.class);
+
+    public ItemMetricsPostProcessor(ObjectProvider<MeterRegistry> registryProvider, ItemMetricsProperties properties) {
+        this.advisor = new DefaultPointcutAdvisor(new MeasuredMethods(),
+                new ItemMetricsInterceptor(registryProvider, properties));
+        this.beforeExistingAdvisors = true; // 트랜잭션 커밋, 예외 변환까지 포함한 시간
+        setProxyTargetClass(true);
+    }
+
+    private static class MeasuredMethods extends StaticMethodMatcherPointcut {
+
+        MeasuredMethods() {
+            setClassFilter(targetClass -> MEASURED_TYPES.stream().anyMatch(type -> type.isAssignableFrom(targetClass)));
+        }
+
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            for (Class<?> type : MEASURED_TYPES) {
+                if (type.isAssignableFrom(targetClass)
+                        && ClassUtils.hasMethod(type, method.getName(), method.getParameterTypes())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
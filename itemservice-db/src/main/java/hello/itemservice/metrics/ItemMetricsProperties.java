@@ -0,0 +1,26 @@
+package hello.itemservice.metrics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * ItemRepository, ItemService 메서드 메트릭 설정 - application.properties의 itemservice.metrics.*
+ */
+@Data
+@ConfigurationProperties("itemservice.metrics")
+public class ItemMetricsProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 애플리케이션에서 계산해서 내보내는 백분위 (인스턴스별 값, 인스턴스끼리 합칠 수 없음) - 기본은 없음, 필요하면 0.5,0.95,0.99 처럼
+     * - 메서드 x backend x outcome마다 백분위 시계열이 늘어나므로 켤 때만
+     */
+    private double[] percentiles = {};
+
+    /**
+     * Prometheus histogram 버킷(_bucket)도 내보낼지 - 여러 인스턴스를 합친 histogram_quantile(~) 알림용, 기본은 꺼짐
+     * - 켜면 타이머마다 버킷 시계열이 수십 개씩 늘어남, 지연 알림을 걸 때 이걸 켬
+     */
+    private boolean percentileHistogram = false;
+}
@@ -0,0 +1,77 @@
+package hello.itemservice.querylog;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 쿼리 로그 - 쿼리 스레드는 샘플링 판단 후 링 버퍼에 넣기만 하고, 로그 출력은 flush 스레드에서 모아서
+ * - 느린 쿼리(slowThreshold 이상), 실패한 쿼리는 항상, 나머지는 sampleRate 비율로
+ * - 샘플링에서 빠진 쿼리는 객체도 만들지 않음
+ */
+@Slf4j
+public class QueryLog implements Closeable {
+
+    private final QueryLogBuffer buffer;
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final ScheduledExecutorService flusher;
+
+    public QueryLog(QueryLogProperties properties) {
+        this.buffer = new QueryLogBuffer(properties.getBufferSize());
+        this.sampleRate = properties.getSampleRate();
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "query-log-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void record(String sql, long elapsedNanos, Throwable error) {
+        boolean slow = elapsedNanos >= slowThresholdNanos;
+        if (!slow && error == null && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        buffer.add(sql, TimeUnit.NANOSECONDS.toMicros(elapsedNanos), slow,
+                error != null ? error.getClass().getName() : null);
+    }
+
+    public List<QueryLogEntry> recent(int limit) {
+        return buffer.recent(limit);
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(); // 남은 것까지
+    }
+
+    // flush 스레드, close()에서만 호출 - 둘이 겹치지 않게 synchronized
+    private synchronized void flush() {
+        long dropped = buffer.drainTo(entry -> {
+            if (entry.getError() != null) {
+                log.warn("query failed {}us error={} sql={}", entry.getElapsedMicros(), entry.getError(), entry.getSql());
+            } else if (entry.isSlow()) {
+                log.warn("slow query {}us sql={}", entry.getElapsedMicros(), entry.getSql());
+            } else {
+                log.info("query {}us sql={}", entry.getElapsedMicros(), entry.getSql());
+            }
+        });
+        if (dropped > 0) {
+            log.warn("query log buffer overflow, dropped={}", dropped);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package hello.itemservice.querylog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 락 없는 링 버퍼 - 쿼리 스레드 여러 개가 쓰고, flush 스레드 하나가 읽음
+ * - 쓰기: 순번을 getAndIncrement()로 받고 (순번 & mask) 슬롯에 entry를 set - 꽉 차면 가장 오래된 것을 덮어씀
+ * - 읽기: 슬롯의 entry 순번이 기대한 순번과 같을 때만 사용 (작으면 아직 안 씀, 크면 이미 덮어씀)
+ */
+class QueryLogBuffer {
+
+    private final AtomicReferenceArray<QueryLogEntry> slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    private long flushed; // flush 스레드에서만 사용
+
+    QueryLogBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    void add(String sql, long elapsedMicros, boolean slow, String error) {
+        long sequence = next.getAndIncrement();
+        slots.set(index(sequence), new QueryLogEntry(sequence, System.currentTimeMillis(), sql, elapsedMicros, slow, error));
+    }
+
+    /**
+     * 최근 것부터 최대 limit 건
+     */
+    List<QueryLogEntry> recent(int limit) {
+        long end = next.get();
+        long start = Math.max(0, end - slots.length());
+        List<QueryLogEntry> entries = new ArrayList<>(Math.min(limit, slots.length()));
+        for (long sequence = end - 1; sequence >= start && entries.size() < limit; sequence--) {
+            QueryLogEntry entry = slots.get(index(sequence));
+            if (entry != null && entry.getSequence() == sequence) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 지난번 이후 쌓인 entry를 순서대로 sink에 넘기고, 덮어써서 잃어버린 건수를 돌려줌 - flush 스레드 하나에서만 호출
+     */
+    long drainTo(Consumer<QueryLogEntry> sink) {
+        long end = next.get();
+        long dropped = 0;
+        if (end - flushed > slots.length()) {
+            dropped = end - slots.length() - flushed;
+            flushed = end - slots.length();
+        }
+        for (; flushed < end; flushed++) {
+            QueryLogEntry entry = slots.get(index(flushed));
+            if (entry == null || entry.getSequence() < flushed) {
+                break; // 순번만 받고 아직 안 씀 - 다음 flush에서
+            }
+            if (entry.getSequence() > flushed) {
+                dropped++; // 읽기 전에 덮어씀
+                continue;
+            }
+            sink.accept(entry);
+        }
+        return dropped;
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence & mask);
+    }
+}
@@ -0,0 +1,45 @@
+package hello.itemservice.querylog;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * 어떤 설정(@Import)을 쓰든 DataSource 빈을 QueryLoggingDataSource로 감쌈 - 저장소마다 SQL 로그를 찍지 않고 여기서 한 번에
+ * - 메모리, 파일 저장소는 DataSource를 쓰지 않으므로 기록할 쿼리 없음
+ * - itemservice.query-log.enabled=false면 감싸지 않음
+ */
+@Configuration
+@EnableConfigurationProperties(QueryLogProperties.class)
+@ConditionalOnProperty(name = "itemservice.query-log.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryLogConfig {
+
+    @Bean
+    public QueryLog queryLog(QueryLogProperties properties) {
+        return new QueryLog(properties);
+    }
+
+    @Bean
+    public QueryLogEndpoint queryLogEndpoint(QueryLog queryLog) {
+        return new QueryLogEndpoint(queryLog);
+    }
+
+    // BeanPostProcessor는 다른 빈보다 먼저 만들어지므로 static, QueryLog는 DataSource를 감쌀 때 꺼냄
+    @Bean
+    public static BeanPostProcessor queryLoggingDataSourcePostProcessor(ObjectProvider<QueryLog> queryLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof QueryLoggingDataSource)) {
+                    return new QueryLoggingDataSource((DataSource) bean, queryLog.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
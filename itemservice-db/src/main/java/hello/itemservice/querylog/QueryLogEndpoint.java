@@ -0,0 +1,27 @@
+package hello.itemservice.querylog;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * /actuator/queries?limit=50 - 링 버퍼에 남아 있는 최근 쿼리 (샘플링된 것, 느린 것, 실패한 것)
+ */
+@Endpoint(id = "queries")
+public class QueryLogEndpoint {
+
+    private static final int DEFAULT_LIMIT = 100;
+
+    private final QueryLog queryLog;
+
+    public QueryLogEndpoint(QueryLog queryLog) {
+        this.queryLog = queryLog;
+    }
+
+    @ReadOperation
+    public List<QueryLogEntry> queries(@Nullable Integer limit) {
+        return queryLog.recent(limit != null && limit > 0 ? limit : DEFAULT_LIMIT);
+    }
+}
@@ -0,0 +1,17 @@
+package hello.itemservice.querylog;
+
+import lombok.Value;
+
+/**
+ * 기록된 쿼리 하나 - 링 버퍼 슬롯에 통째로 교체되므로 불변
+ */
+@Value
+public class QueryLogEntry {
+
+    long sequence; // 버퍼 안 위치 확인용, 1씩 증가
+    long timestamp; // epoch millis
+    String sql;
+    long elapsedMicros;
+    boolean slow;
+    String error; // 실패했으면 예외 클래스 이름
+}
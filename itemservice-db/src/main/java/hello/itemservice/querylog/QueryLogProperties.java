@@ -0,0 +1,36 @@
+package hello.itemservice.querylog;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * SQL 로그 설정 - application.properties의 itemservice.query-log.*
+ */
+@Data
+@ConfigurationProperties("itemservice.query-log")
+public class QueryLogProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 일반 쿼리를 남길 비율 (0 ~ 1), 느린 쿼리와 실패한 쿼리는 항상 남김
+     */
+    private double sampleRate = 0.01;
+
+    /**
+     * 이 시간 이상 걸리면 느린 쿼리 - 샘플링과 상관없이 남기고 WARN으로 출력
+     */
+    private Duration slowThreshold = Duration.ofMillis(100);
+
+    /**
+     * 최근 쿼리를 보관하는 링 버퍼 크기 (2의 거듭제곱으로 올림), 출력이 밀리면 오래된 것부터 버림
+     */
+    private int bufferSize = 1024;
+
+    /**
+     * 버퍼를 로그로 내보내는 주기 - 별도 스레드에서
+     */
+    private Duration flushInterval = Duration.ofSeconds(1);
+}
@@ -0,0 +1,69 @@
+package hello.itemservice.reactive;
+
+import hello.itemservice.repository.r2dbc.R2dbcItemRepository;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * 블로킹 저장소(@Import로 고른 것)와 별개로 R2DBC 저장소 - /reactive/items 컨트롤러(ReactiveItemController)는 컴포넌트 스캔
+ * - 같은 H2 DB를 spring.datasource.url 그대로 R2DBC로 접속 (jdbc:h2: 뒤 부분 - tcp://, mem: 모두)
+ * - 부트의 R2DBC 자동 설정은 끔(ItemServiceApplication) - R2dbcTransactionManager가 등록되면 JPA 트랜잭션 매니저가 빠짐
+ * - itemservice.reactive.enabled=true일 때만 등록 - 기본은 꺼짐
+ * - ItemService를 거치지 않고 item 테이블을 직접 읽고 씀 - 아래는 /reactive/items에 적용되지 않음
+ *   고른 저장소(@Import, 메모리/파일 저장소면 다른 데이터), ItemService 캐시(CachingItemService, 수정해도 무효화 안 됨),
+ *   메트릭(ItemMetricsInterceptor), 재고 카운터(ItemStockService)
+ *   그래서 DB를 쓰는 설정(JdbcTemplate, MyBatis, JPA)에서 캐시 없이 쓸 때만 켬
+ */
+@Configuration
+@EnableConfigurationProperties(ReactiveItemProperties.class)
+@ConditionalOnProperty(name = "itemservice.reactive.enabled", havingValue = "true")
+public class ReactiveItemConfig {
+
+    private static final String JDBC_H2_PREFIX = "jdbc:h2:";
+
+    // 풀은 빈으로 등록하지 않음 - ConnectionFactory 빈이 있으면 부트가 DataSource 자동 설정을 건너뜀
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient itemDatabaseClient(DataSourceProperties dataSourceProperties, ReactiveItemProperties properties) {
+        String url = dataSourceProperties.determineUrl();
+        if (url == null || !url.startsWith(JDBC_H2_PREFIX)) {
+            throw new IllegalStateException("R2DBC 저장소는 H2만 지원, spring.datasource.url=" + url);
+        }
+        H2ConnectionConfiguration.Builder h2 = H2ConnectionConfiguration.builder()
+                .url(url.substring(JDBC_H2_PREFIX.length()))
+                .username(dataSourceProperties.determineUsername());
+        String password = dataSourceProperties.determinePassword();
+        if (StringUtils.hasLength(password)) {
+            h2.password(password);
+        }
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(new H2ConnectionFactory(h2.build()))
+                .name("item-r2dbc")
+                .maxSize(properties.getMaxPoolSize())
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @PreDestroy
+    public void closeConnectionPool() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+
+    @Bean
+    public R2dbcItemRepository r2dbcItemRepository(DatabaseClient itemDatabaseClient) {
+        return new R2dbcItemRepository(itemDatabaseClient);
+    }
+}
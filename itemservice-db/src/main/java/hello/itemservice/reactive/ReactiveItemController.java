@@ -0,0 +1,68 @@
+package hello.itemservice.reactive;
+
+import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.repository.r2dbc.R2dbcItemRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * /items와 같은 기능의 JSON API - R2dbcItemRepository의 Mono/Flux를 그대로 반환
+ * - 서블릿 스레드는 요청을 넘기고 바로 반환, 응답은 R2DBC 결과가 나올 때 씀 (servlet async)
+ * - Accept: application/x-ndjson이면 한 줄에 한 건씩 흘려보냄 - 쓰는 속도만큼만 DB에서 읽음(backpressure), limit 없이 전체 가능
+ * - application/json은 목록을 모아서 한 번에 쓰므로 /items처럼 페이지 크기 제한
+ * - ItemService(캐시, 메트릭)를 거치지 않음 - ReactiveItemConfig 참고
+ */
+@RestController
+@ConditionalOnProperty(name = "itemservice.reactive.enabled", havingValue = "true")
+@RequestMapping("/reactive/items")
+public class ReactiveItemController {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final R2dbcItemRepository itemRepository;
+
+    public ReactiveItemController(R2dbcItemRepository itemRepository) {
+        this.itemRepository = itemRepository;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<Item> items(@ModelAttribute ItemSearchCond itemSearch) {
+        Integer limit = itemSearch.getLimit();
+        itemSearch.setLimit(limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE));
+        return itemRepository.findAll(itemSearch);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Item> streamItems(@ModelAttribute ItemSearchCond itemSearch) {
+        return itemRepository.findAll(itemSearch);
+    }
+
+    @GetMapping("/{itemId}")
+    public Mono<Item> item(@PathVariable long itemId) {
+        return itemRepository.findById(itemId)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Item> addItem(@RequestBody Item item) {
+        return itemRepository.save(item);
+    }
+
+    @PostMapping("/{itemId}/edit")
+    public Mono<Item> edit(@PathVariable Long itemId, @RequestBody ItemUpdateDto updateParam) {
+        return itemRepository.update(itemId, updateParam)
+                .onErrorMap(OptimisticLockingFailureException.class,
+                        e -> new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage()))
+                .then(item(itemId));
+    }
+}
@@ -0,0 +1,19 @@
+package hello.itemservice.reactive;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * R2DBC 저장소, /reactive/items 설정 - application.properties의 itemservice.reactive.*
+ */
+@Data
+@ConfigurationProperties("itemservice.reactive")
+public class ReactiveItemProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * R2DBC 커넥션 풀 크기 - 동시에 실행되는 쿼리 수, 요청 수와는 무관
+     */
+    private int maxPoolSize = 10;
+}
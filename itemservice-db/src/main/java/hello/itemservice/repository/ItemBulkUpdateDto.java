@@ -0,0 +1,46 @@
+package hello.itemservice.repository;
+
+import lombok.Data;
+
+/**
+ * 여러 상품 한 번에 수정 (ItemRepository.updateAll, updateAllById) - 0이면 그대로
+ * - 가격: price + price * pricePercent / 100 (정수 나눗셈, 0 쪽으로 버림), 가격 없는 상품은 그대로 null
+ *   price * pricePercent는 long으로 - 결과가 int 범위를 넘을 때만 ArithmeticException (DB 저장소는 숫자 범위 오류)
+ * - 재고: quantity + quantityDelta, 음수가 되면 0 (재고 없음(null)은 그대로)
+ */
+@Data
+public class ItemBulkUpdateDto {
+    private int pricePercent; // 10이면 10% 인상, -20이면 20% 인하
+    private int quantityDelta;
+
+    public ItemBulkUpdateDto() {
+    }
+
+    public ItemBulkUpdateDto(int pricePercent, int quantityDelta) {
+        this.pricePercent = pricePercent;
+        this.quantityDelta = quantityDelta;
+    }
+
+    // 메모리, 파일 저장소용 - DB 저장소의 set 절과 같은 계산
+    public Integer applyToPrice(Integer price) {
+        return price == null ? null : applyToPrice(price.intValue());
+    }
+
+    public Integer applyToQuantity(Integer quantity) {
+        return quantity == null ? null : applyToQuantity(quantity.intValue());
+    }
+
+    /**
+     * @throws ArithmeticException 결과가 int 범위를 넘음
+     */
+    public int applyToPrice(int price) {
+        return Math.toIntExact(price + (long) price * pricePercent / 100);
+    }
+
+    /**
+     * @throws ArithmeticException 결과가 int 범위를 넘음
+     */
+    public int applyToQuantity(int quantity) {
+        return Math.max(0, Math.addExact(quantity, quantityDelta));
+    }
+}
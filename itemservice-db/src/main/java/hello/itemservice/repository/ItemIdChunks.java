@@ -0,0 +1,66 @@
+package hello.itemservice.repository;
+
+import hello.itemservice.domain.Item;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * 여러 건 조회(ItemRepository.findAllById) - 저장소 공통
+ * - id 목록은 정렬, 중복 제거 후 chunkSize 건씩 where id in (~) 한 번
+ * - 묶음마다 2의 거듭제곱 건수로 채워서 보냄 (모자란 자리는 마지막 id 반복)
+ *   in (?, ?, ...) 모양이 log2(chunkSize)가지뿐이라 statement 캐시, DB의 실행 계획 캐시, Hibernate 쿼리 계획 캐시가 커지지 않음
+ * - 결과는 id 순서, 없는 id는 빠짐
+ */
+public final class ItemIdChunks {
+
+    private ItemIdChunks() {
+    }
+
+    /**
+     * 정렬, 중복 제거 - null id는 빠짐 (메모리 저장소는 이 순서로 바로 꺼냄)
+     */
+    public static List<Long> sorted(Collection<Long> ids) {
+        TreeSet<Long> sorted = new TreeSet<>();
+        for (Long id : ids) {
+            if (id != null) {
+                sorted.add(id);
+            }
+        }
+        return new ArrayList<>(sorted);
+    }
+
+    /**
+     * 묶음마다 find(채운 id 목록) 한 번 - 묶음 결과의 순서는 상관없음 (모아서 id 순으로 정렬)
+     */
+    public static List<Item> findAll(Collection<Long> ids, int chunkSize, Function<List<Long>, List<Item>> find) {
+        List<Long> sorted = sorted(ids);
+        List<Item> found = new ArrayList<>(sorted.size());
+        for (int from = 0; from < sorted.size(); from += chunkSize) {
+            found.addAll(find.apply(padded(sorted.subList(from, Math.min(from + chunkSize, sorted.size())), chunkSize)));
+        }
+        found.sort(Comparator.comparing(Item::getId)); // 묶음이 id 순이라 거의 정렬된 상태 - 비용 적음
+        return found;
+    }
+
+    /**
+     * 2의 거듭제곱 건수로 (chunkSize보다 크게는 안 함) - 1, 2, 4, 8, ..., chunkSize
+     */
+    static List<Long> padded(List<Long> ids, int chunkSize) {
+        int size = Math.min(Math.max(1, Integer.highestOneBit(ids.size() - 1) << 1), chunkSize);
+        if (size <= ids.size()) {
+            return ids;
+        }
+        List<Long> padded = new ArrayList<>(size);
+        padded.addAll(ids);
+        Long last = ids.get(ids.size() - 1);
+        while (padded.size() < size) {
+            padded.add(last);
+        }
+        return padded;
+    }
+}
@@ -0,0 +1,90 @@
+package hello.itemservice.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.ToIntFunction;
+
+/**
+ * 저장된 id 범위 [minId, maxId] - select min(id), max(id) from item, 비어 있으면 둘 다 null
+ * bulk update를 chunkSize 행마다 update 한 문장으로, 항상 id 오름차순
+ * - id는 연속이 아님 (시퀀스가 50씩 건너뜀) - 구간 끝은 id 폭이 아니라 chunkSize 번째 id를 조회해서 (CHUNK_END_SQL)
+ * - 행 락을 모든 요청이 같은 순서로 잡으므로 교착 없음, 트랜잭션 밖이면 구간마다 커밋되어 락을 오래 잡지 않음
+ */
+public class ItemIdRange {
+
+    /**
+     * afterId 다음 offset + 1 번째 id (없으면 행 없음) - 인덱스(primary key)만 읽음
+     */
+    public static final String CHUNK_END_SQL = "select id from item where id > ? order by id limit 1 offset ?";
+
+    private Long minId;
+    private Long maxId;
+
+    public ItemIdRange() { // MyBatis
+    }
+
+    public ItemIdRange(Long minId, Long maxId) { // JPQL select new
+        this.minId = minId;
+        this.maxId = maxId;
+    }
+
+    public Long getMinId() {
+        return minId;
+    }
+
+    public void setMinId(Long minId) {
+        this.minId = minId;
+    }
+
+    public Long getMaxId() {
+        return maxId;
+    }
+
+    public void setMaxId(Long maxId) {
+        this.maxId = maxId;
+    }
+
+    /**
+     * (afterId, toId] 구간마다 update - 구간마다 chunkSize 행 (마지막은 남은 행), 바뀐 행 수 합계
+     * 조회 뒤에 저장된 maxId 다음 행은 대상 아님
+     */
+    public int forEachChunk(int chunkSize, ChunkEnd chunkEnd, ChunkUpdate update) {
+        if (minId == null) {
+            return 0;
+        }
+        int updated = 0;
+        long afterId = minId - 1;
+        while (afterId < maxId) {
+            Long end = chunkEnd.find(afterId, chunkSize - 1);
+            long toId = end != null ? Math.min(end, maxId) : maxId;
+            updated += update.update(afterId, toId);
+            afterId = toId;
+        }
+        return updated;
+    }
+
+    /**
+     * id 목록은 정렬, 중복 제거 후 chunkSize 건씩 - where id in (~)
+     */
+    public static int forEachChunk(Collection<Long> ids, int chunkSize, ToIntFunction<List<Long>> update) {
+        List<Long> sorted = new ArrayList<>(new TreeSet<>(ids));
+        int updated = 0;
+        for (int from = 0; from < sorted.size(); from += chunkSize) {
+            updated += update.applyAsInt(sorted.subList(from, Math.min(from + chunkSize, sorted.size())));
+        }
+        return updated;
+    }
+
+    public interface ChunkEnd {
+        /**
+         * id > afterId 중 offset 번째(0부터) id, 없으면 null
+         */
+        Long find(long afterId, int offset);
+    }
+
+    public interface ChunkUpdate {
+        int update(long afterId, long toId);
+    }
+}
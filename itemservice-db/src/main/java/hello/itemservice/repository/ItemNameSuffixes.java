@@ -0,0 +1,53 @@
+package hello.itemservice.repository;
+
+import hello.itemservice.domain.Item;
+import hello.itemservice.domain.ItemNameSuffix;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * item_name 부분 일치 검색용 접미사
+ * - name에 term이 들어있다 = name의 접미사 중 하나가 term으로 시작한다
+ * - 접미사를 정렬해 두면(인덱스) '%term%' 전체 스캔 대신 [term, upperBound(term)) 범위 조회로 찾을 수 있음
+ */
+public final class ItemNameSuffixes {
+
+    // item_name_suffix 행은 item을 저장, 수정하는 저장소가 같은 트랜잭션에서 직접 씀 (메모리 저장소는 NameSuffixIndex)
+    public static final String INSERT_SQL = "insert into item_name_suffix(suffix, item_id) values (?, ?)";
+    public static final String DELETE_SQL = "delete from item_name_suffix where item_id = ?";
+
+    private ItemNameSuffixes() {
+    }
+
+    public static List<String> of(String itemName) {
+        if (itemName == null || itemName.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> suffixes = new ArrayList<>(itemName.length());
+        for (int i = 0; i < itemName.length(); i++) {
+            suffixes.add(itemName.substring(i));
+        }
+        return suffixes;
+    }
+
+    // item_name_suffix에 넣을 행 - id가 채워진 뒤에 (외래 키 때문에 item이 먼저 들어가 있어야 함)
+    public static List<ItemNameSuffix> rowsOf(Collection<Item> items) {
+        List<ItemNameSuffix> rows = new ArrayList<>();
+        for (Item item : items) {
+            for (String suffix : of(item.getItemName())) {
+                rows.add(new ItemNameSuffix(suffix, item.getId()));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * term으로 시작하는 문자열은 모두 이 값보다 작음 - 범위 조회의 상한(미포함)
+     */
+    public static String upperBound(String term) {
+        return term + Character.MAX_VALUE;
+    }
+}
@@ -0,0 +1,63 @@
+package hello.itemservice.repository;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 가격 구간별 상품 수 (ItemRepository.findPriceHistogram) - [fromPrice, fromPrice + bucketSize)
+ * - 구간은 floor(price / bucketSize) - 음수 가격도 아래 구간으로 (-1은 [-bucketSize, 0)), DB 저장소의 group by floor(price / ?)와 같은 계산
+ * - 가격 없는 상품은 빠짐, 상품이 없는 구간은 목록에 없음
+ */
+@Data
+public class ItemPriceBucket {
+    private int fromPrice;
+    private long itemCount;
+
+    public ItemPriceBucket() {
+    }
+
+    // JPQL select new, Querydsl Projections.constructor - min(price), count
+    public ItemPriceBucket(Integer fromPrice, Long itemCount) {
+        this.fromPrice = fromPrice;
+        this.itemCount = itemCount;
+    }
+
+    public static int fromPriceOf(int price, int bucketSize) {
+        return Math.floorDiv(price, bucketSize) * bucketSize; // price / bucketSize는 0 쪽으로 버려서 -1이 [0, bucketSize)로 감
+    }
+
+    /**
+     * @throws IllegalArgumentException bucketSize가 1보다 작음
+     */
+    public static void checkBucketSize(int bucketSize) {
+        if (bucketSize < 1) {
+            throw new IllegalArgumentException("bucketSize는 1 이상: " + bucketSize);
+        }
+    }
+
+    /**
+     * DB 저장소용 - group by floor(price / bucketSize) 결과 (구간의 최소 가격, 건수)를 구간 시작 가격 순으로
+     * select 목록에 group by 식 대신 min(price)를 두는 이유: 같은 파라미터 식이라도 select와 group by의 ?는 DB가 다른 식으로 봄
+     */
+    public static List<ItemPriceBucket> ofGroups(List<ItemPriceBucket> groups, int bucketSize) {
+        List<ItemPriceBucket> buckets = new ArrayList<>(groups.size());
+        for (ItemPriceBucket group : groups) {
+            buckets.add(new ItemPriceBucket(fromPriceOf(group.getFromPrice(), bucketSize), group.getItemCount()));
+        }
+        buckets.sort(Comparator.comparingInt(ItemPriceBucket::getFromPrice));
+        return buckets;
+    }
+
+    /**
+     * 메모리, 파일 저장소용 - 구간 시작 가격 -> 건수 (TreeMap이면 이미 정렬됨)
+     */
+    public static List<ItemPriceBucket> ofCounts(Map<Integer, Long> counts) {
+        List<ItemPriceBucket> buckets = new ArrayList<>(counts.size());
+        counts.forEach((fromPrice, itemCount) -> buckets.add(new ItemPriceBucket(fromPrice, itemCount)));
+        return buckets;
+    }
+}
@@ -0,0 +1,57 @@
+package hello.itemservice.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * 재고 증감(ItemRepository.addQuantities) - 저장소 공통
+ * - DB 저장소: update item set quantity = coalesce(quantity, 0) + ? ... where id = ? and coalesce(quantity, 0) + ? >= 0
+ *   바뀐 행이 없으면 재고 부족(판매 초과) 또는 없는 상품
+ * - 항상 id 순서로 - 여러 flush, bulk update가 겹쳐도 행 락을 같은 순서로 잡음
+ */
+public final class ItemQuantities {
+
+    private ItemQuantities() {
+    }
+
+    public static List<Map.Entry<Long, Integer>> ordered(Map<Long, Integer> deltas) {
+        return new ArrayList<>(new TreeMap<>(deltas).entrySet());
+    }
+
+    /**
+     * 메모리, 파일 저장소용 - 재고 없음(null)은 0으로 보고 더한 값, 음수가 되면 null (반영 안 함)
+     */
+    public static Integer add(Integer quantity, int delta) {
+        long result = (quantity != null ? quantity : 0L) + delta;
+        return result >= 0 && result <= Integer.MAX_VALUE ? (int) result : null;
+    }
+
+    /**
+     * 한 건씩 addQuantity(id, delta) - 바뀐 행 수가 0이면 반영 못 한 id
+     */
+    public static List<Long> apply(Map<Long, Integer> deltas, ToIntBiFunction<Long, Integer> addQuantity) {
+        List<Long> rejected = new ArrayList<>();
+        for (Map.Entry<Long, Integer> delta : ordered(deltas)) {
+            if (addQuantity.applyAsInt(delta.getKey(), delta.getValue()) == 0) {
+                rejected.add(delta.getKey());
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * JDBC batch 결과(문장마다 바뀐 행 수)에서 반영 못 한 id
+     */
+    public static List<Long> rejected(List<Map.Entry<Long, Integer>> deltas, int[] updatedRows) {
+        List<Long> rejected = new ArrayList<>();
+        for (int i = 0; i < updatedRows.length; i++) {
+            if (updatedRows[i] == 0) {
+                rejected.add(deltas.get(i).getKey());
+            }
+        }
+        return rejected;
+    }
+}
@@ -2,17 +2,84 @@ package hello.itemservice.repository;
 
 import hello.itemservice.domain.Item;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface ItemRepository {
 
     Item save(Item item);
 
+    /**
+     * 여러 건 저장 - 저장소별 배치 크기 단위로 나눠서 보내고, 생성된 id는 각 Item에 채워서 돌려줌
+     */
+    List<Item> saveAll(Collection<Item> items);
+
+    /**
+     * 수정, 버전은 +1 - updateParam.version이 있으면 현재 버전과 같을 때만 (ItemVersions)
+     * JdbcTemplate, MyBatis는 읽지 않고 update ... where id = ? and version = ? 한 번, JPA는 읽은 다음 변경 감지(@Version)
+     * @throws org.springframework.dao.OptimisticLockingFailureException 버전이 다름 (그 사이 다른 수정)
+     */
     void update(Long itemId, ItemUpdateDto updateParam);
 
+    /**
+     * cond의 검색 조건(이름, 가격 범위)에 맞는 상품 전체를 한 번에 수정, 버전은 +1 - 정렬, 페이징은 무시
+     * 읽지 않고 updateChunkSize 행마다 update 한 문장씩, id 순서로 (ItemIdRange)
+     * 결과가 int 범위를 넘는 상품이 있으면 예외 - 메모리, 파일 저장소는 먼저 전부 계산해 보고 한 건도 바꾸지 않음,
+     * DB 저장소는 그 문장만 실패하고 앞 구간은 남음 (트랜잭션 밖이면 이미 커밋) - 한꺼번에 되돌리려면 호출하는 쪽 트랜잭션으로
+     * @return 수정된 건수
+     */
+    int updateAll(ItemSearchCond cond, ItemBulkUpdateDto updateParam);
+
+    /**
+     * itemIds만 updateAll(~)과 같은 방식으로 - 없는 id는 건너뜀
+     */
+    int updateAllById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam);
+
+    /**
+     * 재고 증감 한 번에 - quantity = quantity + delta (재고 없음(null)은 0으로), 버전 +1
+     * 결과가 음수가 되는 상품은 건너뜀 (판매 초과 방지), id 순서로 (ItemQuantities)
+     * @return 반영하지 못한 id (재고 부족, 없는 상품)
+     */
+    List<Long> addQuantities(Map<Long, Integer> deltas);
+
     Optional<Item> findById(Long id);
 
+    /**
+     * 여러 건 한 번에 - id 순서, 없는 id와 중복은 빠짐
+     * DB 저장소는 findChunkSize 건씩 where id in (~) 한 번 (ItemIdChunks)
+     */
+    List<Item> findAllById(Collection<Long> ids);
+
+    /**
+     * 검색 결과는 cond.sort 순서(기본 id 오름차순), cond.limit이 있으면 최대 limit 건
+     * id 순이면 cond.lastId가 있을 때 그 다음 id부터, 가격순, 이름순은 정렬 기준 값이 있는 Item만 상위 limit 건
+     */
     List<Item> findAll(ItemSearchCond cond);
 
+    /**
+     * findAll(~)과 같은 조건, 같은 순서로 목록에 필요한 컬럼만 - JPA 저장소는 엔티티를 만들지 않고 ItemSummary로 바로 조회
+     */
+    List<ItemSummary> findSummaries(ItemSearchCond cond);
+
+    /**
+     * findAll(~)과 같은 조건, 같은 순서지만 목록을 만들지 않고 한 건씩 action에 넘김 - 내보내기, 배치용
+     * DB 저장소는 forward-only 커서로 fetch size만큼씩 읽음
+     */
+    void streamAll(ItemSearchCond cond, Consumer<Item> action);
+
+    /**
+     * cond의 검색 조건(이름, 가격 범위)에 맞는 상품 집계 - 정렬, 페이징은 무시
+     * DB 저장소는 count, sum, min, max 한 문장, 메모리 저장소는 목록을 만들지 않고 값만 훑음
+     */
+    ItemStats findStats(ItemSearchCond cond);
+
+    /**
+     * findStats(~)와 같은 조건으로 가격 구간(bucketSize)별 상품 수, 구간 시작 가격 순 - DB 저장소는 group by 한 문장
+     * @throws IllegalArgumentException bucketSize가 1보다 작음
+     */
+    List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize);
+
 }
@@ -0,0 +1,55 @@
+package hello.itemservice.repository;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.Assert;
+
+/**
+ * 저장소 공통 설정 - application.properties의 itemservice.repository.*
+ * - 크기는 모두 1 이상, 0 이하면 시작할 때 바인딩 실패 (0이면 나눠 보내는 반복이 끝나지 않음)
+ */
+@Data
+@ConfigurationProperties("itemservice.repository")
+public class ItemRepositoryProperties {
+
+    /**
+     * saveAll(~)에서 한 번에 DB로 보내는 건수
+     */
+    private int batchSize = 1000;
+
+    /**
+     * streamAll(~)에서 DB 커서로 한 번에 가져오는 행 수 (JDBC fetch size)
+     */
+    private int fetchSize = 500;
+
+    /**
+     * updateAll(~), updateAllById(~)에서 update 한 문장이 맡는 행 수
+     */
+    private int updateChunkSize = 1000;
+
+    /**
+     * findAllById(~)에서 where id in (~) 한 번에 넣는 최대 건수 (ItemIdChunks)
+     */
+    private int findChunkSize = 512;
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = positive(batchSize, "batchSize");
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = positive(fetchSize, "fetchSize");
+    }
+
+    public void setUpdateChunkSize(int updateChunkSize) {
+        this.updateChunkSize = positive(updateChunkSize, "updateChunkSize");
+    }
+
+    public void setFindChunkSize(int findChunkSize) {
+        this.findChunkSize = positive(findChunkSize, "findChunkSize");
+    }
+
+    private static int positive(int size, String name) {
+        Assert.isTrue(size > 0, () -> "itemservice.repository." + name + "는 1 이상이어야 함: " + size);
+        return size;
+    }
+}
@@ -6,8 +6,17 @@ import lombok.Data;
 public class ItemSearchCond {
 
     private String itemName;
+    private Integer minPrice;
     private Integer maxPrice;
 
+    // 정렬 - null이면 id 순 (ItemSort.ID)
+    private ItemSort sort;
+
+    // keyset 페이징 - id 순으로 lastId 다음부터 limit 건, 둘 다 null이면 전체
+    // 가격순, 이름순은 lastId 없이 상위 limit 건
+    private Long lastId;
+    private Integer limit;
+
     public ItemSearchCond() {
     }
 
@@ -15,4 +24,20 @@ public class ItemSearchCond {
         this.itemName = itemName;
         this.maxPrice = maxPrice;
     }
+
+    public ItemSearchCond(String itemName, Integer maxPrice, Long lastId, Integer limit) {
+        this.itemName = itemName;
+        this.maxPrice = maxPrice;
+        this.lastId = lastId;
+        this.limit = limit;
+    }
+
+    public ItemSearchCond(String itemName, Integer minPrice, Integer maxPrice, ItemSort sort, Long lastId, Integer limit) {
+        this.itemName = itemName;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.sort = sort;
+        this.lastId = lastId;
+        this.limit = limit;
+    }
 }
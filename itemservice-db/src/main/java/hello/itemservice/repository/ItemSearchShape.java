@@ -0,0 +1,138 @@
+package hello.itemservice.repository;
+
+import org.springframework.util.StringUtils;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.BiFunction;
+
+/**
+ * ItemSearchCond가 만들 수 있는 쿼리 모양 4가지 - 이름 조건, 가격 범위 조건 유무
+ * - 모양 × 정렬(ItemSort)별 SQL/JPQL은 저장소가 만들 때 한 번만 만들어 두고(plans), 요청마다 파라미터만 바인딩
+ * - 페이징(lastId, limit)과 가격 범위의 빈 쪽은 모양을 나누지 않고 항상 바인딩, 값이 없으면 NO_CURSOR, NO_LIMIT, MIN/MAX_PRICE
+ */
+public enum ItemSearchShape {
+
+    ALL(false, false),
+    NAME(true, false),
+    PRICE(false, true),
+    NAME_PRICE(true, true);
+
+    public static final long NO_CURSOR = 0L; // id는 1부터
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+    public static final int MIN_PRICE = Integer.MIN_VALUE;
+    public static final int MAX_PRICE = Integer.MAX_VALUE;
+
+    private final boolean name;
+    private final boolean price;
+
+    ItemSearchShape(boolean name, boolean price) {
+        this.name = name;
+        this.price = price;
+    }
+
+    public static ItemSearchShape of(ItemSearchCond cond) {
+        boolean name = StringUtils.hasText(cond.getItemName());
+        boolean price = cond.getMinPrice() != null || cond.getMaxPrice() != null;
+        if (name) {
+            return price ? NAME_PRICE : NAME;
+        }
+        return price ? PRICE : ALL;
+    }
+
+    public boolean hasName() {
+        return name;
+    }
+
+    public boolean hasPrice() {
+        return price;
+    }
+
+    /**
+     * 이 모양의 where 절 - 저장소마다 문법이 달라서 조건 문자열은 받아서 and로 연결
+     * @param sortCondition 정렬별 조건 (ID: keyset 커서, PRICE, NAME: 정렬 기준 값 is not null)
+     */
+    public String where(String nameCondition, String priceCondition, String sortCondition) {
+        StringJoiner where = new StringJoiner(" and ", " where ", "");
+        if (name) {
+            where.add(nameCondition);
+        }
+        if (price) {
+            where.add(priceCondition);
+        }
+        return where.add(sortCondition).toString();
+    }
+
+    /**
+     * 정렬 조건 없이 이 모양의 where 절 - 조건이 없으면 빈 문자열 (집계처럼 정렬, 페이징이 없을 때)
+     */
+    public String where(String nameCondition, String priceCondition) {
+        StringJoiner where = new StringJoiner(" and ", " where ", "");
+        where.setEmptyValue("");
+        if (name) {
+            where.add(nameCondition);
+        }
+        if (price) {
+            where.add(priceCondition);
+        }
+        return where.toString();
+    }
+
+    /**
+     * 모양 × 정렬 조합마다 builder로 한 번씩 만들어 둠
+     */
+    public static <T> Plans<T> plans(BiFunction<ItemSearchShape, ItemSort, T> builder) {
+        return new Plans<>(builder);
+    }
+
+    public static long lastIdOf(ItemSearchCond cond) {
+        return cond.getLastId() != null ? cond.getLastId() : NO_CURSOR;
+    }
+
+    public static int limitOf(ItemSearchCond cond) {
+        return cond.getLimit() != null ? cond.getLimit() : NO_LIMIT;
+    }
+
+    public static int minPriceOf(ItemSearchCond cond) {
+        return cond.getMinPrice() != null ? cond.getMinPrice() : MIN_PRICE;
+    }
+
+    public static int maxPriceOf(ItemSearchCond cond) {
+        return cond.getMaxPrice() != null ? cond.getMaxPrice() : MAX_PRICE;
+    }
+
+    /**
+     * 검색 조건(이름, 가격 범위)만 - 정렬, 페이징 없이 (updateAll(~)처럼 조건에 맞는 전체가 대상일 때)
+     */
+    public static ItemSearchCond filterOf(ItemSearchCond cond) {
+        return new ItemSearchCond(cond.getItemName(), cond.getMinPrice(), cond.getMaxPrice(), null, null, null);
+    }
+
+    /**
+     * lastId, limit, 가격 범위를 항상 값이 있는 상태로 - 고정 SQL에 그대로 바인딩할 수 있게
+     */
+    public static ItemSearchCond bindable(ItemSearchCond cond) {
+        return new ItemSearchCond(cond.getItemName(), minPriceOf(cond), maxPriceOf(cond), ItemSort.of(cond),
+                lastIdOf(cond), limitOf(cond));
+    }
+
+    public static final class Plans<T> {
+
+        private final Map<ItemSort, Map<ItemSearchShape, T>> plans = new EnumMap<>(ItemSort.class);
+
+        private Plans(BiFunction<ItemSearchShape, ItemSort, T> builder) {
+            for (ItemSort sort : ItemSort.values()) {
+                Map<ItemSearchShape, T> byShape = new EnumMap<>(ItemSearchShape.class);
+                for (ItemSearchShape shape : ItemSearchShape.values()) {
+                    byShape.put(shape, builder.apply(shape, sort));
+                }
+                plans.put(sort, byShape);
+            }
+        }
+
+        public T get(ItemSearchShape shape, ItemSort sort) {
+            return plans.get(sort).get(shape);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package hello.itemservice.repository;
+
+import hello.itemservice.domain.Item;
+
+import java.util.Comparator;
+
+/**
+ * 검색 결과 정렬 - 같은 값이면 id 순
+ * - PRICE, NAME은 정렬 기준 값이 있는 Item만 (가격 없는 상품은 가격순 목록에 없음)
+ * - lastId keyset 페이징은 ID 정렬에서만, PRICE, NAME은 limit 건의 상위 N개 (DB에서는 (price, id), (item_name, id) 인덱스 순서 그대로)
+ */
+public enum ItemSort {
+
+    ID(Comparator.comparing(Item::getId)),
+    PRICE(Comparator.comparing(Item::getPrice).thenComparing(Item::getId)),
+    NAME(Comparator.comparing(Item::getItemName).thenComparing(Item::getId));
+
+    private final Comparator<Item> order;
+
+    ItemSort(Comparator<Item> order) {
+        this.order = order;
+    }
+
+    public static ItemSort of(ItemSearchCond cond) {
+        return cond.getSort() != null ? cond.getSort() : ID;
+    }
+
+    public Comparator<Item> order() {
+        return order;
+    }
+
+    /**
+     * 이 정렬 결과에 들어갈 수 있는 값인지 - 정렬 기준 값이 있어야 함
+     */
+    public boolean accepts(String itemName, Integer price) {
+        switch (this) {
+            case PRICE:
+                return price != null;
+            case NAME:
+                return itemName != null;
+            default:
+                return true;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package hello.itemservice.repository;
+
+import lombok.Data;
+
+/**
+ * 검색 조건에 맞는 상품 집계 (ItemRepository.findStats) - 목록을 읽지 않고 count, sum, min, max 한 번
+ * - 값이 없는(null) 가격, 재고는 합계, 최소/최대에서 빠짐 (SQL 집계 함수와 같은 기준)
+ * - 재고 금액(stockValue) = sum(price * quantity), 가격과 재고가 모두 있는 상품만
+ * - 맞는 상품이 없으면 건수, 합계는 0, 최소/최대 가격은 null
+ */
+@Data
+public class ItemStats {
+    private long itemCount;
+    private long totalQuantity;
+    private long stockValue;
+    private Integer minPrice;
+    private Integer maxPrice;
+
+    public ItemStats() {
+    }
+
+    // JPQL select new, Querydsl Projections.constructor - 행이 없으면 sum은 null
+    public ItemStats(Long itemCount, Long totalQuantity, Long stockValue, Integer minPrice, Integer maxPrice) {
+        this.itemCount = itemCount != null ? itemCount : 0L;
+        this.totalQuantity = totalQuantity != null ? totalQuantity : 0L;
+        this.stockValue = stockValue != null ? stockValue : 0L;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    // 메모리, 파일 저장소용 - 상품 하나씩 더함
+    public void add(Integer price, Integer quantity) {
+        itemCount++;
+        if (quantity != null) {
+            totalQuantity += quantity;
+        }
+        if (price != null) {
+            if (quantity != null) {
+                stockValue += (long) price * quantity;
+            }
+            minPrice = minPrice == null ? price : Math.min(minPrice, price);
+            maxPrice = maxPrice == null ? price : Math.max(maxPrice, price);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package hello.itemservice.repository;
+
+import hello.itemservice.domain.Item;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 목록 화면용 읽기 전용 모델 (ItemRepository.findSummaries) - 목록에 보이는 컬럼만, 불변
+ * - JPA 저장소는 엔티티 대신 이 값으로 바로 조회 (select new, Projections.constructor, Spring Data 프로젝션)
+ *   영속성 컨텍스트에 안 올라가므로 스냅샷, dirty checking, 1차 캐시 비용 없음
+ * - version이 없음 - 수정 폼은 findById(~)로 엔티티를 다시 읽음
+ */
+@Value
+public class ItemSummary {
+    Long id;
+    String itemName;
+    Integer price;
+    Integer quantity;
+
+    // JPQL select new, Querydsl Projections.constructor, Spring Data 클래스 프로젝션 - 생성자 파라미터 이름 = 필드 이름
+    public ItemSummary(Long id, String itemName, Integer price, Integer quantity) {
+        this.id = id;
+        this.itemName = itemName;
+        this.price = price;
+        this.quantity = quantity;
+    }
+
+    public static ItemSummary of(Item item) {
+        return new ItemSummary(item.getId(), item.getItemName(), item.getPrice(), item.getQuantity());
+    }
+
+    // JdbcTemplate, MyBatis, 메모리 저장소용 - 원래 관리되는 객체가 아니므로 findAll(~) 결과를 그대로 옮김
+    public static List<ItemSummary> listOf(List<Item> items) {
+        List<ItemSummary> summaries = new ArrayList<>(items.size());
+        for (Item item : items) {
+            summaries.add(of(item));
+        }
+        return summaries;
+    }
+}
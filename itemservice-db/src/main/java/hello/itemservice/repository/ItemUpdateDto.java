@@ -7,6 +7,7 @@ public class ItemUpdateDto {
     private String itemName;
     private Integer price;
     private Integer quantity;
+    private Long version; // 수정 폼에서 읽은 버전 - 그 사이 바뀌었으면 충돌, null이면 확인 없이 덮어씀
 
     public ItemUpdateDto() {
     }
@@ -16,4 +17,9 @@ public class ItemUpdateDto {
         this.price = price;
         this.quantity = quantity;
     }
+
+    public ItemUpdateDto(String itemName, Integer price, Integer quantity, Long version) {
+        this(itemName, price, quantity);
+        this.version = version;
+    }
 }
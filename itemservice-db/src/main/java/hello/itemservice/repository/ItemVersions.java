@@ -0,0 +1,54 @@
+package hello.itemservice.repository;
+
+import hello.itemservice.domain.Item;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * 버전 조건부 수정(compare-and-set) - 저장소 공통
+ * - JdbcTemplate, MyBatis: update item set ..., version = version + 1 where id = ? [and version = ?] 한 번, 바뀐 행 수로 충돌 확인
+ * - JPA: 관리되는 엔티티를 읽어서 버전 비교 후 변경 감지 - flush 때 Hibernate가 @Version으로 한 번 더 확인
+ * - 메모리, 파일 저장소: 쓰기 락 안에서 현재 버전과 비교 후 교체
+ */
+public final class ItemVersions {
+
+    public static final long INITIAL = 0L;
+
+    private ItemVersions() {
+    }
+
+    public static boolean matches(long currentVersion, ItemUpdateDto updateParam) {
+        return updateParam.getVersion() == null || updateParam.getVersion() == currentVersion;
+    }
+
+    /**
+     * 버전을 지정했는데 바뀐 행이 없으면 충돌 - 그 사이 다른 수정이 있었거나 삭제됨
+     */
+    public static void checkUpdated(long updatedRows, Long itemId, ItemUpdateDto updateParam) {
+        if (updatedRows == 0 && updateParam.getVersion() != null) {
+            throw conflict(itemId, updateParam);
+        }
+    }
+
+    /**
+     * JPA 저장소 - em.find(~)로 읽은 엔티티(없으면 null)에 수정 내용을 set, 호출하는 쪽에서 flush
+     * bulk update + clear와 달리 영속성 컨텍스트의 다른 엔티티, 2차 캐시의 다른 상품은 그대로
+     * 없는 상품은 DB 저장소의 update와 같게 - 버전을 지정했을 때만 충돌
+     */
+    public static void apply(Item findItem, Long itemId, ItemUpdateDto updateParam) {
+        if (findItem == null) {
+            checkUpdated(0, itemId, updateParam);
+            return;
+        }
+        if (!matches(findItem.getVersion(), updateParam)) {
+            throw conflict(itemId, updateParam);
+        }
+        findItem.setItemName(updateParam.getItemName());
+        findItem.setPrice(updateParam.getPrice());
+        findItem.setQuantity(updateParam.getQuantity());
+    }
+
+    public static OptimisticLockingFailureException conflict(Long itemId, ItemUpdateDto updateParam) {
+        return new OptimisticLockingFailureException(
+                "상품 수정 충돌 - 다른 요청이 먼저 수정함, id=" + itemId + ", version=" + updateParam.getVersion());
+    }
+}
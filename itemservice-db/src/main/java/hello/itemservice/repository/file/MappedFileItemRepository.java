@@ -0,0 +1,795 @@
+package hello.itemservice.repository.file;
+
+import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemIdChunks;
+import hello.itemservice.repository.ItemPriceBucket;
+import hello.itemservice.repository.ItemQuantities;
+import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSearchShape;
+import hello.itemservice.repository.ItemSort;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
+import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.repository.ItemVersions;
+import hello.itemservice.repository.memory.NameSuffixIndex;
+import hello.itemservice.repository.memory.TopItems;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PrimitiveIterator;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * 메모리 맵 파일 저장소 - 재시작해도 데이터 유지
+ * - item.dat: 헤더 + 고정 길이(72 byte) 레코드, save는 끝에 추가(append), update는 쓰기 락 안에서 버전 비교 후 레코드 자리에 덮어쓰기
+ * - item.idx: 헤더 + id별 레코드 위치(long), findById(~)에서 사용
+ * - 시작할 때는 파일을 매핑만 하면 됨, 데이터를 다시 넣거나 DB를 거치지 않음
+ * - MappedByteBuffer는 int 인덱스라 파일 하나당 2GB(약 2900만 건)까지
+ * - 이름 검색은 접미사 인덱스(NameSuffixIndex, 힙) - 시작이 느려지지 않게 첫 이름 검색 때 만들고 이후 쓰기마다 갱신
+ */
+@Slf4j
+@Repository
+public class MappedFileItemRepository implements ItemRepository, Closeable {
+
+    private static final int MAGIC = 0x4954454D; // "ITEM"
+    private static final int FORMAT_VERSION = 2; // 2: 레코드에 version 추가, 이름 자리는 그대로 44 byte
+
+    // 헤더: magic(4) + version(4) + 레코드 수(8)
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_POSITION = 8;
+
+    // 레코드: id(8) + flags(1) + 예비(1) + 이름 길이(2) + price(4) + quantity(4) + version(8) + 이름(44)
+    private static final int RECORD_SIZE = 72;
+    private static final int ID = 0;
+    private static final int FLAGS = 8;
+    private static final int NAME_LENGTH = 10;
+    private static final int PRICE = 12;
+    private static final int QUANTITY = 16;
+    private static final int VERSION = 20;
+    private static final int NAME = 28;
+    private static final int MAX_NAME_BYTES = RECORD_SIZE - NAME;
+
+    // 형식 1 레코드: version 없이 64 byte, 이름이 20부터 - 변환(migrateFromVersion1)에서만 사용
+    private static final int V1_RECORD_SIZE = 64;
+    private static final int V1_NAME = 20;
+    private static final int MIGRATE_CHUNK = 4096;
+
+    private static final byte NAME_NULL = 1;
+    private static final byte PRICE_NULL = 1 << 1;
+    private static final byte QUANTITY_NULL = 1 << 2;
+
+    private static final int INDEX_ENTRY_SIZE = 8;
+    private static final long INITIAL_RECORDS = 1024;
+    private static final int STREAM_CHUNK = 256;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FileChannel dataChannel;
+    private final FileChannel indexChannel;
+    private final boolean syncOnWrite;
+
+    private MappedByteBuffer data;
+    private MappedByteBuffer index;
+    private long count;
+    private volatile NameSuffixIndex nameIndex; // null이면 아직 안 만듦
+
+    public MappedFileItemRepository(Path directory) {
+        this(directory, false);
+    }
+
+    /**
+     * @param syncOnWrite true면 쓰기마다 디스크로 force, false면 OS가 내려쓰고 close() 때 force
+     */
+    public MappedFileItemRepository(Path directory, boolean syncOnWrite) {
+        this.syncOnWrite = syncOnWrite;
+        try {
+            Files.createDirectories(directory);
+            migrateFromVersion1(directory.resolve("item.dat"));
+            this.dataChannel = FileChannel.open(directory.resolve("item.dat"), CREATE, READ, WRITE);
+            this.indexChannel = FileChannel.open(directory.resolve("item.idx"), CREATE, READ, WRITE);
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("mapped file store loaded, directory={}, count={}", directory, count);
+    }
+
+    @Override
+    public Item save(Item item) {
+        byte[] name = encodeName(item.getItemName());
+        lock.writeLock().lock();
+        try {
+            append(item, name);
+            sync();
+            return item;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Item> saveAll(Collection<Item> items) {
+        List<byte[]> names = new ArrayList<>(items.size());
+        for (Item item : items) {
+            names.add(encodeName(item.getItemName()));
+        }
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(count + items.size());
+            List<Item> saved = new ArrayList<>(items.size());
+            int i = 0;
+            for (Item item : items) {
+                append(item, names.get(i++));
+                saved.add(item);
+            }
+            sync(); // force는 마지막에 한 번만
+            return saved;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void update(Long itemId, ItemUpdateDto updateParam) {
+        byte[] name = encodeName(updateParam.getItemName());
+        lock.writeLock().lock();
+        try {
+            int offset = offsetOf(itemId);
+            if (offset < 0) {
+                throw new NoSuchElementException("No value present");
+            }
+            long version = data.getLong(offset + VERSION);
+            if (!ItemVersions.matches(version, updateParam)) {
+                throw ItemVersions.conflict(itemId, updateParam);
+            }
+            NameSuffixIndex names = nameIndex;
+            if (names != null) {
+                names.remove(rowOf(offset), readName(offset));
+                names.add(rowOf(offset), updateParam.getItemName());
+            }
+            writeFields(offset, name, updateParam.getPrice(), updateParam.getQuantity());
+            data.putLong(offset + VERSION, version + 1);
+            sync();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateAll(ItemSearchCond cond, ItemBulkUpdateDto updateParam) {
+        String itemName = nameTerm(cond); // 인덱스는 락 잡기 전에
+        boolean priceFilter = cond.getMinPrice() != null || cond.getMaxPrice() != null;
+        int minValue = ItemSearchShape.minPriceOf(cond);
+        int maxValue = ItemSearchShape.maxPriceOf(cond);
+
+        lock.writeLock().lock();
+        try {
+            // 레코드를 row 순서(= id 순서)로 그 자리에서 고쳐 쓰고 sync는 마지막에 한 번 - 이름은 그대로라 인덱스도 그대로
+            PrimitiveIterator.OfInt rows = itemName != null
+                    ? nameIndex.rows(itemName, 0) : IntStream.range(0, (int) count).iterator();
+            IntStream.Builder targets = IntStream.builder();
+            while (rows.hasNext()) {
+                int offset = recordOffset(rows.nextInt());
+                if (priceFilter && !priceIn(offset, minValue, maxValue)) {
+                    continue;
+                }
+                checkAdjust(offset, updateParam);
+                targets.add(offset);
+            }
+            return adjustAll(targets.build().toArray(), updateParam);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateAllById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam) {
+        lock.writeLock().lock();
+        try {
+            IntStream.Builder targets = IntStream.builder();
+            for (Long id : new TreeSet<>(itemIds)) {
+                int offset = offsetOf(id);
+                if (offset >= 0) {
+                    checkAdjust(offset, updateParam);
+                    targets.add(offset);
+                }
+            }
+            return adjustAll(targets.build().toArray(), updateParam);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Long> addQuantities(Map<Long, Integer> deltas) {
+        lock.writeLock().lock();
+        try {
+            List<Long> rejected = new ArrayList<>();
+            for (Map.Entry<Long, Integer> delta : ItemQuantities.ordered(deltas)) {
+                int offset = offsetOf(delta.getKey());
+                Integer quantity = offset >= 0 ? ItemQuantities.add(quantityOf(offset), delta.getValue()) : null;
+                if (quantity == null) {
+                    rejected.add(delta.getKey());
+                    continue;
+                }
+                data.put(offset + FLAGS, (byte) (data.get(offset + FLAGS) & ~QUANTITY_NULL));
+                data.putInt(offset + QUANTITY, quantity);
+                data.putLong(offset + VERSION, data.getLong(offset + VERSION) + 1);
+            }
+            sync();
+            return rejected;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public ItemStats findStats(ItemSearchCond cond) {
+        ItemStats stats = new ItemStats();
+        forEachMatching(cond, offset -> stats.add(priceOf(offset), quantityOf(offset)));
+        return stats;
+    }
+
+    @Override
+    public List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize) {
+        ItemPriceBucket.checkBucketSize(bucketSize);
+        Map<Integer, Long> counts = new TreeMap<>();
+        forEachMatching(cond, offset -> {
+            Integer price = priceOf(offset);
+            if (price != null) {
+                counts.merge(ItemPriceBucket.fromPriceOf(price, bucketSize), 1L, Long::sum);
+            }
+        });
+        return ItemPriceBucket.ofCounts(counts);
+    }
+
+    @Override
+    public Optional<Item> findById(Long id) {
+        lock.readLock().lock();
+        try {
+            int offset = offsetOf(id);
+            return offset < 0 ? Optional.empty() : Optional.of(readItem(offset));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Item> findAllById(Collection<Long> ids) {
+        List<Long> sorted = ItemIdChunks.sorted(ids);
+        lock.readLock().lock(); // 한 번만 잡고 전부
+        try {
+            List<Item> result = new ArrayList<>(sorted.size());
+            for (Long id : sorted) {
+                int offset = offsetOf(id);
+                if (offset >= 0) {
+                    result.add(readItem(offset));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Item> findAll(ItemSearchCond cond) {
+        String itemName = nameTerm(cond);
+        int limit = cond.getLimit() != null ? cond.getLimit() : Integer.MAX_VALUE;
+        ItemSort sort = ItemSort.of(cond);
+
+        lock.readLock().lock();
+        try {
+            if (sort != ItemSort.ID) {
+                return top(itemName, cond.getMinPrice(), cond.getMaxPrice(), sort, limit);
+            }
+            List<Item> result = new ArrayList<>();
+            scan(startRow(cond), itemName, cond.getMinPrice(), cond.getMaxPrice(), limit, result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ItemSummary> findSummaries(ItemSearchCond cond) {
+        return ItemSummary.listOf(findAll(cond));
+    }
+
+    @Override
+    public void streamAll(ItemSearchCond cond, Consumer<Item> action) {
+        String itemName = nameTerm(cond);
+        long remaining = cond.getLimit() != null ? cond.getLimit() : Long.MAX_VALUE;
+        ItemSort sort = ItemSort.of(cond);
+
+        if (sort != ItemSort.ID) {
+            // 가격순, 이름순은 상위 limit 건을 한 번에 모은 뒤 락 밖에서 넘김
+            List<Item> items;
+            lock.readLock().lock();
+            try {
+                items = top(itemName, cond.getMinPrice(), cond.getMaxPrice(), sort, remaining);
+            } finally {
+                lock.readLock().unlock();
+            }
+            items.forEach(action);
+            return;
+        }
+
+        // STREAM_CHUNK 건씩 읽기 락 안에서 모으고, action은 락 밖에서 - remap(쓰기 락)이 action 때문에 막히지 않게
+        List<Item> chunk = new ArrayList<>(STREAM_CHUNK);
+        long row = startRow(cond);
+        while (remaining > 0) {
+            int max = (int) Math.min(STREAM_CHUNK, remaining);
+            chunk.clear();
+            lock.readLock().lock();
+            try {
+                row = scan(row, itemName, cond.getMinPrice(), cond.getMaxPrice(), max, chunk);
+            } finally {
+                lock.readLock().unlock();
+            }
+            chunk.forEach(action);
+            if (chunk.size() < max) {
+                return; // 끝까지 읽음
+            }
+            remaining -= chunk.size();
+        }
+    }
+
+    public void clearStore() {
+        lock.writeLock().lock();
+        try {
+            count = 0;
+            data.putLong(COUNT_POSITION, 0);
+            index.putLong(COUNT_POSITION, 0);
+            if (nameIndex != null) {
+                nameIndex.clear();
+            }
+            sync();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            data.force();
+            index.force();
+            dataChannel.close();
+            indexChannel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() throws IOException {
+        boolean exists = dataChannel.size() >= HEADER_SIZE;
+        long records = exists ? (dataChannel.size() - HEADER_SIZE) / RECORD_SIZE : 0;
+        data = map(dataChannel, dataSize(Math.max(records, INITIAL_RECORDS)));
+        if (exists) {
+            count = data.getLong(COUNT_POSITION);
+            checkHeader(data, "item.dat");
+        } else {
+            writeHeader(data);
+        }
+
+        boolean indexExists = indexChannel.size() >= HEADER_SIZE;
+        index = map(indexChannel, indexSize(Math.max(count, INITIAL_RECORDS)));
+        // 형식이 바뀌면 레코드 위치도 바뀌므로 형식 번호까지 확인
+        if (!indexExists || index.getInt(0) != MAGIC || index.getInt(4) != FORMAT_VERSION
+                || index.getLong(COUNT_POSITION) != count) {
+            rebuildIndex();
+        }
+    }
+
+    /**
+     * 형식 1(64 byte, version 없음) -> 형식 2(72 byte), 레코드마다 이름을 뒤로 옮기고 version 0
+     * - item.dat.migrating에 다 쓰고 force한 다음 item.dat를 원자적으로 바꿈(rename), 도중에 죽어도 item.dat는 형식 1 그대로
+     * - item.idx는 형식 번호가 맞지 않으므로 load()에서 다시 만듦
+     */
+    private static void migrateFromVersion1(Path dataFile) throws IOException {
+        if (!Files.exists(dataFile) || Files.size(dataFile) < HEADER_SIZE) {
+            return;
+        }
+        Path migrating = dataFile.resolveSibling(dataFile.getFileName() + ".migrating");
+        try (FileChannel source = FileChannel.open(dataFile, READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(source, header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != 1) {
+                return;
+            }
+            long count = header.getLong(COUNT_POSITION);
+            log.info("migrate item.dat format 1 -> {}, count={}", FORMAT_VERSION, count);
+
+            try (FileChannel target = FileChannel.open(migrating, CREATE, TRUNCATE_EXISTING, WRITE)) {
+                header.putInt(4, FORMAT_VERSION);
+                writeFully(target, header, 0);
+                ByteBuffer oldRecords = ByteBuffer.allocate(MIGRATE_CHUNK * V1_RECORD_SIZE);
+                ByteBuffer newRecords = ByteBuffer.allocate(MIGRATE_CHUNK * RECORD_SIZE);
+                for (long row = 0; row < count; row += MIGRATE_CHUNK) {
+                    int rows = (int) Math.min(MIGRATE_CHUNK, count - row);
+                    oldRecords.clear().limit(rows * V1_RECORD_SIZE);
+                    readFully(source, oldRecords, HEADER_SIZE + row * V1_RECORD_SIZE);
+                    newRecords.clear().limit(rows * RECORD_SIZE);
+                    Arrays.fill(newRecords.array(), (byte) 0);
+                    for (int i = 0; i < rows; i++) {
+                        int from = i * V1_RECORD_SIZE;
+                        int to = i * RECORD_SIZE;
+                        // id ~ quantity는 같은 자리
+                        System.arraycopy(oldRecords.array(), from, newRecords.array(), to, VERSION);
+                        newRecords.putLong(to + VERSION, ItemVersions.INITIAL);
+                        System.arraycopy(oldRecords.array(), from + V1_NAME, newRecords.array(), to + NAME,
+                                oldRecords.getShort(from + NAME_LENGTH));
+                    }
+                    writeFully(target, newRecords, dataSize(row));
+                }
+                target.force(true);
+            }
+        }
+        Files.move(migrating, dataFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IllegalStateException("item.dat이 헤더의 레코드 수보다 짧음");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * 인덱스 파일이 없거나 건수가 맞지 않으면 데이터 파일을 한 번 훑어서 다시 만듦
+     */
+    private void rebuildIndex() {
+        log.info("rebuild item.idx, count={}", count);
+        writeHeader(index);
+        for (long row = 0; row < count; row++) {
+            int offset = recordOffset(row);
+            index.putLong(indexOffset(data.getLong(offset + ID)), offset);
+        }
+        index.putLong(COUNT_POSITION, count);
+    }
+
+    private void append(Item item, byte[] name) {
+        ensureCapacity(count + 1);
+        long id = count + 1;
+        int offset = recordOffset(count);
+        data.putLong(offset + ID, id);
+        data.putLong(offset + VERSION, ItemVersions.INITIAL);
+        writeFields(offset, name, item.getPrice(), item.getQuantity());
+        index.putLong(indexOffset(id), offset);
+        if (nameIndex != null) {
+            nameIndex.add((int) count, item.getItemName());
+        }
+
+        // 레코드를 다 쓴 다음에 건수를 올림
+        count = id;
+        data.putLong(COUNT_POSITION, count);
+        index.putLong(COUNT_POSITION, count);
+        item.setId(id);
+        item.setVersion(ItemVersions.INITIAL);
+    }
+
+    private void ensureCapacity(long records) {
+        try {
+            if (dataSize(records) > data.capacity()) {
+                data.force();
+                data = map(dataChannel, dataSize(records * 2));
+            }
+            if (indexSize(records) > index.capacity()) {
+                index.force();
+                index = map(indexChannel, indexSize(records * 2));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeFields(int offset, byte[] name, Integer price, Integer quantity) {
+        byte flags = 0;
+        if (name == null) {
+            flags |= NAME_NULL;
+            data.putShort(offset + NAME_LENGTH, (short) 0);
+        } else {
+            data.putShort(offset + NAME_LENGTH, (short) name.length);
+            ByteBuffer view = data.duplicate();
+            view.position(offset + NAME);
+            view.put(name);
+        }
+        if (price == null) {
+            flags |= PRICE_NULL;
+        }
+        if (quantity == null) {
+            flags |= QUANTITY_NULL;
+        }
+        data.putInt(offset + PRICE, price == null ? 0 : price);
+        data.putInt(offset + QUANTITY, quantity == null ? 0 : quantity);
+        data.put(offset + FLAGS, flags);
+    }
+
+    // 쓰기 전에 대상 레코드 전부 확인 - 범위를 넘는 레코드가 있으면 ArithmeticException, 한 레코드도 바뀌지 않음
+    private void checkAdjust(int offset, ItemBulkUpdateDto updateParam) {
+        byte flags = data.get(offset + FLAGS);
+        if ((flags & PRICE_NULL) == 0) {
+            updateParam.applyToPrice(data.getInt(offset + PRICE));
+        }
+        if ((flags & QUANTITY_NULL) == 0) {
+            updateParam.applyToQuantity(data.getInt(offset + QUANTITY));
+        }
+    }
+
+    // 가격, 재고, 버전만 - ItemBulkUpdateDto.applyToPrice(~), applyToQuantity(~), 쓰기 락 안에서 checkAdjust(~) 다음에
+    // 레코드를 그 자리에서 고쳐 쓰고 sync는 마지막에 한 번 (중간에 실패해도 쓴 만큼은 sync)
+    private int adjustAll(int[] offsets, ItemBulkUpdateDto updateParam) {
+        try {
+            for (int offset : offsets) {
+                byte flags = data.get(offset + FLAGS);
+                if ((flags & PRICE_NULL) == 0) {
+                    data.putInt(offset + PRICE, updateParam.applyToPrice(data.getInt(offset + PRICE)));
+                }
+                if ((flags & QUANTITY_NULL) == 0) {
+                    data.putInt(offset + QUANTITY, updateParam.applyToQuantity(data.getInt(offset + QUANTITY)));
+                }
+                data.putLong(offset + VERSION, data.getLong(offset + VERSION) + 1);
+            }
+        } finally {
+            sync();
+        }
+        return offsets.length;
+    }
+
+    private Integer priceOf(int offset) {
+        return (data.get(offset + FLAGS) & PRICE_NULL) != 0 ? null : data.getInt(offset + PRICE);
+    }
+
+    private Integer quantityOf(int offset) {
+        return (data.get(offset + FLAGS) & QUANTITY_NULL) != 0 ? null : data.getInt(offset + QUANTITY);
+    }
+
+    private Item readItem(int offset) {
+        byte flags = data.get(offset + FLAGS);
+        Item item = new Item();
+        item.setId(data.getLong(offset + ID));
+        item.setItemName(readName(offset));
+        item.setPrice((flags & PRICE_NULL) != 0 ? null : data.getInt(offset + PRICE));
+        item.setQuantity(quantityOf(offset));
+        item.setVersion(data.getLong(offset + VERSION));
+        return item;
+    }
+
+    private String readName(int offset) {
+        if ((data.get(offset + FLAGS) & NAME_NULL) != 0) {
+            return null;
+        }
+        byte[] name = new byte[data.getShort(offset + NAME_LENGTH)];
+        ByteBuffer view = data.duplicate();
+        view.position(offset + NAME);
+        view.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 이름 인덱스가 없으면 데이터 파일을 한 번 훑어서 만듦 - 쓰기 락, 읽기 락 잡기 전에 호출
+     */
+    private NameSuffixIndex nameIndex() {
+        NameSuffixIndex names = nameIndex;
+        if (names != null) {
+            return names;
+        }
+        lock.writeLock().lock();
+        try {
+            if (nameIndex == null) {
+                names = new NameSuffixIndex();
+                for (long row = 0; row < count; row++) {
+                    names.add((int) row, readName(recordOffset(row)));
+                }
+                nameIndex = names;
+            }
+            return nameIndex;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int offsetOf(Long id) {
+        if (id == null || id < 1 || id > count) {
+            return -1;
+        }
+        return (int) index.getLong(indexOffset(id));
+    }
+
+    private void sync() {
+        if (syncOnWrite) {
+            data.force();
+            index.force();
+        }
+    }
+
+    private static byte[] encodeName(String itemName) {
+        if (itemName == null) {
+            return null;
+        }
+        byte[] name = itemName.getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("itemName은 UTF-8 기준 " + MAX_NAME_BYTES + " byte까지 저장 가능");
+        }
+        return name;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("mapped file은 2GB를 넘을 수 없음");
+        }
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private static void writeHeader(MappedByteBuffer buffer) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putLong(COUNT_POSITION, 0);
+    }
+
+    private static void checkHeader(MappedByteBuffer buffer, String fileName) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalStateException(fileName + " 파일 형식이 다름");
+        }
+    }
+
+    /**
+     * fromRow부터 조건에 맞는 레코드를 최대 max 건 out에 담고, 다음에 볼 row를 돌려줌 - 읽기 락 안에서 호출
+     * - 이름 조건이 있으면 접미사 인덱스가 돌려주는 row만, 없으면 레코드를 차례로
+     */
+    private long scan(long fromRow, String itemName, Integer minPrice, Integer maxPrice, int max, List<Item> out) {
+        boolean priceFilter = minPrice != null || maxPrice != null;
+        int minValue = minPrice != null ? minPrice : Integer.MIN_VALUE;
+        int maxValue = maxPrice != null ? maxPrice : Integer.MAX_VALUE;
+        int found = 0;
+        if (itemName != null) {
+            PrimitiveIterator.OfInt rows = nameIndex.rows(itemName, (int) Math.min(fromRow, count));
+            while (found < max && rows.hasNext()) {
+                int row = rows.nextInt();
+                int offset = recordOffset(row);
+                if (!priceFilter || priceIn(offset, minValue, maxValue)) {
+                    out.add(readItem(offset));
+                    if (++found == max) {
+                        return row + 1L;
+                    }
+                }
+            }
+            return count;
+        }
+        long row = Math.min(fromRow, count);
+        for (; row < count && found < max; row++) {
+            int offset = recordOffset(row);
+            if (priceFilter && !priceIn(offset, minValue, maxValue)) {
+                continue;
+            }
+            out.add(readItem(offset));
+            found++;
+        }
+        return row;
+    }
+
+    /**
+     * 가격순, 이름순 - 조건에 맞는 레코드를 heap에 넣어 상위 limit 건만, 읽기 락 안에서 호출
+     * - 정렬 기준 값이 없는(null) 레코드는 제외
+     */
+    private List<Item> top(String itemName, Integer minPrice, Integer maxPrice, ItemSort sort, long limit) {
+        boolean priceFilter = minPrice != null || maxPrice != null;
+        int minValue = minPrice != null ? minPrice : Integer.MIN_VALUE;
+        int maxValue = maxPrice != null ? maxPrice : Integer.MAX_VALUE;
+        byte keyNull = sort == ItemSort.PRICE ? PRICE_NULL : NAME_NULL;
+
+        TopItems top = new TopItems(sort.order(), limit);
+        PrimitiveIterator.OfInt rows = itemName != null
+                ? nameIndex.rows(itemName, 0) : IntStream.range(0, (int) count).iterator();
+        while (rows.hasNext()) {
+            int offset = recordOffset(rows.nextInt());
+            if ((data.get(offset + FLAGS) & keyNull) != 0 || (priceFilter && !priceIn(offset, minValue, maxValue))) {
+                continue;
+            }
+            top.offer(readItem(offset));
+        }
+        return top.toList();
+    }
+
+    private boolean priceIn(int offset, int minValue, int maxValue) {
+        if ((data.get(offset + FLAGS) & PRICE_NULL) != 0) {
+            return false;
+        }
+        int price = data.getInt(offset + PRICE);
+        return price >= minValue && price <= maxValue;
+    }
+
+    // 집계용 - 이름, 가격 조건에 맞는 레코드를 row 순서로 (Item 객체는 안 만듦, 정렬, 페이징 없음)
+    private void forEachMatching(ItemSearchCond cond, IntConsumer action) {
+        String itemName = nameTerm(cond); // 인덱스는 락 잡기 전에
+        boolean priceFilter = cond.getMinPrice() != null || cond.getMaxPrice() != null;
+        int minValue = ItemSearchShape.minPriceOf(cond);
+        int maxValue = ItemSearchShape.maxPriceOf(cond);
+
+        lock.readLock().lock();
+        try {
+            PrimitiveIterator.OfInt rows = itemName != null
+                    ? nameIndex.rows(itemName, 0) : IntStream.range(0, (int) count).iterator();
+            while (rows.hasNext()) {
+                int offset = recordOffset(rows.nextInt());
+                if (!priceFilter || priceIn(offset, minValue, maxValue)) {
+                    action.accept(offset);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private String nameTerm(ItemSearchCond cond) {
+        if (!StringUtils.hasText(cond.getItemName())) {
+            return null;
+        }
+        nameIndex(); // 처음 이름 검색이면 인덱스부터
+        return cond.getItemName();
+    }
+
+    // 레코드는 id 순서로 append(row = id - 1), id로 시작 위치를 바로 찾음
+    private static long startRow(ItemSearchCond cond) {
+        Long lastId = cond.getLastId();
+        return lastId == null || lastId < 0 ? 0 : lastId;
+    }
+
+    private static int rowOf(int offset) {
+        return (offset - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    private static int recordOffset(long row) {
+        return (int) (HEADER_SIZE + row * RECORD_SIZE);
+    }
+
+    private static int indexOffset(long id) {
+        return (int) (HEADER_SIZE + (id - 1) * INDEX_ENTRY_SIZE);
+    }
+
+    private static long dataSize(long records) {
+        return HEADER_SIZE + records * RECORD_SIZE;
+    }
+
+    private static long indexSize(long records) {
+        return HEADER_SIZE + records * INDEX_ENTRY_SIZE;
+    }
+}
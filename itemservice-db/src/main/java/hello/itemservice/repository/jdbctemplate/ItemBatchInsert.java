@@ -0,0 +1,52 @@
+package hello.itemservice.repository.jdbctemplate;
+
+import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemVersions;
+import org.springframework.jdbc.core.JdbcOperations;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JdbcTemplate 배치 insert + 생성된 id 가져오기
+ * - batchUpdate(~), SimpleJdbcInsert.executeBatch(~)는 생성된 키를 돌려주지 않아서 PreparedStatement를 직접 사용
+ * - batchSize 건씩 addBatch() 후 executeBatch(), getGeneratedKeys()로 id를 순서대로 채움
+ */
+class ItemBatchInsert {
+
+    private static final String SQL = "insert into item(item_name, price, quantity) values (?,?,?)";
+
+    private ItemBatchInsert() {
+    }
+
+    static List<Item> insert(JdbcOperations template, Collection<Item> items, int batchSize) {
+        List<Item> list = new ArrayList<>(items);
+        for (int from = 0; from < list.size(); from += batchSize) {
+            List<Item> chunk = list.subList(from, Math.min(from + batchSize, list.size()));
+            template.execute(connection -> connection.prepareStatement(SQL, new String[]{"id"}),
+                    (PreparedStatement ps) -> {
+                        for (Item item : chunk) {
+                            ps.setString(1, item.getItemName());
+                            ps.setObject(2, item.getPrice(), Types.INTEGER); // null 가능 - setInt(~)는 언박싱에서 NPE
+                            ps.setObject(3, item.getQuantity(), Types.INTEGER);
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+
+                        try (ResultSet keys = ps.getGeneratedKeys()) {
+                            for (Item item : chunk) {
+                                keys.next();
+                                item.setId(keys.getLong(1));
+                                item.setVersion(ItemVersions.INITIAL); // version은 default 0
+                            }
+                        }
+                        return null;
+                    });
+        }
+        return list;
+    }
+}
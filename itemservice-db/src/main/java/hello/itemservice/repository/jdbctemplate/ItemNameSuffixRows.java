@@ -0,0 +1,38 @@
+package hello.itemservice.repository.jdbctemplate;
+
+import hello.itemservice.domain.Item;
+import hello.itemservice.domain.ItemNameSuffix;
+import hello.itemservice.repository.ItemNameSuffixes;
+import org.springframework.jdbc.core.JdbcOperations;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * item_name_suffix 행 유지 (ItemNameSuffixes) - item을 저장, 수정한 같은 트랜잭션 안에서 호출
+ * - delete는 item_name_suffix의 외래 키 on delete cascade로 처리
+ */
+final class ItemNameSuffixRows {
+
+    private ItemNameSuffixRows() {
+    }
+
+    static void insert(JdbcOperations template, Collection<Item> items, int batchSize) {
+        List<ItemNameSuffix> rows = ItemNameSuffixes.rowsOf(items);
+        if (rows.isEmpty()) {
+            return;
+        }
+        template.batchUpdate(ItemNameSuffixes.INSERT_SQL, rows, batchSize, (ps, row) -> {
+            ps.setString(1, row.getSuffix());
+            ps.setLong(2, row.getItemId());
+        });
+    }
+
+    // update는 읽지 않고 한 번에 쓰므로 이전 이름을 모름 - 지우고 다시 넣음 (이름은 최대 10자)
+    static void replace(JdbcOperations template, Long itemId, String itemName) {
+        template.update(ItemNameSuffixes.DELETE_SQL, itemId);
+        Item item = new Item(itemName, null, null);
+        item.setId(itemId);
+        insert(template, List.of(item), itemName == null ? 1 : itemName.length());
+    }
+}
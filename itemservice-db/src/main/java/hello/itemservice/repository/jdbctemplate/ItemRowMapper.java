@@ -0,0 +1,41 @@
+package hello.itemservice.repository.jdbctemplate;
+
+import hello.itemservice.domain.Item;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Item 전용 RowMapper - 상태가 없어서 하나만 만들어 공유
+ * - select id, item_name, price, quantity, version 순서를 전제로 컬럼 번호로 읽음 (BeanPropertyRowMapper처럼 이름 변환, 리플렉션 없음)
+ * - null 컬럼은 wasNull()로 확인해서 0이 아니라 null로 채움
+ */
+final class ItemRowMapper implements RowMapper<Item> {
+
+    static final ItemRowMapper INSTANCE = new ItemRowMapper();
+
+    /**
+     * 단건 조회 - 행이 없으면 예외(EmptyResultDataAccessException) 대신 Optional.empty()
+     */
+    static final ResultSetExtractor<Optional<Item>> SINGLE =
+            rs -> rs.next() ? Optional.of(INSTANCE.mapRow(rs, 0)) : Optional.empty();
+
+    private ItemRowMapper() {
+    }
+
+    @Override
+    public Item mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Item item = new Item();
+        item.setId(rs.getLong(1));
+        item.setItemName(rs.getString(2));
+        int price = rs.getInt(3);
+        item.setPrice(rs.wasNull() ? null : price);
+        int quantity = rs.getInt(4);
+        item.setQuantity(rs.wasNull() ? null : quantity);
+        item.setVersion(rs.getLong(5)); // not null
+        return item;
+    }
+}
@@ -0,0 +1,30 @@
+package hello.itemservice.repository.jdbctemplate;
+
+import hello.itemservice.repository.ItemPriceBucket;
+import hello.itemservice.repository.ItemStats;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * 집계 쿼리(findStats, findPriceHistogram) RowMapper - ItemRowMapper처럼 컬럼 번호로 읽음, JdbcTemplate 저장소 공통
+ */
+final class ItemStatsRowMappers {
+
+    static final String STATS_SELECT = "select count(*), coalesce(sum(quantity), 0),"
+            + " coalesce(sum(cast(price as bigint) * quantity), 0), min(price), max(price) from item";
+
+    static final String PRICE_GROUP_SELECT = "select min(price), count(*) from item";
+
+    /**
+     * select count, sum(quantity), sum(price * quantity), min(price), max(price) - 집계라 행은 항상 하나
+     */
+    static final RowMapper<ItemStats> STATS = (rs, rowNum) -> new ItemStats(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+            rs.getObject(4, Integer.class), rs.getObject(5, Integer.class));
+
+    /**
+     * select min(price), count(*) ... group by floor(price / ?) - 구간 시작 가격은 ItemPriceBucket.ofGroups(~)에서
+     */
+    static final RowMapper<ItemPriceBucket> PRICE_GROUP = (rs, rowNum) -> new ItemPriceBucket(rs.getInt(1), rs.getLong(2));
+
+    private ItemStatsRowMappers() {
+    }
+}
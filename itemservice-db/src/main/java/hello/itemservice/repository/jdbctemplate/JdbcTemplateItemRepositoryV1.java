@@ -1,22 +1,39 @@
 package hello.itemservice.repository.jdbctemplate;
 
 import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemIdChunks;
+import hello.itemservice.repository.ItemIdRange;
+import hello.itemservice.repository.ItemQuantities;
+import hello.itemservice.repository.ItemPriceBucket;
 import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemRepositoryProperties;
 import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSearchShape;
+import hello.itemservice.repository.ItemSort;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
 import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.repository.ItemVersions;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.sql.DataSource;
 import java.sql.PreparedStatement;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * JdbcTemplate
@@ -24,93 +41,279 @@ import java.util.Optional;
 @Slf4j
 public class JdbcTemplateItemRepositoryV1 implements ItemRepository {
 
+    private static final ItemSearchShape.Plans<String> FIND_ALL_SQL = ItemSearchShape.plans(JdbcTemplateItemRepositoryV1::findAllSql);
+    private static final ItemSearchShape.Plans<String> UPDATE_ALL_SQL = ItemSearchShape.plans((shape, sort) -> updateAllSql(shape));
+    private static final ItemSearchShape.Plans<String> STATS_SQL = ItemSearchShape.plans((shape, sort) -> statsSql(shape));
+    private static final ItemSearchShape.Plans<String> PRICE_HISTOGRAM_SQL = ItemSearchShape.plans((shape, sort) -> priceHistogramSql(shape));
+    // ItemBulkUpdateDto와 같은 계산 - price * pricePercent는 bigint로, 재고는 음수가 되면 0 (quantityDelta는 ?가 두 개)
+    private static final String UPDATE_ALL_SET = "update item set price = price + cast(price as bigint) * ? / 100,"
+            + " quantity = case when quantity + ? < 0 then 0 else quantity + ? end, version = version + 1";
+    private static final String ADD_QUANTITY_SQL = "update item set quantity = coalesce(quantity, 0) + ?, version = version + 1"
+            + " where id = ? and coalesce(quantity, 0) + ? >= 0";
+
     private final JdbcTemplate template;
+    private final int batchSize;
+    private final int updateChunkSize;
+    private final int findChunkSize;
 
     public JdbcTemplateItemRepositoryV1(DataSource dataSource) {
+        this(dataSource, new ItemRepositoryProperties());
+    }
+
+    public JdbcTemplateItemRepositoryV1(DataSource dataSource, ItemRepositoryProperties properties) {
         this.template = new JdbcTemplate(dataSource);
+        this.template.setFetchSize(properties.getFetchSize());
+        this.batchSize = properties.getBatchSize();
+        this.updateChunkSize = properties.getUpdateChunkSize();
+        this.findChunkSize = properties.getFindChunkSize();
     }
 
     @Override
+    @Transactional // item과 item_name_suffix를 한 트랜잭션으로
     public Item save(Item item) {
-        String sql = "insert into item(item_name, price, quantity) values (?,?,?)";
+        String sql = "insert into item(item_name, price, quantity) values (?,?,?)"; // version은 default 0
         KeyHolder keyHolder = new GeneratedKeyHolder(); // JdbcTemplate을 사용할 때 DB에서 생성한 id 값을 가져오기 위한 것
         template.update(connection -> {
             // 자동 증가 키
             PreparedStatement ps = connection.prepareStatement(sql, new String[]{"id"});
             ps.setString(1, item.getItemName());
-            ps.setInt(2, item.getPrice());
-            ps.setInt(3, item.getQuantity());
+            ps.setObject(2, item.getPrice(), Types.INTEGER); // null 가능 - setInt(~)는 언박싱에서 NPE
+            ps.setObject(3, item.getQuantity(), Types.INTEGER);
             return ps;
         }, keyHolder); // keyHolder 때문에 로직이 조금 더 들어감
 
         long key = keyHolder.getKey().longValue();
         item.setId(key);
+        item.setVersion(ItemVersions.INITIAL);
+        ItemNameSuffixRows.insert(template, List.of(item), batchSize);
         return item;
     }
 
     @Override
+    @Transactional
+    public List<Item> saveAll(Collection<Item> items) {
+        List<Item> saved = ItemBatchInsert.insert(template, items, batchSize);
+        ItemNameSuffixRows.insert(template, saved, batchSize);
+        return saved;
+    }
+
+    @Override
+    @Transactional
     public void update(Long itemId, ItemUpdateDto updateParam) {
-        String sql = "update item set item_name=?, price=?, quantity=? where id=?";
-        template.update(sql,
-                updateParam.getItemName(), updateParam.getPrice(), updateParam.getQuantity(), itemId);
+        // 읽지 않고 update 한 번 - 버전이 있으면 그 버전일 때만 (compare-and-set)
+        String sql = "update item set item_name=?, price=?, quantity=?, version=version+1 where id=?";
+        int updated;
+        if (updateParam.getVersion() == null) {
+            updated = template.update(sql,
+                    updateParam.getItemName(), updateParam.getPrice(), updateParam.getQuantity(), itemId);
+        } else {
+            updated = template.update(sql + " and version=?",
+                    updateParam.getItemName(), updateParam.getPrice(), updateParam.getQuantity(), itemId,
+                    updateParam.getVersion());
+        }
+        ItemVersions.checkUpdated(updated, itemId, updateParam);
+        ItemNameSuffixRows.replace(template, itemId, updateParam.getItemName());
     }
 
     @Override
-    public Optional<Item> findById(Long id) {
-        String sql = "select id, item_name, price, quantity from item where id = ?";
-        try {
-            Item item = template.queryForObject(sql, itemRowMapper(), id);
-            return Optional.of(item);
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
+    public int updateAll(ItemSearchCond cond, ItemBulkUpdateDto updateParam) {
+        ItemSearchShape shape = ItemSearchShape.of(cond);
+        String sql = UPDATE_ALL_SQL.get(shape, ItemSort.ID);
+        // 구간마다 update 한 문장 - 조건이 맞는 행만 DB 안에서 바로 수정 (읽어오지 않음)
+        return findIdRange().forEachChunk(updateChunkSize, this::findChunkEnd, (afterId, toId) -> {
+            List<Object> args = new ArrayList<>(9);
+            args.add(updateParam.getPricePercent());
+            args.add(updateParam.getQuantityDelta());
+            args.add(updateParam.getQuantityDelta());
+            if (shape.hasName()) {
+                args.add(cond.getItemName());
+                args.add(cond.getItemName());
+            }
+            if (shape.hasPrice()) {
+                args.add(ItemSearchShape.minPriceOf(cond));
+                args.add(ItemSearchShape.maxPriceOf(cond));
+            }
+            args.add(afterId);
+            args.add(toId);
+            return template.update(sql, args.toArray());
+        });
+    }
+
+    @Override
+    public int updateAllById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam) {
+        return ItemIdRange.forEachChunk(itemIds, updateChunkSize, ids -> {
+            List<Object> args = new ArrayList<>(ids.size() + 3);
+            args.add(updateParam.getPricePercent());
+            args.add(updateParam.getQuantityDelta());
+            args.add(updateParam.getQuantityDelta());
+            args.addAll(ids);
+            return template.update(UPDATE_ALL_SET + " where id in (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ")",
+                    args.toArray());
+        });
+    }
+
+    @Override
+    public List<Long> addQuantities(Map<Long, Integer> deltas) {
+        // batch 한 번 - 문장마다 바뀐 행 수로 반영 여부 확인
+        List<Map.Entry<Long, Integer>> ordered = ItemQuantities.ordered(deltas);
+        List<Object[]> args = new ArrayList<>(ordered.size());
+        for (Map.Entry<Long, Integer> delta : ordered) {
+            args.add(new Object[]{delta.getValue(), delta.getKey(), delta.getValue()});
         }
+        return ItemQuantities.rejected(ordered, template.batchUpdate(ADD_QUANTITY_SQL, args));
+    }
+
+    private ItemIdRange findIdRange() {
+        return template.queryForObject("select min(id), max(id) from item",
+                (rs, rowNum) -> new ItemIdRange(rs.getObject(1, Long.class), rs.getObject(2, Long.class)));
+    }
+
+    private Long findChunkEnd(long afterId, int offset) {
+        return DataAccessUtils.singleResult(template.queryForList(ItemIdRange.CHUNK_END_SQL, Long.class, afterId, offset));
+    }
+
+    @Override
+    public Optional<Item> findById(Long id) {
+        String sql = "select id, item_name, price, quantity, version from item where id = ?";
+        // queryForObject(~)는 결과가 없으면 EmptyResultDataAccessException - 조회 실패가 잦으면 예외 생성 비용이 큼
+        return template.query(sql, ItemRowMapper.SINGLE, id);
+    }
+
+    @Override
+    public List<Item> findAllById(Collection<Long> ids) {
+        // 채운 건수(1, 2, 4, ...)마다 같은 SQL 문자열 - 묶음 크기가 달라도 캐시되는 문장은 몇 개뿐
+        return ItemIdChunks.findAll(ids, findChunkSize, chunk -> template.query(
+                "select id, item_name, price, quantity, version from item where id in ("
+                        + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")",
+                itemRowMapper(), chunk.toArray()));
     }
 
     @Override
     public List<Item> findAll(ItemSearchCond cond) {
-        String itemName = cond.getItemName();
-        Integer maxPrice = cond.getMaxPrice();
-
-        String sql = "select id, item_name, price, quantity from item";
-        // 동적 쿼리 - 조건에 따라 where, and 넣을 것인지 말지
-        if (StringUtils.hasText(itemName) || maxPrice != null) {
-            // (cf.) StringUtils.hasText(~) -> not null & length != 0
-            // -> & 모든 구성하는 char가 Character의 isWhiteSpace == false일 것(공백 문자거나 유사 공백 문자가 아니어야 함)
-            sql += " where"; // where 절 추가
+        ItemSearchShape shape = ItemSearchShape.of(cond);
+        ItemSort sort = ItemSort.of(cond);
+        return template.query(FIND_ALL_SQL.get(shape, sort), itemRowMapper(), findAllArgs(shape, sort, cond));
+        // 모양별 SQL은 미리 만들어 둔 것 - 매번 같은 문자열이라 DB의 파싱된 쿼리 캐시도 그대로 재사용
+        // - query(~) 메서드에 arg로 배열을 받더라도, 내부에서 알아서 PreparedStatement로 배치해주는 로직이 있음
+        // (cf.) ArgumentPreparedStatementSetter, PreparedStatementCreator
+    }
+
+    @Override
+    public List<ItemSummary> findSummaries(ItemSearchCond cond) {
+        return ItemSummary.listOf(findAll(cond));
+    }
+
+    @Override
+    public void streamAll(ItemSearchCond cond, Consumer<Item> action) {
+        ItemSearchShape shape = ItemSearchShape.of(cond);
+        ItemSort sort = ItemSort.of(cond);
+        RowMapper<Item> rowMapper = itemRowMapper();
+        // RowCallbackHandler - 한 행씩 바로 넘기고 목록은 만들지 않음, fetch size는 template에 설정
+        template.query(FIND_ALL_SQL.get(shape, sort), (RowCallbackHandler) rs -> action.accept(rowMapper.mapRow(rs, 0)),
+                findAllArgs(shape, sort, cond));
+    }
+
+    @Override
+    public ItemStats findStats(ItemSearchCond cond) {
+        ItemSearchShape shape = ItemSearchShape.of(cond);
+        // 집계는 DB에서 - 행을 가져오지 않고 결과 한 행만
+        return template.queryForObject(STATS_SQL.get(shape, ItemSort.ID), ItemStatsRowMappers.STATS,
+                filterArgs(shape, cond).toArray());
+    }
+
+    @Override
+    public List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize) {
+        ItemPriceBucket.checkBucketSize(bucketSize);
+        ItemSearchShape shape = ItemSearchShape.of(cond);
+        List<Object> args = filterArgs(shape, cond);
+        args.add(bucketSize);
+        return ItemPriceBucket.ofGroups(template.query(PRICE_HISTOGRAM_SQL.get(shape, ItemSort.ID),
+                ItemStatsRowMappers.PRICE_GROUP, args.toArray()), bucketSize);
+    }
+
+    // 검색 조건(이름, 가격 범위)만 - 모양에 있는 조건 순서대로
+    private static List<Object> filterArgs(ItemSearchShape shape, ItemSearchCond cond) {
+        List<Object> args = new ArrayList<>(6);
+        if (shape.hasName()) {
+            args.add(cond.getItemName());
+            args.add(cond.getItemName());
+        }
+        if (shape.hasPrice()) {
+            args.add(ItemSearchShape.minPriceOf(cond));
+            args.add(ItemSearchShape.maxPriceOf(cond));
         }
+        return args;
+    }
 
-        boolean andFlag = false; // 조건 두 개 함께 들어갈 때를 판별하는 flag
-        List<Object> param = new ArrayList<>();
-        if (StringUtils.hasText(itemName)) {
-            sql += " item_name like concat('%',?,'%')"; // ~~~파라미터itemName~~~으로 찾기
-            param.add(itemName);
-            andFlag = true;
+    /**
+     * 모양에 있는 조건 순서대로 + keyset 커서(id > ?, ID 정렬만), limit ?은 항상
+     */
+    private static Object[] findAllArgs(ItemSearchShape shape, ItemSort sort, ItemSearchCond cond) {
+        List<Object> args = filterArgs(shape, cond);
+        if (sort == ItemSort.ID) {
+            args.add(ItemSearchShape.lastIdOf(cond));
         }
+        args.add(ItemSearchShape.limitOf(cond));
+        return args.toArray();
+    }
 
-        if (maxPrice != null) {
-            if (andFlag) { // andFlag가 true라면 itemName 조건이 있는 것이므로 and 붙이기
-                sql += " and";
-            }
-            sql += " price <= ?";
-            param.add(maxPrice);
+    private static String findAllSql(ItemSearchShape shape, ItemSort sort) {
+        return "select id, item_name, price, quantity, version from item"
+                // like '%x%' 대신 접미사 범위 조회 - item_name_suffix 인덱스 사용
+                + shape.where("id in (select item_id from item_name_suffix"
+                                + " where suffix >= ? and suffix < concat(?, char(65535)))",
+                        "price between ? and ?", sortCondition(sort))
+                + orderBy(sort) + " limit ?";
+    }
+
+    // 정렬은 안 씀 - id 구간 (?, ?]
+    private static String updateAllSql(ItemSearchShape shape) {
+        return UPDATE_ALL_SET
+                + shape.where("id in (select item_id from item_name_suffix"
+                                + " where suffix >= ? and suffix < concat(?, char(65535)))",
+                        "price between ? and ?", "id > ? and id <= ?");
+    }
+
+    // 정렬, 페이징 없음
+    private static String statsSql(ItemSearchShape shape) {
+        return ItemStatsRowMappers.STATS_SELECT
+                + shape.where("id in (select item_id from item_name_suffix"
+                                + " where suffix >= ? and suffix < concat(?, char(65535)))",
+                        "price between ? and ?");
+    }
+
+    private static String priceHistogramSql(ItemSearchShape shape) {
+        return ItemStatsRowMappers.PRICE_GROUP_SELECT
+                + shape.where("id in (select item_id from item_name_suffix"
+                                + " where suffix >= ? and suffix < concat(?, char(65535)))",
+                        "price between ? and ?", "price is not null")
+                + " group by floor(cast(price as double) / ?)"; // 정수 나눗셈은 0 쪽으로 버림 - 음수 가격은 floor로
+    }
+
+    // 가격순, 이름순은 (price, id), (item_name, id) 인덱스 순서 그대로 읽다가 limit에서 멈춤
+    private static String sortCondition(ItemSort sort) {
+        switch (sort) {
+            case PRICE:
+                return "price is not null";
+            case NAME:
+                return "item_name is not null";
+            default:
+                return "id > ?";
         }
+    }
 
-        log.info("sql={}", sql);
-        return template.query(sql, itemRowMapper(), param.toArray());
-        // param 개수가 0일 수도, 1일 수도, 2일 수도 있음
-        // - 다행히 query(~) 메서드에 arg로 배열을 받더라도, 내부에서 알아서 PreparedStatement로 배치해주는 로직이 있음
-        //  ==> 동적 쿼리 생성에 이용 가능
-        // (cf.) ArgumentPreparedStatementSetter, PreparedStatementCreator
+    private static String orderBy(ItemSort sort) {
+        switch (sort) {
+            case PRICE:
+                return " order by price, id";
+            case NAME:
+                return " order by item_name, id";
+            default:
+                return " order by id";
+        }
     }
 
     private RowMapper<Item> itemRowMapper() {
-        return ((rs, rowNum) -> {
-            Item item = new Item();
-            item.setId(rs.getLong("id"));
-            item.setItemName(rs.getString("item_name"));
-            item.setPrice(rs.getInt("price"));
-            item.setQuantity(rs.getInt("quantity"));
-            return item;
-        });
+        return ItemRowMapper.INSTANCE; // 컬럼 번호로 읽는 공유 인스턴스
     }
 }
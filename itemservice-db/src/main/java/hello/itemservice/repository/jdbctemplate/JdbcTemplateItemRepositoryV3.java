@@ -1,24 +1,37 @@
 package hello.itemservice.repository.jdbctemplate;
 
 import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemIdChunks;
+import hello.itemservice.repository.ItemIdRange;
+import hello.itemservice.repository.ItemQuantities;
+import hello.itemservice.repository.ItemPriceBucket;
 import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemRepositoryProperties;
 import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSearchShape;
+import hello.itemservice.repository.ItemSort;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
 import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.repository.ItemVersions;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.sql.DataSource;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * SimpleJdbcInsert
@@ -26,19 +39,42 @@ import java.util.Optional;
 @Slf4j
 public class  JdbcTemplateItemRepositoryV3 implements ItemRepository {
 
+    private static final ItemSearchShape.Plans<String> FIND_ALL_SQL = ItemSearchShape.plans(JdbcTemplateItemRepositoryV3::findAllSql);
+    private static final ItemSearchShape.Plans<String> UPDATE_ALL_SQL = ItemSearchShape.plans((shape, sort) -> updateAllSql(shape));
+    private static final ItemSearchShape.Plans<String> STATS_SQL = ItemSearchShape.plans((shape, sort) -> statsSql(shape));
+    private static final ItemSearchShape.Plans<String> PRICE_HISTOGRAM_SQL = ItemSearchShape.plans((shape, sort) -> priceHistogramSql(shape));
+    // ItemBulkUpdateDto와 같은 계산 - price * pricePercent는 bigint로, 재고는 음수가 되면 0
+    private static final String UPDATE_ALL_SET = "update item set price = price + cast(price as bigint) * :pricePercent / 100,"
+            + " quantity = case when quantity + :quantityDelta < 0 then 0 else quantity + :quantityDelta end,"
+            + " version = version + 1";
+    private static final String ADD_QUANTITY_SQL = "update item set quantity = coalesce(quantity, 0) + :delta, version = version + 1"
+            + " where id = :id and coalesce(quantity, 0) + :delta >= 0";
+
     private final NamedParameterJdbcTemplate template;
     private final SimpleJdbcInsert jdbcInsert;
+    private final int batchSize;
+    private final int updateChunkSize;
+    private final int findChunkSize;
 
 
     public JdbcTemplateItemRepositoryV3(DataSource dataSource) {
+        this(dataSource, new ItemRepositoryProperties());
+    }
+
+    public JdbcTemplateItemRepositoryV3(DataSource dataSource, ItemRepositoryProperties properties) {
         this.template = new NamedParameterJdbcTemplate(dataSource);
+        this.template.getJdbcTemplate().setFetchSize(properties.getFetchSize());
         this.jdbcInsert = new SimpleJdbcInsert(dataSource)
                 .withTableName("item")
                 .usingGeneratedKeyColumns("id");
                 // .usingColumns("item_name", "price", "quantity"); // 생략 가능 - DB에서 메타데이터를 읽어서 어떤 column이 있는지 인지함
+        this.batchSize = properties.getBatchSize();
+        this.updateChunkSize = properties.getUpdateChunkSize();
+        this.findChunkSize = properties.getFindChunkSize();
     }
 
     @Override
+    @Transactional // item과 item_name_suffix를 한 트랜잭션으로
     public Item save(Item item) { // insert SQL 대신 jdbcInsert 사용
         /*
         String sql = "insert into item(item_name, price, quantity) values (:itemName, :price, :quantity)";
@@ -52,71 +88,208 @@ public class  JdbcTemplateItemRepositoryV3 implements ItemRepository {
         item.setId(key);
         return item;
          */
+        item.setVersion(ItemVersions.INITIAL); // 메타데이터의 모든 컬럼을 넣으므로 null이면 not null 위반
         SqlParameterSource param = new BeanPropertySqlParameterSource(item);
         Number key = jdbcInsert.executeAndReturnKey(param);
         item.setId(key.longValue());
+        ItemNameSuffixRows.insert(template.getJdbcOperations(), List.of(item), batchSize);
         return item;
     }
 
     @Override
+    @Transactional
+    public List<Item> saveAll(Collection<Item> items) {
+        // SimpleJdbcInsert.executeBatch(~)는 생성된 키를 돌려주지 않음
+        List<Item> saved = ItemBatchInsert.insert(template.getJdbcOperations(), items, batchSize);
+        ItemNameSuffixRows.insert(template.getJdbcOperations(), saved, batchSize);
+        return saved;
+    }
+
+    @Override
+    @Transactional
     public void update(Long itemId, ItemUpdateDto updateParam) {
-        String sql = "update item set item_name=:itemName, price=:price, quantity=:quantity where id=:id";
+        // 읽지 않고 update 한 번 - 버전이 있으면 그 버전일 때만 (compare-and-set)
+        String sql = "update item set item_name=:itemName, price=:price, quantity=:quantity, version=version+1 where id=:id"
+                + (updateParam.getVersion() != null ? " and version=:version" : "");
 
         // 여러 SqlParameterSource 구현 클래스를 사용하는 것을 보여주기 위해 MapSqlParameterSource 사용해봄
         MapSqlParameterSource param = new MapSqlParameterSource()
                 .addValue("itemName", updateParam.getItemName())
                 .addValue("price", updateParam.getPrice())
                 .addValue("quantity", updateParam.getQuantity())
+                .addValue("version", updateParam.getVersion())
                 .addValue("id", itemId); // 이 부분이 별도로 필요 - BeanPropertySqlParameterSource을 사용할 수 없음
-        template.update(sql, param);
+        ItemVersions.checkUpdated(template.update(sql, param), itemId, updateParam);
+        ItemNameSuffixRows.replace(template.getJdbcOperations(), itemId, updateParam.getItemName());
+    }
+
+    @Override
+    public int updateAll(ItemSearchCond cond, ItemBulkUpdateDto updateParam) {
+        String sql = UPDATE_ALL_SQL.get(ItemSearchShape.of(cond), ItemSort.ID);
+        // 구간마다 update 한 문장 - 조건이 맞는 행만 DB 안에서 바로 수정 (읽어오지 않음)
+        return findIdRange().forEachChunk(updateChunkSize, this::findChunkEnd, (afterId, toId) -> template.update(sql,
+                updateAllParam(updateParam)
+                        .addValue("itemName", cond.getItemName())
+                        .addValue("minPrice", ItemSearchShape.minPriceOf(cond))
+                        .addValue("maxPrice", ItemSearchShape.maxPriceOf(cond))
+                        .addValue("afterId", afterId)
+                        .addValue("toId", toId)));
+    }
+
+    @Override
+    public int updateAllById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam) {
+        // in (:ids) - NamedParameterJdbcTemplate이 목록 크기만큼 ?로 펼침
+        return ItemIdRange.forEachChunk(itemIds, updateChunkSize, ids -> template.update(
+                UPDATE_ALL_SET + " where id in (:ids)", updateAllParam(updateParam).addValue("ids", ids)));
+    }
+
+    private static MapSqlParameterSource updateAllParam(ItemBulkUpdateDto updateParam) {
+        return new MapSqlParameterSource()
+                .addValue("pricePercent", updateParam.getPricePercent())
+                .addValue("quantityDelta", updateParam.getQuantityDelta());
+    }
+
+    @Override
+    public List<Long> addQuantities(Map<Long, Integer> deltas) {
+        // batch 한 번 - 문장마다 바뀐 행 수로 반영 여부 확인
+        List<Map.Entry<Long, Integer>> ordered = ItemQuantities.ordered(deltas);
+        SqlParameterSource[] params = ordered.stream()
+                .map(delta -> new MapSqlParameterSource("id", delta.getKey()).addValue("delta", delta.getValue()))
+                .toArray(SqlParameterSource[]::new);
+        return ItemQuantities.rejected(ordered, template.batchUpdate(ADD_QUANTITY_SQL, params));
+    }
+
+    private ItemIdRange findIdRange() {
+        return template.getJdbcOperations().queryForObject("select min(id), max(id) from item",
+                (rs, rowNum) -> new ItemIdRange(rs.getObject(1, Long.class), rs.getObject(2, Long.class)));
+    }
+
+    private Long findChunkEnd(long afterId, int offset) {
+        return DataAccessUtils.singleResult(
+                template.getJdbcOperations().queryForList(ItemIdRange.CHUNK_END_SQL, Long.class, afterId, offset));
     }
 
     @Override
     public Optional<Item> findById(Long id) {
-        String sql = "select id, item_name, price, quantity from item where id = :id";
-        try {
-            Map<String, Object> param = Map.of("id", id);
-            Item item = template.queryForObject(sql, param, itemRowMapper());
-            return Optional.of(item);
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
-        }
+        String sql = "select id, item_name, price, quantity, version from item where id = :id";
+        Map<String, Object> param = Map.of("id", id);
+        return template.query(sql, param, ItemRowMapper.SINGLE); // 결과가 없어도 예외 없이 Optional.empty()
+    }
+
+    @Override
+    public List<Item> findAllById(Collection<Long> ids) {
+        // :ids는 목록 크기만큼 ?로 펼쳐짐 - 채운 건수(1, 2, 4, ...)마다 같은 SQL
+        String sql = "select id, item_name, price, quantity, version from item where id in (:ids)";
+        return ItemIdChunks.findAll(ids, findChunkSize,
+                chunk -> template.query(sql, Map.of("ids", chunk), itemRowMapper()));
     }
 
     @Override
     public List<Item> findAll(ItemSearchCond cond) {
-        String itemName = cond.getItemName();
-        Integer maxPrice = cond.getMaxPrice();
+        String sql = FIND_ALL_SQL.get(ItemSearchShape.of(cond), ItemSort.of(cond));
+        return template.query(sql, findAllParam(cond), itemRowMapper());
+    }
 
-        BeanPropertySqlParameterSource param = new BeanPropertySqlParameterSource(cond);
+    @Override
+    public List<ItemSummary> findSummaries(ItemSearchCond cond) {
+        return ItemSummary.listOf(findAll(cond));
+    }
 
-        String sql = "select id, item_name, price, quantity from item";
-        // 동적 쿼리 - 조건에 따라 where, and 넣을 것인지 말지
-        if (StringUtils.hasText(itemName) || maxPrice != null) {
-            // (cf.) StringUtils.hasText(~) -> not null & length != 0
-            // -> & 모든 구성하는 char가 Character의 isWhiteSpace == false일 것(공백 문자거나 유사 공백 문자가 아니어야 함)
-            sql += " where"; // where 절 추가
-        }
+    @Override
+    public void streamAll(ItemSearchCond cond, Consumer<Item> action) {
+        String sql = FIND_ALL_SQL.get(ItemSearchShape.of(cond), ItemSort.of(cond));
+        RowMapper<Item> rowMapper = itemRowMapper();
+        // RowCallbackHandler - 한 행씩 바로 넘기고 목록은 만들지 않음, fetch size는 template에 설정
+        template.query(sql, findAllParam(cond), (RowCallbackHandler) rs -> action.accept(rowMapper.mapRow(rs, 0)));
+    }
 
-        boolean andFlag = false; // 조건 두 개 함께 들어갈 때를 판별하는 flag
-        if (StringUtils.hasText(itemName)) {
-            sql += " item_name like concat('%',:itemName,'%')"; // ~~~파라미터itemName~~~으로 찾기
-            andFlag = true;
-        }
+    @Override
+    public ItemStats findStats(ItemSearchCond cond) {
+        // 집계는 DB에서 - 행을 가져오지 않고 결과 한 행만
+        String sql = STATS_SQL.get(ItemSearchShape.of(cond), ItemSort.ID);
+        return template.queryForObject(sql, findAllParam(cond), ItemStatsRowMappers.STATS);
+    }
+
+    @Override
+    public List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize) {
+        ItemPriceBucket.checkBucketSize(bucketSize);
+        String sql = PRICE_HISTOGRAM_SQL.get(ItemSearchShape.of(cond), ItemSort.ID);
+        return ItemPriceBucket.ofGroups(template.query(sql, findAllParam(cond).addValue("bucketSize", bucketSize),
+                ItemStatsRowMappers.PRICE_GROUP), bucketSize);
+    }
 
-        if (maxPrice != null) {
-            if (andFlag) { // andFlag가 true라면 itemName 조건이 있는 것이므로 and 붙이기
-                sql += " and";
-            }
-            sql += " price <= :maxPrice";
+    // SQL에 없는 파라미터는 쓰이지 않으므로 항상 모두, 가격 범위의 빈 쪽과 keyset 페이징(lastId, limit)은 빈 값 대신 기본값
+    private static MapSqlParameterSource findAllParam(ItemSearchCond cond) {
+        return new MapSqlParameterSource()
+                .addValue("itemName", cond.getItemName())
+                .addValue("minPrice", ItemSearchShape.minPriceOf(cond))
+                .addValue("maxPrice", ItemSearchShape.maxPriceOf(cond))
+                .addValue("lastId", ItemSearchShape.lastIdOf(cond))
+                .addValue("limit", ItemSearchShape.limitOf(cond));
+    }
+
+    /**
+     * 모양 × 정렬별 SQL을 한 번만 만들어 둠 - 같은 문자열이라 NamedParameterJdbcTemplate의 파싱 캐시와 DB 쿼리 캐시를 그대로 탐
+     */
+    private static String findAllSql(ItemSearchShape shape, ItemSort sort) {
+        return "select id, item_name, price, quantity, version from item"
+                // like '%x%' 대신 접미사 범위 조회 - item_name_suffix 인덱스 사용
+                + shape.where("id in (select item_id from item_name_suffix"
+                                + " where suffix >= :itemName and suffix < concat(:itemName, char(65535)))",
+                        "price between :minPrice and :maxPrice", sortCondition(sort))
+                + orderBy(sort) + " limit :limit";
+    }
+
+    // 정렬은 안 씀 - id 구간 (afterId, toId]
+    private static String updateAllSql(ItemSearchShape shape) {
+        return UPDATE_ALL_SET
+                + shape.where("id in (select item_id from item_name_suffix"
+                                + " where suffix >= :itemName and suffix < concat(:itemName, char(65535)))",
+                        "price between :minPrice and :maxPrice", "id > :afterId and id <= :toId");
+    }
+
+    // 정렬, 페이징 없음
+    private static String statsSql(ItemSearchShape shape) {
+        return ItemStatsRowMappers.STATS_SELECT
+                + shape.where("id in (select item_id from item_name_suffix"
+                                + " where suffix >= :itemName and suffix < concat(:itemName, char(65535)))",
+                        "price between :minPrice and :maxPrice");
+    }
+
+    private static String priceHistogramSql(ItemSearchShape shape) {
+        return ItemStatsRowMappers.PRICE_GROUP_SELECT
+                + shape.where("id in (select item_id from item_name_suffix"
+                                + " where suffix >= :itemName and suffix < concat(:itemName, char(65535)))",
+                        "price between :minPrice and :maxPrice", "price is not null")
+                + " group by floor(cast(price as double) / :bucketSize)"; // 음수 가격도 아래 구간으로 (V1 참고)
+    }
+
+    // 가격순, 이름순은 (price, id), (item_name, id) 인덱스 순서 그대로 읽다가 limit에서 멈춤
+    private static String sortCondition(ItemSort sort) {
+        switch (sort) {
+            case PRICE:
+                return "price is not null";
+            case NAME:
+                return "item_name is not null";
+            default:
+                return "id > :lastId";
         }
+    }
 
-        log.info("sql={}", sql);
-        return template.query(sql, param, itemRowMapper());
+    private static String orderBy(ItemSort sort) {
+        switch (sort) {
+            case PRICE:
+                return " order by price, id";
+            case NAME:
+                return " order by item_name, id";
+            default:
+                return " order by id";
+        }
     }
 
     private RowMapper<Item> itemRowMapper() {
-        return BeanPropertyRowMapper.newInstance(Item.class); // cameCase 자동 변환 지원
+        // BeanPropertyRowMapper.newInstance(Item.class) - cameCase 자동 변환 지원, 대신 매번 리플렉션으로 프로퍼티 찾음
+        return ItemRowMapper.INSTANCE;
     }
 }
 /*
@@ -0,0 +1,52 @@
+package hello.itemservice.repository.jpa;
+
+import hello.itemservice.domain.Item;
+import hello.itemservice.domain.ItemNameSuffix;
+import hello.itemservice.repository.ItemNameSuffixes;
+
+import javax.persistence.EntityManager;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * JPA 저장소의 item_name_suffix 유지 - Item을 저장, 수정한 같은 영속성 컨텍스트에서 호출
+ * - persist는 id가 정해진 뒤에 (시퀀스 id라 em.persist(item) 직후), insert는 flush 때 Item 다음에 batch로
+ * - delete는 item_name_suffix의 외래 키 on delete cascade로 처리
+ */
+public final class ItemNameSuffixEntities {
+
+    private static final String FIND_JPQL = "select s from ItemNameSuffix s where s.itemId = :itemId";
+
+    private ItemNameSuffixEntities() {
+    }
+
+    public static void persist(EntityManager em, Item item) {
+        for (String suffix : ItemNameSuffixes.of(item.getItemName())) {
+            em.persist(new ItemNameSuffix(suffix, item.getId()));
+        }
+    }
+
+    /**
+     * 이름이 바뀐 경우만 - 지금 있는 행과 비교해서 없어진 접미사만 remove, 새 접미사만 persist
+     * (flush는 insert를 delete보다 먼저 실행해서, 같은 키를 지웠다가 다시 넣으면 primary key 위반)
+     */
+    public static void rename(EntityManager em, Long itemId, String oldName, String newName) {
+        if (Objects.equals(oldName, newName)) {
+            return;
+        }
+        Set<String> suffixes = new HashSet<>(ItemNameSuffixes.of(newName));
+        List<ItemNameSuffix> rows = em.createQuery(FIND_JPQL, ItemNameSuffix.class)
+                .setParameter("itemId", itemId)
+                .getResultList();
+        for (ItemNameSuffix row : rows) {
+            if (!suffixes.remove(row.getSuffix())) {
+                em.remove(row);
+            }
+        }
+        for (String suffix : suffixes) {
+            em.persist(new ItemNameSuffix(suffix, itemId));
+        }
+    }
+}
@@ -1,91 +1,333 @@
 package hello.itemservice.repository.jpa;
 
 import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemIdChunks;
+import hello.itemservice.repository.ItemIdRange;
+import hello.itemservice.repository.ItemPriceBucket;
+import hello.itemservice.repository.ItemQuantities;
+import hello.itemservice.repository.ItemNameSuffixes;
 import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemRepositoryProperties;
 import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSearchShape;
+import hello.itemservice.repository.ItemSort;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
 import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.repository.ItemVersions;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Repository
 @Transactional // JPA의 모든 데이터 변경은 트랜잭션 안에서 이뤄짐, select가 아닌 update 코드들은 반드시 @Transactional이 필요함
+// 조회 메서드는 readOnly = true - JpaTransactionManager가 세션을 read-only(스냅샷 없음), FlushMode.MANUAL(커밋 때 dirty checking 없음)로,
+// JDBC 커넥션도 setReadOnly(true) - 이미 시작된 쓰기 트랜잭션에 참여하면 적용 안 되므로 검색 쿼리에는 read-only 힌트도 같이
 public class JpaItemRepository implements ItemRepository {
 
+    private static final String SELECT_SUMMARY = "select new hello.itemservice.repository.ItemSummary(i.id, i.itemName, i.price, i.quantity)";
+    private static final ItemSearchShape.Plans<String> FIND_ALL_JPQL = ItemSearchShape.plans((shape, sort) -> findAllJpql("select i", shape, sort));
+    private static final ItemSearchShape.Plans<String> FIND_SUMMARIES_JPQL = ItemSearchShape.plans((shape, sort) -> findAllJpql(SELECT_SUMMARY, shape, sort));
+    private static final ItemSearchShape.Plans<String> UPDATE_ALL_JPQL = ItemSearchShape.plans((shape, sort) -> updateAllJpql(shape));
+    private static final ItemSearchShape.Plans<String> STATS_JPQL = ItemSearchShape.plans((shape, sort) -> statsJpql(shape));
+    private static final ItemSearchShape.Plans<String> PRICE_HISTOGRAM_JPQL = ItemSearchShape.plans((shape, sort) -> priceHistogramJpql(shape));
+    // ItemBulkUpdateDto와 같은 계산 - price * pricePercent는 long으로, 재고는 음수가 되면 0
+    private static final String UPDATE_ALL_SET = "update Item i set i.price = i.price + cast(i.price as long) * :pricePercent / 100,"
+            + " i.quantity = case when i.quantity + :quantityDelta < 0 then 0 else i.quantity + :quantityDelta end,"
+            + " i.version = i.version + 1";
+    private static final String FIND_ALL_BY_ID_JPQL = "select i from Item i where i.id in :ids";
+    private static final String ADD_QUANTITY_JPQL = "update Item i set i.quantity = coalesce(i.quantity, 0) + :delta,"
+            + " i.version = i.version + 1 where i.id = :id and coalesce(i.quantity, 0) + :delta >= 0";
+
     private final EntityManager em; // JPA를 사용하는 repository에서는 반드시 EntityManager를 주입받아야 함
     // 이 EntityManager가 JPA의 핵심 부분 - 이것을 통해서 저장, 조회 등 이뤄짐
     // 원래는 DataSource 넣어주고, EntityManagerFactory 세팅 등 복잡한데, 스프링 부트가 알아서 해결해준다.
     // 스프링 부트 자동 설정은 JpaBaseConfiguration 참고
 
+    private final int batchSize;
+    private final int fetchSize;
+    private final int updateChunkSize;
+    private final int findChunkSize;
+
     public JpaItemRepository(EntityManager em) {
+        this(em, new ItemRepositoryProperties());
+    }
+
+    public JpaItemRepository(EntityManager em, ItemRepositoryProperties properties) {
         this.em = em;
+        this.batchSize = properties.getBatchSize();
+        this.fetchSize = properties.getFetchSize();
+        this.updateChunkSize = properties.getUpdateChunkSize();
+        this.findChunkSize = properties.getFindChunkSize();
     }
 
     @Override
     public Item save(Item item) {
         em.persist(item); // Java 컬렉션에 넣는 것과 크게 다를 게 없다.
+        ItemNameSuffixEntities.persist(em, item); // 시퀀스 id라 persist 직후 id가 있음
         return item;
     }
 
+    @Override
+    public List<Item> saveAll(Collection<Item> items) {
+        // batchSize 건마다 flush, clear - 영속성 컨텍스트(1차 캐시, 스냅샷)가 끝없이 커지는 것 방지
+        // clear() 하면 이 트랜잭션에서 이전에 조회한 엔티티도 준영속 상태가 됨
+        List<Item> saved = new ArrayList<>(items.size());
+        for (Item item : items) {
+            em.persist(item);
+            ItemNameSuffixEntities.persist(em, item);
+            saved.add(item);
+            if (saved.size() % batchSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        return saved;
+    }
+
     @Override
     public void update(Long itemId, ItemUpdateDto updateParam) {
-        Item findItem = em.find(Item.class, itemId);
-        findItem.setItemName(updateParam.getItemName());
-        findItem.setPrice(updateParam.getPrice());
-        findItem.setQuantity(updateParam.getQuantity());
+        Item findItem = em.find(Item.class, itemId); // 2차 캐시에 있으면 select 없이
+        String oldName = findItem != null ? findItem.getItemName() : null;
+        ItemVersions.apply(findItem, itemId, updateParam); // 버전을 지정했으면 읽은 버전과 비교 후 set
+        ItemNameSuffixEntities.rename(em, itemId, oldName, updateParam.getItemName());
         // em.persist(findItem); // 이게 아님
         // Java 컬렉션에 들어가 있는 객체의 필드 바꿀 때처럼, 필드만 바꾸면 됨
-        // 스냅샷 등으로 객체의 변경을 감지하고 Transaction이 커밋되는 시점에 update 쿼리를 만들어서 DB에 날림
+        // 스냅샷 등으로 객체의 변경을 감지하고 update 쿼리를 만들어서 DB에 날림 - where id = ? and version = ? (@Version)
+        // bulk update + clear와 달리 영속성 컨텍스트의 다른 엔티티, 2차 캐시의 다른 상품은 그대로
+        em.flush(); // 버전 +1, 충돌은 여기서 - 커밋까지 미루지 않음
+    }
+
+    @Override
+    public int updateAll(ItemSearchCond cond, ItemBulkUpdateDto updateParam) {
+        // updateChunkSize 행 구간마다 JPQL bulk update 한 번 - 엔티티를 읽지 않음, 영속성 컨텍스트를 거치지 않으므로 전에 flush, 후에 clear
+        // 한 트랜잭션 안이지만 행 락은 id 순서로 잡음
+        ItemSearchShape shape = ItemSearchShape.of(cond);
+        em.flush();
+        int updated = findIdRange().forEachChunk(updateChunkSize, this::findChunkEnd, (afterId, toId) -> {
+            Query query = updateAllQuery(UPDATE_ALL_JPQL.get(shape, ItemSort.ID), updateParam)
+                    .setParameter("afterId", afterId)
+                    .setParameter("toId", toId);
+            if (shape.hasName()) {
+                query.setParameter("itemName", cond.getItemName());
+                query.setParameter("itemNameTo", ItemNameSuffixes.upperBound(cond.getItemName()));
+            }
+            if (shape.hasPrice()) {
+                query.setParameter("minPrice", ItemSearchShape.minPriceOf(cond));
+                query.setParameter("maxPrice", ItemSearchShape.maxPriceOf(cond));
+            }
+            return query.executeUpdate();
+        });
+        em.clear();
+        return updated;
     }
 
     @Override
+    public int updateAllById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam) {
+        em.flush();
+        int updated = ItemIdRange.forEachChunk(itemIds, updateChunkSize,
+                ids -> updateAllQuery(UPDATE_ALL_SET + " where i.id in :ids", updateParam)
+                        .setParameter("ids", ids)
+                        .executeUpdate());
+        em.clear();
+        return updated;
+    }
+
+    @Override
+    public List<Long> addQuantities(Map<Long, Integer> deltas) {
+        em.flush();
+        List<Long> rejected = ItemQuantities.apply(deltas, (id, delta) -> em.createQuery(ADD_QUANTITY_JPQL)
+                .setParameter("id", id)
+                .setParameter("delta", delta)
+                .executeUpdate());
+        em.clear();
+        return rejected;
+    }
+
+    private Query updateAllQuery(String jpql, ItemBulkUpdateDto updateParam) {
+        return em.createQuery(jpql)
+                .setParameter("pricePercent", updateParam.getPricePercent())
+                .setParameter("quantityDelta", updateParam.getQuantityDelta());
+    }
+
+    private ItemIdRange findIdRange() {
+        return em.createQuery("select new hello.itemservice.repository.ItemIdRange(min(i.id), max(i.id)) from Item i",
+                ItemIdRange.class).getSingleResult();
+    }
+
+    private Long findChunkEnd(long afterId, int offset) {
+        return em.createQuery("select i.id from Item i where i.id > :afterId order by i.id", Long.class)
+                .setParameter("afterId", afterId)
+                .setFirstResult(offset)
+                .setMaxResults(1)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<Item> findById(Long id) {
         Item item = em.find(Item.class, id);
         return Optional.ofNullable(item);
     }
 
     @Override
-    public List<Item> findAll(ItemSearchCond cond) { // JPA의 단점 - 동적 쿼리에 약함
-        String jpql = "select i from Item i"; // from item이 아니라 from Item임
-        // JPQL 문법은 SQL과 거의 비슷한데, 테이블을 대상으로 하는 것이 아닌 엔티티를 대상으로 한다고 생각하면 됨
+    @Transactional(readOnly = true)
+    public List<Item> findAllById(Collection<Long> ids) {
+        // in :ids는 목록 크기만큼 펼쳐짐 - 채운 건수(1, 2, 4, ...)마다 쿼리 플랜 하나
+        return ItemIdChunks.findAll(ids, findChunkSize, chunk -> em.createQuery(FIND_ALL_BY_ID_JPQL, Item.class)
+                .setParameter("ids", chunk)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultList());
+    }
 
-        Integer maxPrice = cond.getMaxPrice();
-        String itemName = cond.getItemName();
+    @Override
+    @Transactional(readOnly = true)
+    public List<Item> findAll(ItemSearchCond cond) {
+        return findAllQuery(cond, FIND_ALL_JPQL, Item.class).getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemSummary> findSummaries(ItemSearchCond cond) {
+        // select new - 필요한 컬럼만, 엔티티를 만들지 않으므로 영속성 컨텍스트에 안 올라감
+        return findAllQuery(cond, FIND_SUMMARIES_JPQL, ItemSummary.class).getResultList();
+    }
 
-        if (StringUtils.hasText(itemName) || maxPrice != null) {
-            jpql += " where"; // 공백 유의
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(ItemSearchCond cond, Consumer<Item> action) {
+        TypedQuery<Item> query = findAllQuery(cond, FIND_ALL_JPQL, Item.class);
+        query.setHint(QueryHints.HINT_FETCH_SIZE, fetchSize);
+        // getResultStream() - Hibernate는 forward-only ScrollableResults로 한 행씩 읽음
+        try (Stream<Item> items = query.getResultStream()) {
+            items.forEach(item -> {
+                action.accept(item);
+                em.detach(item); // 영속성 컨텍스트에 계속 쌓이지 않게
+            });
         }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ItemStats findStats(ItemSearchCond cond) {
+        // select new - 엔티티를 만들지 않고 집계 결과 한 행만
+        ItemSearchShape shape = ItemSearchShape.of(cond);
+        return setFilter(em.createQuery(STATS_JPQL.get(shape, ItemSort.ID), ItemStats.class), shape, cond)
+                .getSingleResult();
+    }
 
-        boolean andFlag = false;
-        if (StringUtils.hasText(itemName)) {
-            jpql += " i.itemName like concat('%', :itemName, '%')"; // 이름 기반 파라미터 사용 가능
-            andFlag = true;
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize) {
+        ItemPriceBucket.checkBucketSize(bucketSize);
+        ItemSearchShape shape = ItemSearchShape.of(cond);
+        TypedQuery<ItemPriceBucket> query = em.createQuery(PRICE_HISTOGRAM_JPQL.get(shape, ItemSort.ID), ItemPriceBucket.class);
+        return ItemPriceBucket.ofGroups(setFilter(query, shape, cond)
+                .setParameter("bucketSize", bucketSize)
+                .getResultList(), bucketSize);
+    }
+
+    // 검색 조건(이름, 가격 범위)만 - JPQL에 없는 파라미터는 바인딩하면 예외
+    private static <T> TypedQuery<T> setFilter(TypedQuery<T> query, ItemSearchShape shape, ItemSearchCond cond) {
+        if (shape.hasName()) {
+            query.setParameter("itemName", cond.getItemName());
+            query.setParameter("itemNameTo", ItemNameSuffixes.upperBound(cond.getItemName()));
+        }
+        if (shape.hasPrice()) {
+            query.setParameter("minPrice", ItemSearchShape.minPriceOf(cond));
+            query.setParameter("maxPrice", ItemSearchShape.maxPriceOf(cond));
         }
+        return query;
+    }
 
-        if (maxPrice != null) {
-            if (andFlag) {
-                jpql += " and";
-            }
-            jpql += " i.price <= :maxPrice";
+    private <T> TypedQuery<T> findAllQuery(ItemSearchCond cond, ItemSearchShape.Plans<String> jpql, Class<T> resultClass) {
+        ItemSearchShape shape = ItemSearchShape.of(cond);
+        ItemSort sort = ItemSort.of(cond);
+        // JPQL 문자열이 모양 × 정렬별로 항상 같으므로 Hibernate의 쿼리 플랜 캐시(QueryPlanCache)를 그대로 탐
+        TypedQuery<T> query = em.createQuery(jpql.get(shape, sort), resultClass);
+        query.setHint(QueryHints.HINT_READONLY, true); // 스냅샷 안 만듦 - 이미 영속성 컨텍스트에 있던 엔티티는 그대로
+        setFilter(query, shape, cond);
+        if (sort == ItemSort.ID) {
+            query.setParameter("lastId", ItemSearchShape.lastIdOf(cond)); // JPQL에 없는 파라미터는 바인딩하면 예외
+        }
+        if (cond.getLimit() != null) {
+            query.setMaxResults(cond.getLimit()); // limit ?
         }
+        return query;
+    }
 
-        log.info("jpql={}", jpql);
+    private static String findAllJpql(String select, ItemSearchShape shape, ItemSort sort) {
+        // from item이 아니라 from Item임 - 테이블이 아니라 엔티티 대상
+        return select + " from Item i"
+                // like '%x%' 대신 접미사 범위 조회 - item_name_suffix 인덱스 사용
+                + shape.where("i.id in (select s.itemId from ItemNameSuffix s"
+                                + " where s.suffix >= :itemName and s.suffix < :itemNameTo)",
+                        "i.price between :minPrice and :maxPrice", sortCondition(sort))
+                + orderBy(sort);
+    }
 
-        TypedQuery<Item> query = em.createQuery(jpql, Item.class);
-        if (StringUtils.hasText(itemName)) {
-            query.setParameter("itemName", itemName);
-        }
-        if (maxPrice != null) {
-            query.setParameter("maxPrice", maxPrice);
+    // 정렬은 안 씀 - id 구간 (afterId, toId]
+    private static String updateAllJpql(ItemSearchShape shape) {
+        return UPDATE_ALL_SET
+                + shape.where("i.id in (select s.itemId from ItemNameSuffix s"
+                                + " where s.suffix >= :itemName and s.suffix < :itemNameTo)",
+                        "i.price between :minPrice and :maxPrice", "i.id > :afterId and i.id <= :toId");
+    }
+
+    // 정렬, 페이징 없음 - 합계는 long으로 (int 곱셈 넘침 방지)
+    private static String statsJpql(ItemSearchShape shape) {
+        return "select new hello.itemservice.repository.ItemStats(count(i), sum(i.quantity),"
+                + " sum(cast(i.price as long) * i.quantity), min(i.price), max(i.price)) from Item i"
+                + shape.where("i.id in (select s.itemId from ItemNameSuffix s"
+                                + " where s.suffix >= :itemName and s.suffix < :itemNameTo)",
+                        "i.price between :minPrice and :maxPrice");
+    }
+
+    // 구간 시작 가격은 min(price)에서 (ItemPriceBucket.ofGroups)
+    private static String priceHistogramJpql(ItemSearchShape shape) {
+        return "select new hello.itemservice.repository.ItemPriceBucket(min(i.price), count(i)) from Item i"
+                + shape.where("i.id in (select s.itemId from ItemNameSuffix s"
+                                + " where s.suffix >= :itemName and s.suffix < :itemNameTo)",
+                        "i.price between :minPrice and :maxPrice", "i.price is not null")
+                + " group by floor(cast(i.price as double) / :bucketSize)"; // 정수 나눗셈은 0 쪽으로 버림 - 음수 가격은 floor로
+    }
+
+    // 가격순, 이름순은 (price, id), (item_name, id) 인덱스 순서 그대로 읽다가 limit에서 멈춤
+    private static String sortCondition(ItemSort sort) {
+        switch (sort) {
+            case PRICE:
+                return "i.price is not null";
+            case NAME:
+                return "i.itemName is not null";
+            default:
+                return "i.id > :lastId";
         }
+    }
 
-        return query.getResultList();
+    private static String orderBy(ItemSort sort) {
+        switch (sort) {
+            case PRICE:
+                return " order by i.price, i.id";
+            case NAME:
+                return " order by i.itemName, i.id";
+            default:
+                return " order by i.id";
+        }
     }
 }
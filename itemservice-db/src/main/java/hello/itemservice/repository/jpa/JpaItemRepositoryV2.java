@@ -1,57 +1,237 @@
 package hello.itemservice.repository.jpa;
 
 import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemIdChunks;
+import hello.itemservice.repository.ItemIdRange;
+import hello.itemservice.repository.ItemPriceBucket;
+import hello.itemservice.repository.ItemQuantities;
+import hello.itemservice.repository.ItemNameSuffixes;
 import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemRepositoryProperties;
 import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSearchShape;
+import hello.itemservice.repository.ItemSort;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
 import hello.itemservice.repository.ItemUpdateDto;
-import lombok.RequiredArgsConstructor;
+import hello.itemservice.repository.ItemVersions;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
-@Transactional
-@RequiredArgsConstructor
+@Transactional // 조회 메서드는 readOnly = true (JpaItemRepository 참고), 검색 쿼리 메서드의 read-only 힌트는 SpringDataJpaItemRepository
 public class JpaItemRepositoryV2 implements ItemRepository {
 
+    private static final Map<ItemSort, Sort> SORTS = Map.of(
+            ItemSort.ID, Sort.by("id"),
+            ItemSort.PRICE, Sort.by("price", "id"),
+            ItemSort.NAME, Sort.by("itemName", "id"));
+
     private final SpringDataJpaItemRepository repository;
+    private final EntityManager em; // saveAll(~)의 clear(), streamAll(~)의 detach, item_name_suffix 유지 용도
+    private final int batchSize;
+    private final int updateChunkSize;
+    private final int findChunkSize;
+
+    public JpaItemRepositoryV2(SpringDataJpaItemRepository repository, EntityManager em,
+                               ItemRepositoryProperties properties) {
+        this.repository = repository;
+        this.em = em;
+        this.batchSize = properties.getBatchSize();
+        this.updateChunkSize = properties.getUpdateChunkSize();
+        this.findChunkSize = properties.getFindChunkSize();
+    }
 
     @Override
     public Item save(Item item) {
-        return repository.save(item); // CrudRepository에서 제공
+        Item saved = repository.save(item); // CrudRepository에서 제공
+        ItemNameSuffixEntities.persist(em, saved);
+        return saved;
+    }
+
+    @Override
+    public List<Item> saveAll(Collection<Item> items) {
+        List<Item> list = new ArrayList<>(items);
+        List<Item> saved = new ArrayList<>(list.size());
+        for (int from = 0; from < list.size(); from += batchSize) {
+            List<Item> chunk = repository.saveAll(list.subList(from, Math.min(from + batchSize, list.size())));
+            chunk.forEach(item -> ItemNameSuffixEntities.persist(em, item));
+            saved.addAll(chunk);
+            repository.flush(); // batchSize 건마다 flush, clear
+            em.clear();
+        }
+        return saved;
     }
 
     @Override
     public void update(Long itemId, ItemUpdateDto updateParam) {
-        Item findItem = repository.findById(itemId).orElseThrow();
-        findItem.setItemName(updateParam.getItemName());
-        findItem.setPrice(updateParam.getPrice());
-        findItem.setQuantity(updateParam.getQuantity()); // JPA에서는 참조하는 Item의 필드만 set하면 끝
+        Item findItem = repository.findById(itemId).orElse(null);
+        String oldName = findItem != null ? findItem.getItemName() : null;
+        ItemVersions.apply(findItem, itemId, updateParam); // JPA에서는 참조하는 Item의 필드만 set하면 끝 - 버전은 @Version으로
+        ItemNameSuffixEntities.rename(em, itemId, oldName, updateParam.getItemName());
+        repository.flush(); // 충돌은 여기서 (JpaItemRepository 참고)
+    }
+
+    @Override
+    public int updateAll(ItemSearchCond cond, ItemBulkUpdateDto updateParam) {
+        String itemName = StringUtils.hasText(cond.getItemName()) ? cond.getItemName() : null;
+        String itemNameTo = itemName != null ? ItemNameSuffixes.upperBound(itemName) : null;
+        // updateChunkSize 행 구간마다 @Modifying 쿼리 한 번 - 구간마다 flush, clear
+        return repository.findIdRange().forEachChunk(updateChunkSize,
+                (afterId, offset) -> DataAccessUtils.singleResult(repository.findIdsAfter(afterId, PageRequest.of(offset, 1))),
+                (afterId, toId) -> repository.updateItems(
+                        itemName, itemNameTo, cond.getMinPrice(), cond.getMaxPrice(), afterId, toId,
+                        updateParam.getPricePercent(), updateParam.getQuantityDelta()));
     }
 
     @Override
+    public int updateAllById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam) {
+        return ItemIdRange.forEachChunk(itemIds, updateChunkSize, ids -> repository.updateItemsById(
+                ids, updateParam.getPricePercent(), updateParam.getQuantityDelta()));
+    }
+
+    @Override
+    public List<Long> addQuantities(Map<Long, Integer> deltas) {
+        em.flush();
+        List<Long> rejected = ItemQuantities.apply(deltas, repository::addQuantity);
+        em.clear();
+        return rejected;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<Item> findById(Long id) {
         return repository.findById(id); // CrudRepository에서 제공, 반환 타입도 Optional<T>
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<Item> findAllById(Collection<Long> ids) {
+        return ItemIdChunks.findAll(ids, findChunkSize, repository::findAllById); // where id in (~) 한 번
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<Item> findAll(ItemSearchCond cond) {
         String itemName = cond.getItemName();
-        Integer maxPrice = cond.getMaxPrice();
+        ItemSort sort = ItemSort.of(cond);
+        // 가격순이면 가격 범위 조건이 항상 있는 것으로 - between MIN and MAX = price is not null
+        boolean priceFilter = cond.getMinPrice() != null || cond.getMaxPrice() != null || sort == ItemSort.PRICE;
+        Integer minPrice = ItemSearchShape.minPriceOf(cond);
+        Integer maxPrice = ItemSearchShape.maxPriceOf(cond);
+        Long lastId = lastIdOf(cond, sort);
+        Pageable page = pageOf(cond, sort);
 
         // 물론 실무에서는 QueryDSL로 동적쿼리 작성 // 조건이 한 두 개 정도밖에 없다면 이렇게 분기할 수도 있겠다.
-        if (StringUtils.hasText(itemName) && maxPrice != null) {
+        if (StringUtils.hasText(itemName) && priceFilter) {
             // return repository.findByItemNameLikeAndPriceLessThanEqual("%" + itemName + "%", maxPrice);
-            return repository.findItems("%" + itemName + "%", maxPrice); // %를 이런 식으로 넣어줘야 함
+            return repository.findItems(itemName, ItemNameSuffixes.upperBound(itemName), minPrice, maxPrice, lastId, page)
+                    .getContent();
         } else if (StringUtils.hasText(itemName)) {
-            return repository.findByItemNameLike("%" + itemName + "%");
-        } else if (maxPrice != null) {
-            return repository.findByPriceLessThanEqual(maxPrice);
+            return repository.findItemsByName(itemName, ItemNameSuffixes.upperBound(itemName), lastId, page).getContent();
+        }
+        return findAllWithoutName(sort, priceFilter, minPrice, maxPrice, lastId, page, Item.class);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemSummary> findSummaries(ItemSearchCond cond) {
+        // findAll(~)과 같은 분기 - 쿼리 메서드는 동적 프로젝션, @Query는 select new 쪽으로 (엔티티를 만들지 않음)
+        String itemName = cond.getItemName();
+        ItemSort sort = ItemSort.of(cond);
+        boolean priceFilter = cond.getMinPrice() != null || cond.getMaxPrice() != null || sort == ItemSort.PRICE;
+        Integer minPrice = ItemSearchShape.minPriceOf(cond);
+        Integer maxPrice = ItemSearchShape.maxPriceOf(cond);
+        Long lastId = lastIdOf(cond, sort);
+        Pageable page = pageOf(cond, sort);
+
+        if (StringUtils.hasText(itemName) && priceFilter) {
+            return repository.findSummaries(itemName, ItemNameSuffixes.upperBound(itemName), minPrice, maxPrice, lastId, page)
+                    .getContent();
+        } else if (StringUtils.hasText(itemName)) {
+            return repository.findSummariesByName(itemName, ItemNameSuffixes.upperBound(itemName), lastId, page)
+                    .getContent();
+        }
+        return findAllWithoutName(sort, priceFilter, minPrice, maxPrice, lastId, page, ItemSummary.class);
+    }
+
+    // 이름 조건 없음 - 쿼리 메서드, type은 Item(엔티티) 또는 ItemSummary(필요한 컬럼만)
+    private <T> List<T> findAllWithoutName(ItemSort sort, boolean priceFilter, Integer minPrice, Integer maxPrice,
+                                           Long lastId, Pageable page, Class<T> type) {
+        if (sort == ItemSort.NAME) {
+            return priceFilter
+                    ? repository.findByItemNameNotNullAndPriceBetween(minPrice, maxPrice, page, type).getContent()
+                    : repository.findByItemNameNotNull(page, type).getContent();
+        } else if (priceFilter) {
+            return repository.findByPriceBetweenAndIdGreaterThan(minPrice, maxPrice, lastId, page, type).getContent();
         } else {
-            return repository.findAll();
+            return repository.findByIdGreaterThan(lastId, page, type).getContent();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(ItemSearchCond cond, Consumer<Item> action) {
+        String itemName = StringUtils.hasText(cond.getItemName()) ? cond.getItemName() : null;
+        String itemNameTo = itemName != null ? ItemNameSuffixes.upperBound(itemName) : null;
+        ItemSort sort = ItemSort.of(cond);
+        String minName = sort == ItemSort.NAME ? "" : null;
+        Integer minPrice = cond.getMinPrice();
+        if (sort == ItemSort.PRICE) {
+            minPrice = ItemSearchShape.minPriceOf(cond); // 가격 없는 상품 제외
+        }
+
+        // fetch size는 hibernate.jdbc.fetch_size (SpringDataJpaConfig)
+        try (Stream<Item> items = repository.streamItems(itemName, itemNameTo, minName, minPrice, cond.getMaxPrice(),
+                lastIdOf(cond, sort), pageOf(cond, sort))) {
+            items.forEach(item -> {
+                action.accept(item);
+                em.detach(item); // 영속성 컨텍스트에 계속 쌓이지 않게
+            });
         }
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ItemStats findStats(ItemSearchCond cond) {
+        String itemName = StringUtils.hasText(cond.getItemName()) ? cond.getItemName() : null;
+        return repository.findStats(itemName, itemName != null ? ItemNameSuffixes.upperBound(itemName) : null,
+                cond.getMinPrice(), cond.getMaxPrice());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize) {
+        ItemPriceBucket.checkBucketSize(bucketSize);
+        String itemName = StringUtils.hasText(cond.getItemName()) ? cond.getItemName() : null;
+        return ItemPriceBucket.ofGroups(repository.findPriceGroups(itemName,
+                itemName != null ? ItemNameSuffixes.upperBound(itemName) : null,
+                cond.getMinPrice(), cond.getMaxPrice(), bucketSize), bucketSize);
+    }
+
+    // lastId는 id 순일 때만
+    private static Long lastIdOf(ItemSearchCond cond, ItemSort sort) {
+        return sort == ItemSort.ID ? ItemSearchShape.lastIdOf(cond) : ItemSearchShape.NO_CURSOR;
+    }
+
+    // Pageable.unpaged()는 Sort를 못 실으므로 limit이 없으면 최대 크기로 (Slice가 +1 해서 조회하므로 -1)
+    private static Pageable pageOf(ItemSearchCond cond, ItemSort sort) {
+        int limit = Math.min(ItemSearchShape.limitOf(cond), Integer.MAX_VALUE - 1);
+        return PageRequest.of(0, limit, SORTS.get(sort));
+    }
 }
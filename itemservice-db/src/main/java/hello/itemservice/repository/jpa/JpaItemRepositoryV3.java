@@ -1,56 +1,179 @@
 package hello.itemservice.repository.jpa;
 
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.MathExpressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
 import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemIdChunks;
+import hello.itemservice.repository.ItemIdRange;
+import hello.itemservice.repository.ItemQuantities;
 import hello.itemservice.domain.QItem;
+import hello.itemservice.repository.ItemNameSuffixes;
+import hello.itemservice.repository.ItemPriceBucket;
 import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemRepositoryProperties;
 import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSort;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
 import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.repository.ItemVersions;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static hello.itemservice.domain.QItem.*;
+import static hello.itemservice.domain.QItemNameSuffix.itemNameSuffix;
 
 @Repository
-@Transactional
+@Transactional // 조회 메서드는 readOnly = true (JpaItemRepository 참고)
 public class JpaItemRepositoryV3 implements ItemRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory query;
+    private final int batchSize;
+    private final int fetchSize;
+    private final int updateChunkSize;
+    private final int findChunkSize;
 
     public JpaItemRepositoryV3(EntityManager em) {
+        this(em, new ItemRepositoryProperties());
+    }
+
+    public JpaItemRepositoryV3(EntityManager em, ItemRepositoryProperties properties) {
         this.em = em;
         this.query = new JPAQueryFactory(em);
+        this.batchSize = properties.getBatchSize();
+        this.fetchSize = properties.getFetchSize();
+        this.updateChunkSize = properties.getUpdateChunkSize();
+        this.findChunkSize = properties.getFindChunkSize();
     }
 
     @Override
     public Item save(Item item) {
         em.persist(item);
+        ItemNameSuffixEntities.persist(em, item);
         return item;
     }
 
+    @Override
+    public List<Item> saveAll(Collection<Item> items) {
+        List<Item> saved = new ArrayList<>(items.size());
+        for (Item item : items) {
+            em.persist(item);
+            ItemNameSuffixEntities.persist(em, item);
+            saved.add(item);
+            if (saved.size() % batchSize == 0) { // batchSize 건마다 flush, clear
+                em.flush();
+                em.clear();
+            }
+        }
+        return saved;
+    }
+
     @Override
     public void update(Long itemId, ItemUpdateDto updateParam) {
+        // 변경 감지 - 버전은 @Version으로 (JpaItemRepository 참고)
         Item findItem = em.find(Item.class, itemId);
-        findItem.setItemName(updateParam.getItemName());
-        findItem.setPrice(updateParam.getPrice());
-        findItem.setQuantity(updateParam.getQuantity());
+        String oldName = findItem != null ? findItem.getItemName() : null;
+        ItemVersions.apply(findItem, itemId, updateParam);
+        ItemNameSuffixEntities.rename(em, itemId, oldName, updateParam.getItemName());
+        em.flush();
+    }
+
+    @Override
+    public int updateAll(ItemSearchCond cond, ItemBulkUpdateDto updateParam) {
+        // updateChunkSize 행 구간마다 update 한 번 - 엔티티를 읽지 않음, 전에 flush, 후에 clear (JpaItemRepository 참고)
+        em.flush();
+        ItemIdRange range = query.select(Projections.constructor(ItemIdRange.class, item.id.min(), item.id.max()))
+                .from(item)
+                .fetchOne();
+        int updated = range.forEachChunk(updateChunkSize, this::findChunkEnd, (afterId, toId) -> (int) updateAllClause(updateParam)
+                .where(containsItemName(cond.getItemName()), minPrice(cond.getMinPrice()), maxPrice(cond.getMaxPrice()),
+                        item.id.gt(afterId), item.id.loe(toId))
+                .execute());
+        em.clear();
+        return updated;
+    }
+
+    @Override
+    public int updateAllById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam) {
+        em.flush();
+        int updated = ItemIdRange.forEachChunk(itemIds, updateChunkSize,
+                ids -> (int) updateAllClause(updateParam).where(item.id.in(ids)).execute());
+        em.clear();
+        return updated;
+    }
+
+    @Override
+    public List<Long> addQuantities(Map<Long, Integer> deltas) {
+        em.flush();
+        List<Long> rejected = ItemQuantities.apply(deltas, (id, delta) -> (int) query.update(item)
+                .set(item.quantity, item.quantity.coalesce(0).add(delta))
+                .set(item.version, item.version.add(1L))
+                .where(item.id.eq(id), item.quantity.coalesce(0).add(delta).goe(0))
+                .execute());
+        em.clear();
+        return rejected;
+    }
+
+    // ItemBulkUpdateDto와 같은 계산 - price * pricePercent는 long으로, 재고는 음수가 되면 0
+    private JPAUpdateClause updateAllClause(ItemBulkUpdateDto updateParam) {
+        NumberExpression<Integer> quantity = item.quantity.add(updateParam.getQuantityDelta());
+        return query.update(item)
+                .set(item.price, item.price.add(item.price.castToNum(Long.class).multiply(updateParam.getPricePercent()).divide(100)))
+                .set(item.quantity, new CaseBuilder().when(quantity.lt(0)).then(0).otherwise(quantity))
+                .set(item.version, item.version.add(1L));
+    }
+
+    // afterId 다음 offset + 1 번째 id (ItemIdRange.ChunkEnd)
+    private Long findChunkEnd(long afterId, int offset) {
+        return query.select(item.id)
+                .from(item)
+                .where(item.id.gt(afterId))
+                .orderBy(item.id.asc())
+                .offset(offset)
+                .limit(1)
+                .fetchOne();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Item> findById(Long id) {
         Item item = em.find(Item.class, id);
         return Optional.ofNullable(item);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Item> findAllById(Collection<Long> ids) {
+        return ItemIdChunks.findAll(ids, findChunkSize, chunk -> query.selectFrom(item)
+                .where(item.id.in(chunk))
+                .setHint(QueryHints.HINT_READONLY, true)
+                .fetch());
+    }
+
     public List<Item> findAllOld(ItemSearchCond cond) {
         String itemName = cond.getItemName();
         Integer maxPrice = cond.getMaxPrice();
@@ -74,29 +197,133 @@ public class JpaItemRepositoryV3 implements ItemRepository {
     }
 
     @Override // findAllOld(~)에서 리팩토링 -
+    @Transactional(readOnly = true)
     public List<Item> findAll(ItemSearchCond cond) {
+        return findAllQuery(item, cond).fetch();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemSummary> findSummaries(ItemSearchCond cond) {
+        // Projections.constructor - 필요한 컬럼만, 엔티티를 만들지 않으므로 영속성 컨텍스트에 안 올라감
+        return findAllQuery(Projections.constructor(ItemSummary.class, item.id, item.itemName, item.price, item.quantity),
+                cond).fetch();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(ItemSearchCond cond, Consumer<Item> action) {
+        JPAQuery<Item> findQuery = findAllQuery(item, cond)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize);
+        // stream() - JPA getResultStream(), Hibernate는 forward-only 커서
+        try (Stream<Item> items = findQuery.stream()) {
+            items.forEach(item -> {
+                action.accept(item);
+                em.detach(item); // 영속성 컨텍스트에 계속 쌓이지 않게
+            });
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ItemStats findStats(ItemSearchCond cond) {
+        // Projections.constructor - 엔티티 없이 집계 결과 한 행, 합계는 long으로 (int 곱셈 넘침 방지)
+        return query.select(Projections.constructor(ItemStats.class,
+                        item.count(),
+                        item.quantity.longValue().sum(),
+                        item.price.longValue().multiply(item.quantity).sum(),
+                        item.price.min(),
+                        item.price.max()))
+                .from(item)
+                .where(containsItemName(cond.getItemName()), minPrice(cond.getMinPrice()), maxPrice(cond.getMaxPrice()))
+                .fetchOne();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize) {
+        ItemPriceBucket.checkBucketSize(bucketSize);
+        // 구간 시작 가격은 min(price)에서 (ItemPriceBucket.ofGroups)
+        List<ItemPriceBucket> groups = query.select(Projections.constructor(ItemPriceBucket.class,
+                        item.price.min(), item.count()))
+                .from(item)
+                .where(containsItemName(cond.getItemName()), minPrice(cond.getMinPrice()), maxPrice(cond.getMaxPrice()),
+                        item.price.isNotNull())
+                .groupBy(MathExpressions.floor(item.price.castToNum(Double.class).divide(bucketSize))) // 음수 가격도 아래 구간으로
+                .fetch();
+        return ItemPriceBucket.ofGroups(groups, bucketSize);
+    }
+
+    private <T> JPAQuery<T> findAllQuery(Expression<T> projection, ItemSearchCond cond) {
         String itemName = cond.getItemName();
-        Integer maxPrice = cond.getMaxPrice();
+        ItemSort sort = ItemSort.of(cond);
 
-        return query.select(item)
+        JPAQuery<T> findQuery = query.select(projection)
                 .from(item)
                 // .where(item.itemName.like("..").and(item.price.loe(1000))) // 동적 쿼리가 아니라면 이런 식으로 짤 수 있다.
                 // 이를 활용 - 동적인 파라미터를 받는 조건 메서드를 분리,
-                .where(likeItemName(itemName), maxPrice(maxPrice))
-                .fetch();
+                .where(containsItemName(itemName), minPrice(cond.getMinPrice()), maxPrice(cond.getMaxPrice()),
+                        sortKeyNotNull(sort), sort == ItemSort.ID ? afterId(cond.getLastId()) : null)
+                .orderBy(orderBy(sort)) // id 순이면 keyset 페이징, 가격순, 이름순은 상위 limit 건
+                .setHint(QueryHints.HINT_READONLY, true); // 스냅샷 안 만듦
+        if (cond.getLimit() != null) {
+            findQuery.limit(cond.getLimit());
+        }
+        return findQuery;
     }
 
-    private BooleanExpression likeItemName(String itemName) {
+    private BooleanExpression containsItemName(String itemName) {
         if (StringUtils.hasText(itemName)) {
-            return item.itemName.like("%" + itemName + "%");
+            // like '%x%' 대신 접미사 범위 조회 - item_name_suffix 인덱스 사용
+            return item.id.in(JPAExpressions.select(itemNameSuffix.itemId)
+                    .from(itemNameSuffix)
+                    .where(itemNameSuffix.suffix.goe(itemName),
+                            itemNameSuffix.suffix.lt(ItemNameSuffixes.upperBound(itemName))));
         }
         return null; // null이면 where 조건에서 무시됨
     }
 
+    private BooleanExpression minPrice(Integer minPrice) {
+        if (minPrice != null) {
+            return item.price.goe(minPrice);
+        }
+        return null;
+    }
+
     private BooleanExpression maxPrice(Integer maxPrice) {
         if (maxPrice != null) {
             return item.price.loe(maxPrice);
         }
         return null;
     }
+
+    private BooleanExpression afterId(Long lastId) {
+        if (lastId != null) {
+            return item.id.gt(lastId);
+        }
+        return null;
+    }
+
+    // 가격순, 이름순은 정렬 기준 값이 있는 상품만
+    private BooleanExpression sortKeyNotNull(ItemSort sort) {
+        switch (sort) {
+            case PRICE:
+                return item.price.isNotNull();
+            case NAME:
+                return item.itemName.isNotNull();
+            default:
+                return null;
+        }
+    }
+
+    private OrderSpecifier<?>[] orderBy(ItemSort sort) {
+        switch (sort) {
+            case PRICE:
+                return new OrderSpecifier<?>[]{item.price.asc(), item.id.asc()};
+            case NAME:
+                return new OrderSpecifier<?>[]{item.itemName.asc(), item.id.asc()};
+            default:
+                return new OrderSpecifier<?>[]{item.id.asc()};
+        }
+    }
 }
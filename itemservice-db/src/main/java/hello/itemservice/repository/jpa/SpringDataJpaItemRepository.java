@@ -1,23 +1,135 @@
 package hello.itemservice.repository.jpa;
 
 import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemIdRange;
+import hello.itemservice.repository.ItemPriceBucket;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+// 검색 메서드는 read-only 힌트 - 조회한 엔티티의 스냅샷을 만들지 않음 (이미 영속성 컨텍스트에 있던 엔티티는 그대로)
 public interface SpringDataJpaItemRepository extends JpaRepository<Item, Long> {
 
-    List<Item> findByItemNameLike(String itemName);
+    String NAME_SUFFIX_IDS = "select s.itemId from ItemNameSuffix s where s.suffix >= :itemName and s.suffix < :itemNameTo";
+    String FILTER = "(:itemName is null or i.id in (" + NAME_SUFFIX_IDS + "))"
+            + " and (:minPrice is null or i.price >= :minPrice) and (:maxPrice is null or i.price <= :maxPrice)";
+    String SELECT_SUMMARY = "select new hello.itemservice.repository.ItemSummary(i.id, i.itemName, i.price, i.quantity)";
+    String ITEMS_BY_NAME = " from Item i where i.id in (" + NAME_SUFFIX_IDS + ") and i.id > :lastId";
+    String ITEMS_BY_NAME_AND_PRICE = " from Item i where i.id in (" + NAME_SUFFIX_IDS + ")"
+            + " and i.price between :minPrice and :maxPrice and i.id > :lastId";
+    // ItemBulkUpdateDto와 같은 계산 - price * pricePercent는 long으로, 재고는 음수가 되면 0
+    String UPDATE_ITEMS = "update Item i set i.price = i.price + cast(i.price as long) * :pricePercent / 100,"
+            + " i.quantity = case when i.quantity + :quantityDelta < 0 then 0 else i.quantity + :quantityDelta end,"
+            + " i.version = i.version + 1";
 
-    List<Item> findByPriceLessThanEqual(Integer price);
+    // 정렬은 Pageable의 Sort로 (id 순, 가격순, 이름순) - 가격순, 이름순은 lastId 없이 NO_CURSOR(0)
+    // keyset 페이징 - id > lastId, 크기는 Pageable로 (Slice는 count 쿼리 없이 limit + 1로 다음 페이지 여부만 확인)
+    // type - 동적 프로젝션, Item이면 엔티티, ItemSummary면 생성자 파라미터 컬럼만 select (엔티티를 만들지 않음)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"))
+    <T> Slice<T> findByIdGreaterThan(Long lastId, Pageable pageable, Class<T> type);
+
+    // JpaRepository에서 제공하는 것을 다시 선언 - read-only 힌트만 추가
+    @Override
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"))
+    List<Item> findAllById(Iterable<Long> ids);
+
+    // 이름순 - 이름 없는 상품은 제외
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"))
+    <T> Slice<T> findByItemNameNotNull(Pageable pageable, Class<T> type);
+
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"))
+    <T> Slice<T> findByItemNameNotNullAndPriceBetween(Integer minPrice, Integer maxPrice, Pageable pageable, Class<T> type);
+
+    // 이름 부분 일치 - like '%x%' 대신 접미사 범위 조회 [itemName, itemNameTo), item_name_suffix 인덱스 사용
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"))
+    @Query("select i" + ITEMS_BY_NAME)
+    Slice<Item> findItemsByName(@Param("itemName") String itemName, @Param("itemNameTo") String itemNameTo,
+                                @Param("lastId") Long lastId, Pageable pageable);
+
+    // @Query는 동적 프로젝션이어도 select 절을 그대로 씀 - 목록 화면용은 select new로 따로
+    @Query(SELECT_SUMMARY + ITEMS_BY_NAME)
+    Slice<ItemSummary> findSummariesByName(@Param("itemName") String itemName, @Param("itemNameTo") String itemNameTo,
+                                           @Param("lastId") Long lastId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"))
+    <T> Slice<T> findByPriceBetweenAndIdGreaterThan(Integer minPrice, Integer maxPrice, Long lastId, Pageable pageable,
+                                                    Class<T> type);
+
+    // 검색 조건에 맞는 상품을 id 구간 (afterId, toId]에서 한 번에 수정 - 조건이 null이면 해당 조건 무시
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(UPDATE_ITEMS + " where " + FILTER + " and i.id > :afterId and i.id <= :toId")
+    int updateItems(@Param("itemName") String itemName, @Param("itemNameTo") String itemNameTo,
+                    @Param("minPrice") Integer minPrice, @Param("maxPrice") Integer maxPrice,
+                    @Param("afterId") Long afterId, @Param("toId") Long toId,
+                    @Param("pricePercent") int pricePercent, @Param("quantityDelta") int quantityDelta);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(UPDATE_ITEMS + " where i.id in :ids")
+    int updateItemsById(@Param("ids") Collection<Long> ids,
+                        @Param("pricePercent") int pricePercent, @Param("quantityDelta") int quantityDelta);
+
+    // 재고 증감, 결과가 음수면 건너뜀 - 바뀐 행 수, flush/clear는 여러 건을 다 보낸 뒤 호출하는 쪽에서 한 번
+    @Modifying
+    @Query("update Item i set i.quantity = coalesce(i.quantity, 0) + :delta, i.version = i.version + 1"
+            + " where i.id = :id and coalesce(i.quantity, 0) + :delta >= 0")
+    int addQuantity(@Param("id") Long id, @Param("delta") int delta);
+
+    @Query("select new hello.itemservice.repository.ItemIdRange(min(i.id), max(i.id)) from Item i")
+    ItemIdRange findIdRange();
+
+    // id > afterId를 id 순으로 - 구간 끝 조회는 PageRequest.of(offset, 1) (ItemIdRange.ChunkEnd)
+    @Query("select i.id from Item i where i.id > :afterId order by i.id")
+    List<Long> findIdsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    // 집계 - 엔티티 없이 결과 한 행, 조건이 null이면 해당 조건 무시
+    @Query("select new hello.itemservice.repository.ItemStats(count(i), sum(i.quantity),"
+            + " sum(cast(i.price as long) * i.quantity), min(i.price), max(i.price)) from Item i where " + FILTER)
+    ItemStats findStats(@Param("itemName") String itemName, @Param("itemNameTo") String itemNameTo,
+                        @Param("minPrice") Integer minPrice, @Param("maxPrice") Integer maxPrice);
+
+    // 구간 floor(price / bucketSize)마다 (최소 가격, 건수) - 구간 시작 가격은 ItemPriceBucket.ofGroups(~)
+    @Query("select new hello.itemservice.repository.ItemPriceBucket(min(i.price), count(i)) from Item i where " + FILTER
+            + " and i.price is not null group by floor(cast(i.price as double) / :bucketSize)")
+    List<ItemPriceBucket> findPriceGroups(@Param("itemName") String itemName, @Param("itemNameTo") String itemNameTo,
+                                          @Param("minPrice") Integer minPrice, @Param("maxPrice") Integer maxPrice,
+                                          @Param("bucketSize") int bucketSize);
 
     // 쿼리 메서드 - 너무 길다, 권장하지 않음(아래 메서드와 같은 기능 수행)
     List<Item> findByItemNameLikeAndPriceLessThanEqual(String itemName, Integer price);
 
     // JPQL 직접 작성
-    @Query("select i from Item i where i.itemName like :itemName and i.price <= :price")
-    List<Item> findItems(@Param("itemName") String itemName, @Param("price") Integer price);
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"))
+    @Query("select i" + ITEMS_BY_NAME_AND_PRICE)
+    Slice<Item> findItems(@Param("itemName") String itemName, @Param("itemNameTo") String itemNameTo,
+                          @Param("minPrice") Integer minPrice, @Param("maxPrice") Integer maxPrice,
+                          @Param("lastId") Long lastId, Pageable pageable);
+
+    @Query(SELECT_SUMMARY + ITEMS_BY_NAME_AND_PRICE)
+    Slice<ItemSummary> findSummaries(@Param("itemName") String itemName, @Param("itemNameTo") String itemNameTo,
+                                     @Param("minPrice") Integer minPrice, @Param("maxPrice") Integer maxPrice,
+                                     @Param("lastId") Long lastId, Pageable pageable);
+
+    // Stream 반환 - 트랜잭션 안에서 forward-only 커서로 읽음, 조건이 null이면 해당 조건 무시
+    // minName - 이름순일 때 ""로 넘겨서 이름 없는 상품 제외
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"))
+    @Query("select i from Item i where (:itemName is null or i.id in (" + NAME_SUFFIX_IDS + "))"
+            + " and (:minName is null or i.itemName >= :minName)"
+            + " and (:minPrice is null or i.price >= :minPrice) and (:maxPrice is null or i.price <= :maxPrice)"
+            + " and i.id > :lastId")
+    Stream<Item> streamItems(@Param("itemName") String itemName, @Param("itemNameTo") String itemNameTo,
+                             @Param("minName") String minName,
+                             @Param("minPrice") Integer minPrice, @Param("maxPrice") Integer maxPrice,
+                             @Param("lastId") Long lastId, Pageable pageable);
 
 }
@@ -0,0 +1,543 @@
+package hello.itemservice.repository.memory;
+
+import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemIdChunks;
+import hello.itemservice.repository.ItemPriceBucket;
+import hello.itemservice.repository.ItemQuantities;
+import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSearchShape;
+import hello.itemservice.repository.ItemSort;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
+import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.repository.ItemVersions;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * 컬럼 기반(struct-of-arrays) 메모리 저장소
+ * - Item 객체 대신 long[], int[] 배열과 UTF-8 이름 arena에 보관
+ * - update는 쓰기 락 안에서 버전 비교 후 덮어씀 (compare-and-set)
+ * - id는 1부터 순서대로 발급, row = id - 1
+ * - findAll(~)은 기본형 배열을 훑고 조건에 맞는 row만 Item으로 만듦, 이름 조건은 접미사 인덱스(NameSuffixIndex)로 row를 바로 찾음
+ * - 가격순, 이름순은 heap(TopItems)으로 상위 limit 건
+ */
+@Repository
+public class MemoryColumnarItemRepository implements ItemRepository {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int STREAM_CHUNK = 256;
+
+    // flags 비트 - null 값 표시
+    private static final byte NAME_NULL = 1;
+    private static final byte PRICE_NULL = 1 << 1;
+    private static final byte QUANTITY_NULL = 1 << 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int size;
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private int[] prices = new int[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+    private int[] nameOffsets = new int[INITIAL_CAPACITY];
+    private int[] nameLengths = new int[INITIAL_CAPACITY];
+
+    private final NameSuffixIndex nameIndex = new NameSuffixIndex();
+
+    private byte[] nameArena = new byte[INITIAL_CAPACITY * 8];
+    private int arenaSize;
+    private int arenaGarbage; // update로 버려진 이름 바이트 수
+
+    @Override
+    public Item save(Item item) {
+        lock.writeLock().lock();
+        try {
+            return append(item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Item> saveAll(Collection<Item> items) {
+        lock.writeLock().lock(); // 락은 한 번만
+        try {
+            ensureCapacity(size + items.size());
+            List<Item> saved = new ArrayList<>(items.size());
+            for (Item item : items) {
+                saved.add(append(item));
+            }
+            return saved;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void update(Long itemId, ItemUpdateDto updateParam) {
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(itemId);
+            if (row < 0) {
+                throw new NoSuchElementException("No value present");
+            }
+            if (!ItemVersions.matches(versions[row], updateParam)) {
+                throw ItemVersions.conflict(itemId, updateParam);
+            }
+            versions[row]++;
+            nameIndex.remove(row, nameOf(row));
+            write(row, updateParam.getItemName(), updateParam.getPrice(), updateParam.getQuantity());
+            nameIndex.add(row, updateParam.getItemName());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateAll(ItemSearchCond cond, ItemBulkUpdateDto updateParam) {
+        String itemName = nameTerm(cond);
+        boolean priceFilter = cond.getMinPrice() != null || cond.getMaxPrice() != null;
+        int minValue = ItemSearchShape.minPriceOf(cond);
+        int maxValue = ItemSearchShape.maxPriceOf(cond);
+
+        lock.writeLock().lock();
+        try {
+            // 컬럼 배열을 row 순서(= id 순서)로 그대로 고쳐 씀 - 이름은 안 바뀌므로 접미사 인덱스도 그대로
+            PrimitiveIterator.OfInt rows = itemName != null ? nameIndex.rows(itemName, 0) : IntStream.range(0, size).iterator();
+            IntStream.Builder targets = IntStream.builder();
+            while (rows.hasNext()) {
+                int row = rows.nextInt();
+                if (priceFilter && !priceIn(row, minValue, maxValue)) {
+                    continue;
+                }
+                checkAdjust(row, updateParam);
+                targets.add(row);
+            }
+            return adjustAll(targets.build().toArray(), updateParam);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateAllById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam) {
+        lock.writeLock().lock();
+        try {
+            IntStream.Builder targets = IntStream.builder();
+            for (Long id : new TreeSet<>(itemIds)) {
+                int row = rowOf(id);
+                if (row >= 0) {
+                    checkAdjust(row, updateParam);
+                    targets.add(row);
+                }
+            }
+            return adjustAll(targets.build().toArray(), updateParam);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Long> addQuantities(Map<Long, Integer> deltas) {
+        lock.writeLock().lock();
+        try {
+            List<Long> rejected = new ArrayList<>();
+            for (Map.Entry<Long, Integer> delta : ItemQuantities.ordered(deltas)) {
+                int row = rowOf(delta.getKey());
+                Integer quantity = row >= 0 ? ItemQuantities.add(quantityOf(row), delta.getValue()) : null;
+                if (quantity == null) {
+                    rejected.add(delta.getKey());
+                    continue;
+                }
+                quantities[row] = quantity;
+                flags[row] &= ~QUANTITY_NULL;
+                versions[row]++;
+            }
+            return rejected;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public ItemStats findStats(ItemSearchCond cond) {
+        ItemStats stats = new ItemStats();
+        forEachMatching(cond, row -> stats.add(priceOf(row), quantityOf(row)));
+        return stats;
+    }
+
+    @Override
+    public List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize) {
+        ItemPriceBucket.checkBucketSize(bucketSize);
+        Map<Integer, Long> counts = new TreeMap<>();
+        forEachMatching(cond, row -> {
+            if ((flags[row] & PRICE_NULL) == 0) {
+                counts.merge(ItemPriceBucket.fromPriceOf(prices[row], bucketSize), 1L, Long::sum);
+            }
+        });
+        return ItemPriceBucket.ofCounts(counts);
+    }
+
+    @Override
+    public Optional<Item> findById(Long id) {
+        lock.readLock().lock();
+        try {
+            int row = rowOf(id);
+            return row < 0 ? Optional.empty() : Optional.of(toItem(row));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Item> findAllById(Collection<Long> ids) {
+        List<Long> sorted = ItemIdChunks.sorted(ids);
+        lock.readLock().lock(); // 한 번만 잡고 전부
+        try {
+            List<Item> result = new ArrayList<>(sorted.size());
+            for (Long id : sorted) {
+                int row = rowOf(id);
+                if (row >= 0) {
+                    result.add(toItem(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Item> findAll(ItemSearchCond cond) {
+        String itemName = nameTerm(cond);
+        int limit = cond.getLimit() != null ? cond.getLimit() : Integer.MAX_VALUE;
+        ItemSort sort = ItemSort.of(cond);
+
+        lock.readLock().lock();
+        try {
+            if (sort != ItemSort.ID) {
+                return top(itemName, cond.getMinPrice(), cond.getMaxPrice(), sort, limit);
+            }
+            List<Item> result = new ArrayList<>();
+            scan(startRow(cond), itemName, cond.getMinPrice(), cond.getMaxPrice(), limit, result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ItemSummary> findSummaries(ItemSearchCond cond) {
+        return ItemSummary.listOf(findAll(cond));
+    }
+
+    @Override
+    public void streamAll(ItemSearchCond cond, Consumer<Item> action) {
+        String itemName = nameTerm(cond);
+        long remaining = cond.getLimit() != null ? cond.getLimit() : Long.MAX_VALUE;
+        ItemSort sort = ItemSort.of(cond);
+
+        if (sort != ItemSort.ID) {
+            // 가격순, 이름순은 상위 limit 건을 한 번에 모은 뒤 락 밖에서 넘김
+            List<Item> items;
+            lock.readLock().lock();
+            try {
+                items = top(itemName, cond.getMinPrice(), cond.getMaxPrice(), sort, remaining);
+            } finally {
+                lock.readLock().unlock();
+            }
+            items.forEach(action);
+            return;
+        }
+
+        // STREAM_CHUNK 건씩 읽기 락 안에서 모으고, action은 락 밖에서 - action이 느리거나 쓰기를 해도 막히지 않게
+        List<Item> chunk = new ArrayList<>(STREAM_CHUNK);
+        int row = startRow(cond);
+        while (remaining > 0) {
+            int max = (int) Math.min(STREAM_CHUNK, remaining);
+            chunk.clear();
+            lock.readLock().lock();
+            try {
+                row = scan(row, itemName, cond.getMinPrice(), cond.getMaxPrice(), max, chunk);
+            } finally {
+                lock.readLock().unlock();
+            }
+            chunk.forEach(action);
+            if (chunk.size() < max) {
+                return; // 끝까지 읽음
+            }
+            remaining -= chunk.size();
+        }
+    }
+
+    public void clearStore() {
+        lock.writeLock().lock();
+        try {
+            size = 0;
+            arenaSize = 0;
+            arenaGarbage = 0;
+            nameIndex.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * fromRow부터 조건에 맞는 row를 최대 max 건 out에 담고, 다음에 볼 row를 돌려줌 - 읽기 락 안에서 호출
+     * - 이름 조건이 있으면 접미사 인덱스가 돌려주는 row만, 없으면 배열을 차례로
+     */
+    private int scan(int fromRow, String itemName, Integer minPrice, Integer maxPrice, int max, List<Item> out) {
+        boolean priceFilter = minPrice != null || maxPrice != null;
+        int minValue = minPrice != null ? minPrice : Integer.MIN_VALUE;
+        int maxValue = maxPrice != null ? maxPrice : Integer.MAX_VALUE;
+        int found = 0;
+        if (itemName != null) {
+            PrimitiveIterator.OfInt rows = nameIndex.rows(itemName, fromRow);
+            while (found < max && rows.hasNext()) {
+                int row = rows.nextInt();
+                if (priceFilter && !priceIn(row, minValue, maxValue)) {
+                    continue;
+                }
+                out.add(toItem(row));
+                if (++found == max) {
+                    return row + 1;
+                }
+            }
+            return size;
+        }
+        int row = Math.min(fromRow, size);
+        for (; row < size && found < max; row++) {
+            if (priceFilter && !priceIn(row, minValue, maxValue)) {
+                continue;
+            }
+            out.add(toItem(row));
+            found++;
+        }
+        return row;
+    }
+
+    /**
+     * 가격순, 이름순 - 조건에 맞는 row를 heap에 넣어 상위 limit 건만, 읽기 락 안에서 호출
+     * - 정렬 기준 값이 없는(null) row는 제외
+     */
+    private List<Item> top(String itemName, Integer minPrice, Integer maxPrice, ItemSort sort, long limit) {
+        boolean priceFilter = minPrice != null || maxPrice != null;
+        int minValue = minPrice != null ? minPrice : Integer.MIN_VALUE;
+        int maxValue = maxPrice != null ? maxPrice : Integer.MAX_VALUE;
+        byte keyNull = sort == ItemSort.PRICE ? PRICE_NULL : NAME_NULL;
+
+        TopItems top = new TopItems(sort.order(), limit);
+        PrimitiveIterator.OfInt rows = itemName != null ? nameIndex.rows(itemName, 0) : IntStream.range(0, size).iterator();
+        while (rows.hasNext()) {
+            int row = rows.nextInt();
+            if ((flags[row] & keyNull) != 0 || (priceFilter && !priceIn(row, minValue, maxValue))) {
+                continue;
+            }
+            top.offer(toItem(row));
+        }
+        return top.toList();
+    }
+
+    private boolean priceIn(int row, int minValue, int maxValue) {
+        return (flags[row] & PRICE_NULL) == 0 && prices[row] >= minValue && prices[row] <= maxValue;
+    }
+
+    // 집계용 - 이름, 가격 조건에 맞는 row를 순서대로 (Item 객체는 안 만듦, 정렬, 페이징 없음)
+    private void forEachMatching(ItemSearchCond cond, IntConsumer action) {
+        String itemName = nameTerm(cond);
+        boolean priceFilter = cond.getMinPrice() != null || cond.getMaxPrice() != null;
+        int minValue = ItemSearchShape.minPriceOf(cond);
+        int maxValue = ItemSearchShape.maxPriceOf(cond);
+
+        lock.readLock().lock();
+        try {
+            PrimitiveIterator.OfInt rows = itemName != null ? nameIndex.rows(itemName, 0) : IntStream.range(0, size).iterator();
+            while (rows.hasNext()) {
+                int row = rows.nextInt();
+                if (!priceFilter || priceIn(row, minValue, maxValue)) {
+                    action.accept(row);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String nameTerm(ItemSearchCond cond) {
+        return StringUtils.hasText(cond.getItemName()) ? cond.getItemName() : null;
+    }
+
+    // row = id - 1 이므로 lastId 다음 row부터 바로 시작
+    private static int startRow(ItemSearchCond cond) {
+        Long lastId = cond.getLastId();
+        return lastId == null || lastId < 0 ? 0 : (int) Math.min(lastId, Integer.MAX_VALUE);
+    }
+
+    private Item append(Item item) {
+        ensureCapacity(size + 1);
+        int row = size++;
+        ids[row] = row + 1L;
+        versions[row] = ItemVersions.INITIAL;
+        flags[row] = NAME_NULL; // 새 row는 기존 이름 없음
+        nameLengths[row] = 0;
+        write(row, item.getItemName(), item.getPrice(), item.getQuantity());
+        nameIndex.add(row, item.getItemName());
+        item.setId(ids[row]);
+        item.setVersion(versions[row]);
+        return item;
+    }
+
+    private int rowOf(Long id) {
+        if (id == null || id < 1 || id > size) {
+            return -1;
+        }
+        return (int) (id - 1);
+    }
+
+    private void write(int row, String itemName, Integer price, Integer quantity) {
+        byte flag = 0;
+        if (price == null) {
+            flag |= PRICE_NULL;
+        } else {
+            prices[row] = price;
+        }
+        if (quantity == null) {
+            flag |= QUANTITY_NULL;
+        } else {
+            quantities[row] = quantity;
+        }
+        if (itemName == null) {
+            flag |= NAME_NULL;
+            if ((flags[row] & NAME_NULL) == 0) {
+                releaseName(row);
+            }
+        } else {
+            writeName(row, itemName.getBytes(StandardCharsets.UTF_8));
+        }
+        flags[row] = flag;
+    }
+
+    // 쓰기 전에 대상 행 전부 확인 - 범위를 넘는 행이 있으면 ArithmeticException, 한 행도 바뀌지 않음
+    private void checkAdjust(int row, ItemBulkUpdateDto updateParam) {
+        if ((flags[row] & PRICE_NULL) == 0) {
+            updateParam.applyToPrice(prices[row]);
+        }
+        if ((flags[row] & QUANTITY_NULL) == 0) {
+            updateParam.applyToQuantity(quantities[row]);
+        }
+    }
+
+    // 가격, 재고만 - ItemBulkUpdateDto.applyToPrice(~), applyToQuantity(~), 쓰기 락 안에서 checkAdjust(~) 다음에
+    private int adjustAll(int[] rows, ItemBulkUpdateDto updateParam) {
+        for (int row : rows) {
+            if ((flags[row] & PRICE_NULL) == 0) {
+                prices[row] = updateParam.applyToPrice(prices[row]);
+            }
+            if ((flags[row] & QUANTITY_NULL) == 0) {
+                quantities[row] = updateParam.applyToQuantity(quantities[row]);
+            }
+            versions[row]++;
+        }
+        return rows.length;
+    }
+
+    private Integer priceOf(int row) {
+        return (flags[row] & PRICE_NULL) != 0 ? null : prices[row];
+    }
+
+    private Integer quantityOf(int row) {
+        return (flags[row] & QUANTITY_NULL) != 0 ? null : quantities[row];
+    }
+
+    private void writeName(int row, byte[] name) {
+        boolean hasName = (flags[row] & NAME_NULL) == 0;
+        if (hasName && name.length <= nameLengths[row]) {
+            // 기존 자리에 덮어쓰기
+            System.arraycopy(name, 0, nameArena, nameOffsets[row], name.length);
+            arenaGarbage += nameLengths[row] - name.length;
+            nameLengths[row] = name.length;
+            return;
+        }
+        if (hasName) {
+            releaseName(row);
+        }
+        if (arenaGarbage > arenaSize / 2) {
+            compactArena();
+        }
+        ensureArenaCapacity(arenaSize + name.length);
+        System.arraycopy(name, 0, nameArena, arenaSize, name.length);
+        nameOffsets[row] = arenaSize;
+        nameLengths[row] = name.length;
+        arenaSize += name.length;
+    }
+
+    private void releaseName(int row) {
+        arenaGarbage += nameLengths[row];
+        nameLengths[row] = 0;
+    }
+
+    /**
+     * 버려진 이름 바이트가 절반을 넘으면 살아있는 이름만 앞으로 당겨서 다시 채움
+     */
+    private void compactArena() {
+        byte[] compacted = new byte[Math.max(nameArena.length, INITIAL_CAPACITY)];
+        int offset = 0;
+        for (int row = 0; row < size; row++) {
+            int length = nameLengths[row];
+            System.arraycopy(nameArena, nameOffsets[row], compacted, offset, length);
+            nameOffsets[row] = offset;
+            offset += length;
+        }
+        nameArena = compacted;
+        arenaSize = offset;
+        arenaGarbage = 0;
+    }
+
+    private Item toItem(int row) {
+        byte flag = flags[row];
+        Item item = new Item();
+        item.setId(ids[row]);
+        item.setItemName(nameOf(row));
+        item.setPrice((flag & PRICE_NULL) != 0 ? null : prices[row]);
+        item.setQuantity(quantityOf(row));
+        item.setVersion(versions[row]);
+        return item;
+    }
+
+    private String nameOf(int row) {
+        return (flags[row] & NAME_NULL) != 0 ? null
+                : new String(nameArena, nameOffsets[row], nameLengths[row], StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        versions = Arrays.copyOf(versions, newCapacity);
+        prices = Arrays.copyOf(prices, newCapacity);
+        quantities = Arrays.copyOf(quantities, newCapacity);
+        flags = Arrays.copyOf(flags, newCapacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, newCapacity);
+        nameLengths = Arrays.copyOf(nameLengths, newCapacity);
+    }
+
+    private void ensureArenaCapacity(int capacity) {
+        if (capacity > nameArena.length) {
+            nameArena = Arrays.copyOf(nameArena, Math.max(capacity, nameArena.length * 2));
+        }
+    }
+}
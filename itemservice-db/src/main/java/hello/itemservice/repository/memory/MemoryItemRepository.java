@@ -1,34 +1,172 @@
 package hello.itemservice.repository.memory;
 
 import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemIdChunks;
+import hello.itemservice.repository.ItemPriceBucket;
+import hello.itemservice.repository.ItemQuantities;
 import hello.itemservice.repository.ItemRepository;
 import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSearchShape;
+import hello.itemservice.repository.ItemSort;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
 import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.repository.ItemVersions;
 import org.springframework.stereotype.Repository;
-import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+/**
+ * 동시성 고려한 메모리 저장소
+ * - 조회는 락 없이, 쓰기(save, update)는 id 기준 lock striping
+ * - update는 락 안에서 버전 비교 후 새 객체로 교체 - 같은 상품 동시 수정은 하나만 성공 (compare-and-set)
+ * - 가격 인덱스(가격 범위, 가격순), n-gram 인덱스(itemName 부분 일치)로 전체 스캔 회피
+ */
 @Repository
 public class MemoryItemRepository implements ItemRepository {
 
-    private static final Map<Long, Item> store = new HashMap<>(); //static
-    private static long sequence = 0L; //static
+    private static final int LOCK_STRIPES = 64; // 2의 거듭제곱
+
+    private static final ConcurrentNavigableMap<Long, Item> store = new ConcurrentSkipListMap<>(); //static, id 순서 유지
+    private static final AtomicLong sequence = new AtomicLong(); //static
+    private static final ConcurrentNavigableMap<Integer, Set<Long>> priceIndex = new ConcurrentSkipListMap<>();
+    private static final ConcurrentMap<String, Set<Long>> nameIndex = new ConcurrentHashMap<>(); // 1-gram, 2-gram -> id
+    private static final Object[] locks = new Object[LOCK_STRIPES];
+
+    static {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
 
     @Override
     public Item save(Item item) {
-        item.setId(++sequence);
-        store.put(item.getId(), item);
+        item.setId(sequence.incrementAndGet());
+        item.setVersion(ItemVersions.INITIAL);
+        synchronized (lockFor(item.getId())) {
+            index(item);
+            store.put(item.getId(), item);
+        }
         return item;
     }
 
+    @Override
+    public List<Item> saveAll(Collection<Item> items) {
+        List<Item> saved = new ArrayList<>(items.size());
+        for (Item item : items) {
+            saved.add(save(item));
+        }
+        return saved;
+    }
+
     @Override
     public void update(Long itemId, ItemUpdateDto updateParam) {
-        Item findItem = findById(itemId).orElseThrow();
-        findItem.setItemName(updateParam.getItemName());
-        findItem.setPrice(updateParam.getPrice());
-        findItem.setQuantity(updateParam.getQuantity());
+        synchronized (lockFor(itemId)) {
+            Item findItem = findById(itemId).orElseThrow();
+            if (!ItemVersions.matches(findItem.getVersion(), updateParam)) {
+                throw ItemVersions.conflict(itemId, updateParam);
+            }
+            replace(findItem, updateParam.getItemName(), updateParam.getPrice(), updateParam.getQuantity());
+        }
+    }
+
+    @Override
+    public int updateAll(ItemSearchCond cond, ItemBulkUpdateDto updateParam) {
+        ItemSearchCond filter = ItemSearchShape.filterOf(cond);
+        List<Long> ids = new ArrayList<>();
+        streamAll(filter, item -> ids.add(item.getId()));
+        // 모으는 사이 가격이 바뀌었을 수 있으므로 락 안에서 조건 다시 확인
+        return updateAll(ids, updateParam,
+                item -> matches(item, filter.getItemName(), filter.getMinPrice(), filter.getMaxPrice()));
+    }
+
+    @Override
+    public int updateAllById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam) {
+        return updateAll(new TreeSet<>(itemIds), updateParam, item -> true);
+    }
+
+    // 먼저 대상 전체를 계산해 보고 (범위를 넘으면 한 건도 바꾸지 않고 ArithmeticException), 한 건씩 락 - id 순서로
+    private int updateAll(Collection<Long> ids, ItemBulkUpdateDto updateParam, Predicate<Item> condition) {
+        List<Item> targets = new ArrayList<>();
+        for (Long id : ids) {
+            Item findItem = store.get(id); // 저장된 Item은 바뀌지 않음 (replace) - 락 없이 읽어도 됨
+            if (findItem != null && condition.test(findItem)) {
+                updateParam.applyToPrice(findItem.getPrice());
+                updateParam.applyToQuantity(findItem.getQuantity());
+                targets.add(findItem);
+            }
+        }
+        int updated = 0;
+        for (Item target : targets) {
+            synchronized (lockFor(target.getId())) {
+                Item findItem = store.get(target.getId());
+                // 계산한 뒤 다른 수정이 끼어든 행만 조건 다시 확인 - 이때 범위를 넘으면 앞의 행은 이미 바뀐 상태
+                if (findItem != null && (findItem == target || condition.test(findItem))) {
+                    replace(findItem, findItem.getItemName(), updateParam.applyToPrice(findItem.getPrice()),
+                            updateParam.applyToQuantity(findItem.getQuantity()));
+                    updated++;
+                }
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public List<Long> addQuantities(Map<Long, Integer> deltas) {
+        List<Long> rejected = new ArrayList<>();
+        for (Map.Entry<Long, Integer> delta : ItemQuantities.ordered(deltas)) {
+            synchronized (lockFor(delta.getKey())) {
+                Item findItem = store.get(delta.getKey());
+                Integer quantity = findItem != null ? ItemQuantities.add(findItem.getQuantity(), delta.getValue()) : null;
+                if (quantity == null) {
+                    rejected.add(delta.getKey());
+                    continue;
+                }
+                replace(findItem, findItem.getItemName(), findItem.getPrice(), quantity);
+            }
+        }
+        return rejected;
+    }
+
+    // 락 안에서 호출
+    private static void replace(Item findItem, String itemName, Integer price, Integer quantity) {
+        // 공유 객체를 직접 바꾸지 않고 새 객체로 교체 - 조회 스레드는 항상 완성된 상태만 보게 됨
+        Item updatedItem = new Item(itemName, price, quantity);
+        updatedItem.setId(findItem.getId());
+        updatedItem.setVersion(findItem.getVersion() + 1);
+
+        // 새 인덱스 추가 -> 교체 -> 안 쓰는 인덱스 제거 순서, 갱신 중에도 검색에서 빠지지 않게
+        index(updatedItem);
+        store.put(updatedItem.getId(), updatedItem);
+        unindex(findItem, updatedItem);
+    }
+
+    @Override
+    public ItemStats findStats(ItemSearchCond cond) {
+        ItemStats stats = new ItemStats();
+        streamAll(ItemSearchShape.filterOf(cond), item -> stats.add(item.getPrice(), item.getQuantity()));
+        return stats;
+    }
+
+    @Override
+    public List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize) {
+        ItemPriceBucket.checkBucketSize(bucketSize);
+        Map<Integer, Long> counts = new TreeMap<>();
+        streamAll(ItemSearchShape.filterOf(cond), item -> {
+            if (item.getPrice() != null) {
+                counts.merge(ItemPriceBucket.fromPriceOf(item.getPrice(), bucketSize), 1L, Long::sum);
+            }
+        });
+        return ItemPriceBucket.ofCounts(counts);
     }
 
     @Override
@@ -36,27 +174,231 @@ public class MemoryItemRepository implements ItemRepository {
         return Optional.ofNullable(store.get(id));
     }
 
+    @Override
+    public List<Item> findAllById(Collection<Long> ids) {
+        List<Long> sorted = ItemIdChunks.sorted(ids);
+        List<Item> result = new ArrayList<>(sorted.size());
+        for (Long id : sorted) {
+            Item item = store.get(id);
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
     @Override
     public List<Item> findAll(ItemSearchCond cond) {
+        List<Item> result = new ArrayList<>();
+        streamAll(cond, result::add);
+        return result;
+    }
+
+    @Override
+    public List<ItemSummary> findSummaries(ItemSearchCond cond) {
+        return ItemSummary.listOf(findAll(cond));
+    }
+
+    @Override
+    public void streamAll(ItemSearchCond cond, Consumer<Item> action) {
         String itemName = cond.getItemName();
+        Integer minPrice = cond.getMinPrice();
         Integer maxPrice = cond.getMaxPrice();
-        return store.values().stream()
-                .filter(item -> {
-                    if (ObjectUtils.isEmpty(itemName)) {
-                        return true;
+        ItemSort sort = ItemSort.of(cond);
+        long lastId = cond.getLastId() != null && sort == ItemSort.ID ? cond.getLastId() : 0L;
+        long remaining = cond.getLimit() != null ? cond.getLimit() : Long.MAX_VALUE;
+        boolean priceFilter = minPrice != null || maxPrice != null;
+
+        if (sort == ItemSort.PRICE && !StringUtils.hasText(itemName)) {
+            // 가격순 - 가격 인덱스를 가격 순서 그대로 읽다가 limit 건에서 멈춤
+            for (Map.Entry<Integer, Set<Long>> samePrice : priceRange(minPrice, maxPrice).entrySet()) {
+                Long[] ids = samePrice.getValue().toArray(new Long[0]);
+                Arrays.sort(ids); // 같은 가격이면 id 순
+                for (Long id : ids) {
+                    if (remaining <= 0) {
+                        return;
                     }
-                    return item.getItemName().contains(itemName);
-                }).filter(item -> {
-                    if (maxPrice == null) {
-                        return true;
+                    Item item = store.get(id);
+                    // update 중에는 예전 가격 자리에도 잠깐 남아 있으므로 현재 가격으로 확인
+                    if (item != null && samePrice.getKey().equals(item.getPrice())) {
+                        action.accept(item);
+                        remaining--;
                     }
-                    return item.getPrice() <= maxPrice;
-                })
-                .collect(Collectors.toList());
+                }
+            }
+            return;
+        }
+
+        Collection<Long> candidates;
+        if (StringUtils.hasText(itemName)) {
+            candidates = nameCandidates(itemName);
+        } else if (priceFilter) {
+            candidates = priceCandidates(minPrice, maxPrice);
+        } else if (sort == ItemSort.ID) {
+            // 조건 없으면 id 순서 그대로 lastId 다음부터
+            for (Item item : store.tailMap(lastId, false).values()) {
+                if (remaining-- <= 0) {
+                    return;
+                }
+                action.accept(item);
+            }
+            return;
+        } else {
+            candidates = store.keySet();
+        }
+
+        if (sort != ItemSort.ID) {
+            // 이름순 등 - 인덱스 순서와 정렬이 다르면 heap으로 상위 limit 건만
+            TopItems top = new TopItems(sort.order(), remaining);
+            for (Long id : candidates) {
+                Item item = store.get(id);
+                if (item != null && matches(item, itemName, minPrice, maxPrice)
+                        && sort.accepts(item.getItemName(), item.getPrice())) {
+                    top.offer(item);
+                }
+            }
+            top.toList().forEach(action);
+            return;
+        }
+
+        // 인덱스는 후보만 좁힘, 최종 판단은 현재 저장된 객체로 다시 확인
+        Long[] ids = candidates.toArray(new Long[0]);
+        Arrays.sort(ids);
+        for (Long id : ids) {
+            if (remaining <= 0) {
+                return;
+            }
+            if (id <= lastId) {
+                continue;
+            }
+            Item item = store.get(id);
+            if (item != null && matches(item, itemName, minPrice, maxPrice)) {
+                action.accept(item);
+                remaining--;
+            }
+        }
     }
 
     public void clearStore() {
         store.clear();
+        priceIndex.clear();
+        nameIndex.clear();
+    }
+
+    private Collection<Long> nameCandidates(String itemName) {
+        // 검색어의 gram 중 가장 작은 후보 집합 하나만 사용 - 나머지 조건은 matches(~)에서 확인
+        Set<Long> smallest = null;
+        for (String gram : grams(itemName)) {
+            Set<Long> ids = nameIndex.get(gram);
+            if (ids == null) {
+                return Collections.emptyList();
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        return smallest == null ? Collections.emptyList() : smallest;
+    }
+
+    private Collection<Long> priceCandidates(Integer minPrice, Integer maxPrice) {
+        List<Long> ids = new ArrayList<>();
+        for (Set<Long> samePrice : priceRange(minPrice, maxPrice).values()) {
+            ids.addAll(samePrice);
+        }
+        return ids;
+    }
+
+    private static NavigableMap<Integer, Set<Long>> priceRange(Integer minPrice, Integer maxPrice) {
+        int from = minPrice != null ? minPrice : Integer.MIN_VALUE;
+        int to = maxPrice != null ? maxPrice : Integer.MAX_VALUE;
+        return from > to ? Collections.emptyNavigableMap() : priceIndex.subMap(from, true, to, true);
+    }
+
+    private static boolean matches(Item item, String itemName, Integer minPrice, Integer maxPrice) {
+        if (StringUtils.hasText(itemName)
+                && (item.getItemName() == null || !item.getItemName().contains(itemName))) {
+            return false;
+        }
+        if (minPrice == null && maxPrice == null) {
+            return true;
+        }
+        Integer price = item.getPrice();
+        return price != null && (minPrice == null || price >= minPrice) && (maxPrice == null || price <= maxPrice);
+    }
+
+    private static void index(Item item) {
+        Long id = item.getId();
+        if (item.getPrice() != null) {
+            addTo(priceIndex, item.getPrice(), id);
+        }
+        for (String gram : allGrams(item.getItemName())) {
+            addTo(nameIndex, gram, id);
+        }
+    }
+
+    private static void unindex(Item oldItem, Item newItem) {
+        Long id = oldItem.getId();
+        if (oldItem.getPrice() != null && !oldItem.getPrice().equals(newItem.getPrice())) {
+            removeFrom(priceIndex, oldItem.getPrice(), id);
+        }
+        Set<String> newGrams = allGrams(newItem.getItemName());
+        for (String gram : allGrams(oldItem.getItemName())) {
+            if (!newGrams.contains(gram)) {
+                removeFrom(nameIndex, gram, id);
+            }
+        }
+    }
+
+    // 추가, 제거 모두 키 단위로 원자적으로 (compute) - 빈 집합을 지우는 것과 다른 스레드의 추가가 겹쳐 id가 유실되는 것 방지
+    private static <K> void addTo(ConcurrentMap<K, Set<Long>> index, K key, Long id) {
+        index.compute(key, (k, ids) -> {
+            Set<Long> result = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            result.add(id);
+            return result;
+        });
+    }
+
+    // 비면 키째 제거 - 가격, 이름이 계속 바뀌어도 인덱스가 빈 집합으로 늘어나지 않게
+    private static <K> void removeFrom(ConcurrentMap<K, Set<Long>> index, K key, Long id) {
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * 인덱스에 넣는 gram - 이름의 모든 1-gram, 2-gram
+     */
+    private static Set<String> allGrams(String itemName) {
+        if (itemName == null) {
+            return Collections.emptySet();
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i < itemName.length(); i++) {
+            grams.add(itemName.substring(i, i + 1));
+            if (i + 2 <= itemName.length()) {
+                grams.add(itemName.substring(i, i + 2));
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * 검색에 쓰는 gram - 한 글자면 1-gram, 아니면 2-gram
+     */
+    private static List<String> grams(String itemName) {
+        if (itemName.length() == 1) {
+            return List.of(itemName);
+        }
+        List<String> grams = new ArrayList<>();
+        for (int i = 0; i + 2 <= itemName.length(); i++) {
+            grams.add(itemName.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    private static Object lockFor(Long id) {
+        return locks[Long.hashCode(id) & (LOCK_STRIPES - 1)];
     }
 
 }
@@ -0,0 +1,134 @@
+package hello.itemservice.repository.memory;
+
+import hello.itemservice.repository.ItemNameSuffixes;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.PrimitiveIterator;
+import java.util.TreeMap;
+
+/**
+ * 이름 접미사 -> row 목록 인덱스 (row 번호로 저장하는 저장소용)
+ * - 이름에 term이 들어있는 row = term으로 시작하는 접미사의 row, TreeMap 범위 조회로 찾음
+ * - 접미사별 row 목록은 오름차순 유지 - 여러 목록을 병합하면서 keyset 페이징 순서(id 순) 그대로 꺼냄
+ * - 동기화 없음, 저장소의 락 안에서 사용
+ */
+public class NameSuffixIndex {
+
+    private final TreeMap<String, RowList> index = new TreeMap<>();
+
+    public void add(int row, String itemName) {
+        for (String suffix : ItemNameSuffixes.of(itemName)) {
+            index.computeIfAbsent(suffix, key -> new RowList()).add(row);
+        }
+    }
+
+    public void remove(int row, String itemName) {
+        for (String suffix : ItemNameSuffixes.of(itemName)) {
+            RowList rows = index.get(suffix);
+            if (rows != null && rows.remove(row) && rows.size == 0) {
+                index.remove(suffix);
+            }
+        }
+    }
+
+    public void clear() {
+        index.clear();
+    }
+
+    /**
+     * 이름에 term이 들어있는 row를 fromRow부터 오름차순, 중복 없이
+     */
+    public PrimitiveIterator.OfInt rows(String term, int fromRow) {
+        return new MergedRows(index.subMap(term, true, ItemNameSuffixes.upperBound(term), false).values(), fromRow);
+    }
+
+    /**
+     * 오름차순 int 목록 - row는 대부분 끝에 추가되므로 보통은 append
+     */
+    private static class RowList {
+        private int[] rows = new int[2];
+        private int size;
+
+        void add(int row) {
+            int position = size == 0 || rows[size - 1] < row ? size : Arrays.binarySearch(rows, 0, size, row);
+            if (position >= 0 && position < size) {
+                return; // 이미 있음
+            }
+            int insertAt = position >= 0 ? position : -position - 1;
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            System.arraycopy(rows, insertAt, rows, insertAt + 1, size - insertAt);
+            rows[insertAt] = row;
+            size++;
+        }
+
+        boolean remove(int row) {
+            int position = Arrays.binarySearch(rows, 0, size, row);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(rows, position + 1, rows, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        // row 이상인 첫 위치
+        int positionOf(int row) {
+            int position = Arrays.binarySearch(rows, 0, size, row);
+            return position >= 0 ? position : -position - 1;
+        }
+    }
+
+    /**
+     * 접미사별 row 목록 k개를 우선순위 큐로 병합 - 한 이름의 여러 접미사가 걸리면 같은 row가 여러 번 나오므로 건너뜀
+     */
+    private static class MergedRows implements PrimitiveIterator.OfInt {
+        private final PriorityQueue<int[]> heads; // {row, 목록 번호, 위치}
+        private final RowList[] lists;
+        private int last = -1;
+
+        MergedRows(Collection<RowList> rowLists, int fromRow) {
+            this.lists = rowLists.toArray(new RowList[0]);
+            this.heads = new PriorityQueue<>(Math.max(1, lists.length), (a, b) -> Integer.compare(a[0], b[0]));
+            for (int i = 0; i < lists.length; i++) {
+                int position = lists[i].positionOf(fromRow);
+                if (position < lists[i].size) {
+                    heads.add(new int[]{lists[i].rows[position], i, position});
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!heads.isEmpty() && heads.peek()[0] == last) {
+                advance(heads.poll());
+            }
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int[] head = heads.poll();
+            last = head[0];
+            advance(head);
+            return last;
+        }
+
+        private void advance(int[] head) {
+            RowList list = lists[head[1]];
+            int position = head[2] + 1;
+            if (position < list.size) {
+                head[0] = list.rows[position];
+                head[2] = position;
+                heads.add(head);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package hello.itemservice.repository.memory;
+
+import hello.itemservice.domain.Item;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 정렬 순서상 앞쪽 limit 건만 남기는 heap - 가격순, 이름순 상위 N건 (top-N)
+ * - 루트가 지금까지 남긴 것 중 가장 뒤쪽, 꽉 차면 루트보다 앞서는 것만 교체
+ * - 후보 n건에 O(n log limit), 전체를 정렬하지 않고 limit 건만 보관
+ */
+public class TopItems {
+
+    private final Comparator<Item> order;
+    private final long limit;
+    private final PriorityQueue<Item> heap;
+
+    public TopItems(Comparator<Item> order, long limit) {
+        this.order = order;
+        this.limit = limit;
+        this.heap = new PriorityQueue<>((int) Math.min(limit, 1024) + 1, order.reversed());
+    }
+
+    public void offer(Item item) {
+        if (heap.size() < limit) {
+            heap.add(item);
+        } else if (limit > 0 && order.compare(item, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(item);
+        }
+    }
+
+    /**
+     * 남은 것을 정렬 순서대로
+     */
+    public List<Item> toList() {
+        List<Item> items = new ArrayList<>(heap);
+        items.sort(order);
+        return items;
+    }
+}
@@ -1,7 +1,12 @@
 package hello.itemservice.repository.mybatis;
 
 import hello.itemservice.domain.Item;
-import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.domain.ItemNameSuffix;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemIdRange;
+import hello.itemservice.repository.ItemPriceBucket;
+import hello.itemservice.repository.ItemSearchShape;
+import hello.itemservice.repository.ItemStats;
 import hello.itemservice.repository.ItemUpdateDto;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
@@ -14,9 +19,42 @@ public interface ItemMapper {
 
     void save(Item item);
 
-    void update(@Param("id") Long id, @Param("updateParam") ItemUpdateDto updateParam);
+    void saveAll(@Param("items") List<Item> items);
+
+    int update(@Param("id") Long id, @Param("updateParam") ItemUpdateDto updateParam); // 바뀐 행 수
+
+    // item_name_suffix 행 - item을 저장, 수정한 같은 트랜잭션에서 (ItemNameSuffixes.rowsOf)
+    void saveNameSuffixes(@Param("suffixes") List<ItemNameSuffix> suffixes);
+
+    void deleteNameSuffixes(Long itemId);
+
+    // 검색 조건에 맞는 상품을 id 구간 (afterId, toId]에서 한 번에 수정 - 바뀐 행 수
+    int updateAll(@Param("shape") ItemSearchShape shape, @Param("itemName") String itemName,
+                  @Param("minPrice") int minPrice, @Param("maxPrice") int maxPrice,
+                  @Param("afterId") long afterId, @Param("toId") long toId,
+                  @Param("updateParam") ItemBulkUpdateDto updateParam);
+
+    int updateAllById(@Param("ids") List<Long> ids, @Param("updateParam") ItemBulkUpdateDto updateParam);
+
+    // 재고 증감, 결과가 음수면 건너뜀 - 바뀐 행 수 (0이면 재고 부족이거나 없는 상품)
+    int addQuantity(@Param("id") Long id, @Param("delta") int delta);
+
+    // 검색 조건(이름, 가격 범위)만 - updateAll(~)과 같은 파라미터
+    ItemStats findStats(@Param("shape") ItemSearchShape shape, @Param("itemName") String itemName,
+                        @Param("minPrice") int minPrice, @Param("maxPrice") int maxPrice);
+
+    // 구간 floor(price / bucketSize)마다 (최소 가격, 건수) - 구간 시작 가격은 ItemPriceBucket.ofGroups(~)
+    List<ItemPriceBucket> findPriceGroups(@Param("shape") ItemSearchShape shape, @Param("itemName") String itemName,
+                                          @Param("minPrice") int minPrice, @Param("maxPrice") int maxPrice,
+                                          @Param("bucketSize") int bucketSize);
+
+    Optional<ItemIdRange> findIdRange(); // 비어 있으면 empty (min, max 모두 null인 행은 MyBatis가 null로)
+
+    Long findChunkEnd(@Param("afterId") long afterId, @Param("offset") int offset); // ItemIdRange.ChunkEnd
 
     Optional<Item> findById(Long id);
 
-    List<Item> findAll(ItemSearchCond itemSearch);
+    List<Item> findAllById(@Param("ids") List<Long> ids);
+
+    // 검색(findAll*)은 모양 × 정렬별 고정 쿼리 12개라 메서드 없이 statement id로 실행 - MyBatisItemRepository 참고
 }
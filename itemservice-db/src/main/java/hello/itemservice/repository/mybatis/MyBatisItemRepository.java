@@ -1,34 +1,119 @@
 package hello.itemservice.repository.mybatis;
 
 import hello.itemservice.domain.Item;
+import hello.itemservice.domain.ItemNameSuffix;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemIdChunks;
+import hello.itemservice.repository.ItemIdRange;
+import hello.itemservice.repository.ItemNameSuffixes;
+import hello.itemservice.repository.ItemPriceBucket;
+import hello.itemservice.repository.ItemQuantities;
 import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemRepositoryProperties;
 import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSearchShape;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
+import hello.itemservice.repository.ItemSort;
 import hello.itemservice.repository.ItemUpdateDto;
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import hello.itemservice.repository.ItemVersions;
+import org.mybatis.spring.SqlSessionTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
-@Slf4j
 @Repository
-@RequiredArgsConstructor
 public class MyBatisItemRepository implements ItemRepository { // 대부분 단순 위임 코드
 
+    private static final ItemSearchShape.Plans<String> FIND_ALL_STATEMENTS =
+            ItemSearchShape.plans(MyBatisItemRepository::findAllStatement);
+
     private final ItemMapper itemMapper; // @Mapper가 붙어있으면 MyBatis에서 구현체 만들어서 스프링 빈 등록 -> autowired 가능(프록시 기술 사용)
+    private final SqlSessionTemplate sqlSession; // 검색 쿼리는 statement id로 직접 실행, 스프링 트랜잭션에 같이 참여
+    private final int batchSize;
+    private final int updateChunkSize;
+    private final int findChunkSize;
+
+    public MyBatisItemRepository(ItemMapper itemMapper, SqlSessionTemplate sqlSession) {
+        this(itemMapper, sqlSession, new ItemRepositoryProperties());
+    }
+
+    public MyBatisItemRepository(ItemMapper itemMapper, SqlSessionTemplate sqlSession,
+                                 ItemRepositoryProperties properties) {
+        this.itemMapper = itemMapper;
+        this.sqlSession = sqlSession;
+        this.batchSize = properties.getBatchSize();
+        this.updateChunkSize = properties.getUpdateChunkSize();
+        this.findChunkSize = properties.getFindChunkSize();
+    }
 
     @Override
+    @Transactional // item과 item_name_suffix를 한 트랜잭션으로
     public Item save(Item item) {
-        log.info("itemMapper class={}", itemMapper.getClass());
         itemMapper.save(item);
+        item.setVersion(ItemVersions.INITIAL); // version은 default 0
         // ItemMapper의 save(Item)은 void로 반환하는 게 없는데, 참조를 통해 객체의 필드를 변경하는 것이기 때문에 id 입력된 객체를 돌려줄 수 있다.
+        saveNameSuffixes(List.of(item));
         return item;
     }
 
     @Override
+    @Transactional
+    public List<Item> saveAll(Collection<Item> items) {
+        // 여러 행 insert 하나로 batchSize 건씩, 생성된 id는 MyBatis가 각 Item에 채워줌
+        List<Item> list = new ArrayList<>(items);
+        for (int from = 0; from < list.size(); from += batchSize) {
+            itemMapper.saveAll(list.subList(from, Math.min(from + batchSize, list.size())));
+        }
+        list.forEach(item -> item.setVersion(ItemVersions.INITIAL));
+        saveNameSuffixes(list);
+        return list;
+    }
+
+    @Override
+    @Transactional
     public void update(Long itemId, ItemUpdateDto updateParam) {
-        itemMapper.update(itemId, updateParam);
+        ItemVersions.checkUpdated(itemMapper.update(itemId, updateParam), itemId, updateParam);
+        // 읽지 않고 update 하므로 이전 이름을 모름 - 지우고 다시 넣음 (이름은 최대 10자)
+        Item renamed = new Item(updateParam.getItemName(), null, null);
+        renamed.setId(itemId);
+        itemMapper.deleteNameSuffixes(itemId);
+        saveNameSuffixes(List.of(renamed));
+    }
+
+    private void saveNameSuffixes(List<Item> items) {
+        List<ItemNameSuffix> rows = ItemNameSuffixes.rowsOf(items);
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            itemMapper.saveNameSuffixes(rows.subList(from, Math.min(from + batchSize, rows.size())));
+        }
+    }
+
+    @Override
+    public int updateAll(ItemSearchCond cond, ItemBulkUpdateDto updateParam) {
+        ItemSearchShape shape = ItemSearchShape.of(cond);
+        int minPrice = ItemSearchShape.minPriceOf(cond);
+        int maxPrice = ItemSearchShape.maxPriceOf(cond);
+        return itemMapper.findIdRange()
+                .map(range -> range.forEachChunk(updateChunkSize, itemMapper::findChunkEnd, (afterId, toId) -> itemMapper.updateAll(
+                        shape, cond.getItemName(), minPrice, maxPrice, afterId, toId, updateParam)))
+                .orElse(0);
+    }
+
+    @Override
+    public int updateAllById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam) {
+        return ItemIdRange.forEachChunk(itemIds, updateChunkSize, ids -> itemMapper.updateAllById(ids, updateParam));
+    }
+
+    @Override
+    @Transactional // 한 건씩 update - 커넥션, 커밋은 한 번
+    public List<Long> addQuantities(Map<Long, Integer> deltas) {
+        return ItemQuantities.apply(deltas, itemMapper::addQuantity);
     }
 
     @Override
@@ -36,8 +121,54 @@ public class MyBatisItemRepository implements ItemRepository { // 대부분 단
         return itemMapper.findById(id);
     }
 
+    @Override
+    @Transactional(readOnly = true) // 묶음이 여러 개여도 커넥션 하나
+    public List<Item> findAllById(Collection<Long> ids) {
+        return ItemIdChunks.findAll(ids, findChunkSize, itemMapper::findAllById);
+    }
+
     @Override
     public List<Item> findAll(ItemSearchCond cond) {
-        return itemMapper.findAll(cond);
+        return sqlSession.selectList(statementOf(cond), ItemSearchShape.bindable(cond));
+    }
+
+    @Override
+    public List<ItemSummary> findSummaries(ItemSearchCond cond) {
+        return ItemSummary.listOf(findAll(cond));
+    }
+
+    @Override
+    public ItemStats findStats(ItemSearchCond cond) {
+        return itemMapper.findStats(ItemSearchShape.of(cond), cond.getItemName(),
+                ItemSearchShape.minPriceOf(cond), ItemSearchShape.maxPriceOf(cond));
+    }
+
+    @Override
+    public List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize) {
+        ItemPriceBucket.checkBucketSize(bucketSize);
+        return ItemPriceBucket.ofGroups(itemMapper.findPriceGroups(ItemSearchShape.of(cond), cond.getItemName(),
+                ItemSearchShape.minPriceOf(cond), ItemSearchShape.maxPriceOf(cond), bucketSize), bucketSize);
+    }
+
+    @Override
+    public void streamAll(ItemSearchCond cond, Consumer<Item> action) {
+        // ResultHandler - 목록을 만들지 않고 한 행씩 넘김, 호출 안에서 SqlSession이 열리고 닫히므로 트랜잭션 필요 없음
+        // fetch size는 defaultFetchSize(MyBatisConfig)
+        sqlSession.select(statementOf(cond), ItemSearchShape.bindable(cond),
+                context -> action.accept((Item) context.getResultObject()));
+    }
+
+    private static String statementOf(ItemSearchCond cond) {
+        return FIND_ALL_STATEMENTS.get(ItemSearchShape.of(cond), ItemSort.of(cond));
+    }
+
+    // ItemMapper.xml의 findAll + 모양 + 정렬
+    private static String findAllStatement(ItemSearchShape shape, ItemSort sort) {
+        String byShape = shape.hasName() && shape.hasPrice() ? "ByNameAndPrice"
+                : shape.hasName() ? "ByName"
+                : shape.hasPrice() ? "ByPrice" : "";
+        String orderBy = sort == ItemSort.PRICE ? "OrderByPrice"
+                : sort == ItemSort.NAME ? "OrderByName" : "";
+        return ItemMapper.class.getName() + ".findAll" + byShape + orderBy;
     }
 }
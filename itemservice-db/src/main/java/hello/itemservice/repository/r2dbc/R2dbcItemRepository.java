@@ -0,0 +1,147 @@
+package hello.itemservice.repository.r2dbc;
+
+import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemNameSuffixes;
+import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSearchShape;
+import hello.itemservice.repository.ItemSort;
+import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.repository.ItemVersions;
+import io.r2dbc.spi.Row;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC 저장소 - ItemRepository와 같은 기능을 Mono/Flux로
+ * - DatabaseClient, 이름 기반 파라미터(:name) - 검색 SQL은 JdbcTemplateItemRepositoryV3와 같은 모양 × 정렬별 고정 SQL
+ * - findAll(~)은 구독자가 요청한 만큼씩 행을 넘김(backpressure), 목록을 만들지 않음
+ * - 블로킹 JDBC 저장소와 달리 트랜잭션 없이 문장마다 auto commit
+ */
+public class R2dbcItemRepository {
+
+    private static final ItemSearchShape.Plans<String> FIND_ALL_SQL = ItemSearchShape.plans(R2dbcItemRepository::findAllSql);
+
+    private final DatabaseClient client;
+
+    public R2dbcItemRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    public Mono<Item> save(Item item) {
+        GenericExecuteSpec spec = client.sql("insert into item (item_name, price, quantity) values (:itemName, :price, :quantity)")
+                .filter(statement -> statement.returnGeneratedValues("id"));
+        return bindFields(spec, item.getItemName(), item.getPrice(), item.getQuantity())
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .flatMap(id -> {
+                    item.setId(id);
+                    item.setVersion(ItemVersions.INITIAL); // version은 default 0
+                    return saveNameSuffixes(id, item.getItemName()).thenReturn(item);
+                });
+    }
+
+    /**
+     * 버전이 있으면 그 버전일 때만 - 다르면 OptimisticLockingFailureException으로 끝남
+     */
+    public Mono<Void> update(Long itemId, ItemUpdateDto updateParam) {
+        String sql = "update item set item_name = :itemName, price = :price, quantity = :quantity, version = version + 1"
+                + " where id = :id";
+        GenericExecuteSpec spec;
+        if (updateParam.getVersion() == null) {
+            spec = client.sql(sql).bind("id", itemId);
+        } else {
+            spec = client.sql(sql + " and version = :version").bind("id", itemId).bind("version", updateParam.getVersion());
+        }
+        return bindFields(spec, updateParam.getItemName(), updateParam.getPrice(), updateParam.getQuantity())
+                .fetch()
+                .rowsUpdated()
+                .doOnNext(updated -> ItemVersions.checkUpdated(updated, itemId, updateParam))
+                // 읽지 않고 update 하므로 이전 이름을 모름 - 지우고 다시 넣음
+                .then(client.sql("delete from item_name_suffix where item_id = :itemId").bind("itemId", itemId).then())
+                .then(saveNameSuffixes(itemId, updateParam.getItemName()));
+    }
+
+    // item_name_suffix 행 (ItemNameSuffixes) - 트랜잭션이 없어서 item과 따로 커밋, 중간에 실패하면 다음 수정 때 다시 맞춰짐
+    private Mono<Void> saveNameSuffixes(Long itemId, String itemName) {
+        return Flux.fromIterable(ItemNameSuffixes.of(itemName))
+                .concatMap(suffix -> client.sql("insert into item_name_suffix (suffix, item_id) values (:suffix, :itemId)")
+                        .bind("suffix", suffix)
+                        .bind("itemId", itemId)
+                        .then())
+                .then();
+    }
+
+    public Mono<Item> findById(Long id) {
+        return client.sql("select id, item_name, price, quantity, version from item where id = :id")
+                .bind("id", id)
+                .map(R2dbcItemRepository::toItem)
+                .one();
+    }
+
+    public Flux<Item> findAll(ItemSearchCond cond) {
+        ItemSearchShape shape = ItemSearchShape.of(cond);
+        ItemSort sort = ItemSort.of(cond);
+        // SQL에 있는 파라미터만 바인딩 - 없는 이름을 바인딩하면 예외
+        GenericExecuteSpec spec = client.sql(FIND_ALL_SQL.get(shape, sort))
+                .bind("limit", ItemSearchShape.limitOf(cond));
+        if (shape.hasName()) {
+            spec = spec.bind("itemName", cond.getItemName());
+        }
+        if (shape.hasPrice()) {
+            spec = spec.bind("minPrice", ItemSearchShape.minPriceOf(cond))
+                    .bind("maxPrice", ItemSearchShape.maxPriceOf(cond));
+        }
+        if (sort == ItemSort.ID) {
+            spec = spec.bind("lastId", ItemSearchShape.lastIdOf(cond));
+        }
+        return spec.map(R2dbcItemRepository::toItem).all();
+    }
+
+    // bind(~)는 null을 받지 않음 - null이면 타입과 함께 bindNull(~)
+    private static GenericExecuteSpec bindFields(GenericExecuteSpec spec, String itemName, Integer price, Integer quantity) {
+        spec = itemName != null ? spec.bind("itemName", itemName) : spec.bindNull("itemName", String.class);
+        spec = price != null ? spec.bind("price", price) : spec.bindNull("price", Integer.class);
+        return quantity != null ? spec.bind("quantity", quantity) : spec.bindNull("quantity", Integer.class);
+    }
+
+    private static Item toItem(Row row) {
+        Item item = new Item(row.get("item_name", String.class), row.get("price", Integer.class),
+                row.get("quantity", Integer.class));
+        item.setId(row.get("id", Long.class));
+        item.setVersion(row.get("version", Long.class));
+        return item;
+    }
+
+    private static String findAllSql(ItemSearchShape shape, ItemSort sort) {
+        return "select id, item_name, price, quantity, version from item"
+                // like '%x%' 대신 접미사 범위 조회 - item_name_suffix 인덱스 사용
+                + shape.where("id in (select item_id from item_name_suffix"
+                                + " where suffix >= :itemName and suffix < concat(:itemName, char(65535)))",
+                        "price between :minPrice and :maxPrice", sortCondition(sort))
+                + orderBy(sort) + " limit :limit";
+    }
+
+    private static String sortCondition(ItemSort sort) {
+        switch (sort) {
+            case PRICE:
+                return "price is not null";
+            case NAME:
+                return "item_name is not null";
+            default:
+                return "id > :lastId";
+        }
+    }
+
+    private static String orderBy(ItemSort sort) {
+        switch (sort) {
+            case PRICE:
+                return " order by price, id";
+            case NAME:
+                return " order by item_name, id";
+            default:
+                return " order by id";
+        }
+    }
+}
@@ -1,39 +1,214 @@
 package hello.itemservice.repository.v2;
 
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.MathExpressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
 import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemIdChunks;
+import hello.itemservice.repository.ItemIdRange;
+import hello.itemservice.repository.ItemQuantities;
+import hello.itemservice.repository.ItemNameSuffixes;
+import hello.itemservice.repository.ItemPriceBucket;
+import hello.itemservice.repository.ItemRepositoryProperties;
 import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSort;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
+import hello.itemservice.repository.jpa.ItemNameSuffixEntities;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import static hello.itemservice.domain.QItem.item;
+import static hello.itemservice.domain.QItemNameSuffix.itemNameSuffix;
 
 @Repository
 public class ItemQueryRepositoryV2 { // Querydsl 사용, 복잡한 조회 쿼리 담당 - 복잡한 쿼리는 이 부분만 유지보수
 
+    private final EntityManager em;
     private final JPAQueryFactory query;
+    private final int updateChunkSize;
+    private final int findChunkSize;
 
     public ItemQueryRepositoryV2(EntityManager em) {
+        this(em, new ItemRepositoryProperties());
+    }
+
+    public ItemQueryRepositoryV2(EntityManager em, ItemRepositoryProperties properties) {
+        this.em = em;
         this.query = new JPAQueryFactory(em);
+        this.updateChunkSize = properties.getUpdateChunkSize();
+        this.findChunkSize = properties.getFindChunkSize();
     }
 
     public List<Item> findAll(ItemSearchCond cond) {
-        return query.select(item)
+        return findAllQuery(item, cond).fetch();
+    }
+
+    /**
+     * findAll(~)과 같은 조건, 같은 순서로 목록 화면에 필요한 컬럼만 - 엔티티를 만들지 않으므로 영속성 컨텍스트에 안 올라감
+     */
+    public List<ItemSummary> findSummaries(ItemSearchCond cond) {
+        return findAllQuery(Projections.constructor(ItemSummary.class, item.id, item.itemName, item.price, item.quantity),
+                cond).fetch();
+    }
+
+    private <T> JPAQuery<T> findAllQuery(Expression<T> projection, ItemSearchCond cond) {
+        ItemSort sort = ItemSort.of(cond);
+        JPAQuery<T> findQuery = query.select(projection)
                 .from(item)
                 .where(
-                        likeItemName(cond.getItemName()),
-                        maxPrice(cond.getMaxPrice())
+                        containsItemName(cond.getItemName()),
+                        minPrice(cond.getMinPrice()),
+                        maxPrice(cond.getMaxPrice()),
+                        sortKeyNotNull(sort),
+                        sort == ItemSort.ID ? afterId(cond.getLastId()) : null
                 )
+                .orderBy(orderBy(sort)) // id 순이면 keyset 페이징, 가격순, 이름순은 상위 limit 건
+                .setHint(QueryHints.HINT_READONLY, true); // 스냅샷 안 만듦
+        if (cond.getLimit() != null) {
+            findQuery.limit(cond.getLimit());
+        }
+        return findQuery;
+    }
+
+    /**
+     * 검색 조건(이름, 가격 범위)에 맞는 상품 집계 - 정렬, 페이징 무시
+     */
+    public ItemStats findStats(ItemSearchCond cond) {
+        // Projections.constructor - 엔티티 없이 집계 결과 한 행, 합계는 long으로 (int 곱셈 넘침 방지)
+        return query.select(Projections.constructor(ItemStats.class,
+                        item.count(),
+                        item.quantity.longValue().sum(),
+                        item.price.longValue().multiply(item.quantity).sum(),
+                        item.price.min(),
+                        item.price.max()))
+                .from(item)
+                .where(containsItemName(cond.getItemName()), minPrice(cond.getMinPrice()), maxPrice(cond.getMaxPrice()))
+                .fetchOne();
+    }
+
+    /**
+     * findStats(~)와 같은 조건으로 가격 구간별 상품 수 - group by 한 번
+     */
+    public List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize) {
+        ItemPriceBucket.checkBucketSize(bucketSize);
+        // 구간 시작 가격은 min(price)에서 (ItemPriceBucket.ofGroups)
+        List<ItemPriceBucket> groups = query.select(Projections.constructor(ItemPriceBucket.class,
+                        item.price.min(), item.count()))
+                .from(item)
+                .where(containsItemName(cond.getItemName()), minPrice(cond.getMinPrice()), maxPrice(cond.getMaxPrice()),
+                        item.price.isNotNull())
+                .groupBy(MathExpressions.floor(item.price.castToNum(Double.class).divide(bucketSize))) // 음수 가격도 아래 구간으로
                 .fetch();
+        return ItemPriceBucket.ofGroups(groups, bucketSize);
+    }
+
+    /**
+     * id 목록으로 여러 건 - 채운 묶음(ItemIdChunks)마다 where id in (~) 한 번
+     */
+    public List<Item> findAllById(Collection<Long> ids) {
+        return ItemIdChunks.findAll(ids, findChunkSize, chunk -> query.selectFrom(item)
+                .where(item.id.in(chunk))
+                .setHint(QueryHints.HINT_READONLY, true)
+                .fetch());
     }
 
-    private BooleanExpression likeItemName(String itemName) {
+    /**
+     * ItemRepositoryV2(Spring Data)로 저장, 수정한 상품의 item_name_suffix 행 - 같은 트랜잭션에서 (ItemNameSuffixEntities)
+     */
+    public void saveNameSuffixes(Item item) {
+        ItemNameSuffixEntities.persist(em, item);
+    }
+
+    public void renameNameSuffixes(Long itemId, String oldName, String newName) {
+        ItemNameSuffixEntities.rename(em, itemId, oldName, newName);
+    }
+
+    /**
+     * 검색 조건(이름, 가격 범위)에 맞는 상품 전체를 updateChunkSize 행 구간마다 update 한 번씩 - 엔티티를 읽지 않음
+     * bulk update는 영속성 컨텍스트를 거치지 않으므로 전에 flush, 후에 clear
+     */
+    public int updateAll(ItemSearchCond cond, ItemBulkUpdateDto updateParam) {
+        em.flush();
+        ItemIdRange range = query.select(Projections.constructor(ItemIdRange.class, item.id.min(), item.id.max()))
+                .from(item)
+                .fetchOne();
+        int updated = range.forEachChunk(updateChunkSize, this::findChunkEnd, (afterId, toId) -> (int) updateAllClause(updateParam)
+                .where(containsItemName(cond.getItemName()), minPrice(cond.getMinPrice()), maxPrice(cond.getMaxPrice()),
+                        item.id.gt(afterId), item.id.loe(toId))
+                .execute());
+        em.clear();
+        return updated;
+    }
+
+    public int updateAllById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam) {
+        em.flush();
+        int updated = ItemIdRange.forEachChunk(itemIds, updateChunkSize,
+                ids -> (int) updateAllClause(updateParam).where(item.id.in(ids)).execute());
+        em.clear();
+        return updated;
+    }
+
+    public List<Long> addQuantities(Map<Long, Integer> deltas) {
+        em.flush();
+        List<Long> rejected = ItemQuantities.apply(deltas, (id, delta) -> (int) query.update(item)
+                .set(item.quantity, item.quantity.coalesce(0).add(delta))
+                .set(item.version, item.version.add(1L))
+                .where(item.id.eq(id), item.quantity.coalesce(0).add(delta).goe(0))
+                .execute());
+        em.clear();
+        return rejected;
+    }
+
+    // ItemBulkUpdateDto와 같은 계산 - price * pricePercent는 long으로, 재고는 음수가 되면 0
+    private JPAUpdateClause updateAllClause(ItemBulkUpdateDto updateParam) {
+        NumberExpression<Integer> quantity = item.quantity.add(updateParam.getQuantityDelta());
+        return query.update(item)
+                .set(item.price, item.price.add(item.price.castToNum(Long.class).multiply(updateParam.getPricePercent()).divide(100)))
+                .set(item.quantity, new CaseBuilder().when(quantity.lt(0)).then(0).otherwise(quantity))
+                .set(item.version, item.version.add(1L));
+    }
+
+    // afterId 다음 offset + 1 번째 id (ItemIdRange.ChunkEnd)
+    private Long findChunkEnd(long afterId, int offset) {
+        return query.select(item.id)
+                .from(item)
+                .where(item.id.gt(afterId))
+                .orderBy(item.id.asc())
+                .offset(offset)
+                .limit(1)
+                .fetchOne();
+    }
+
+    private BooleanExpression containsItemName(String itemName) {
         if (StringUtils.hasText(itemName)) {
-            return item.itemName.like("%" + itemName + "%");
+            // like '%x%' 대신 접미사 범위 조회 - item_name_suffix 인덱스 사용
+            return item.id.in(JPAExpressions.select(itemNameSuffix.itemId)
+                    .from(itemNameSuffix)
+                    .where(itemNameSuffix.suffix.goe(itemName),
+                            itemNameSuffix.suffix.lt(ItemNameSuffixes.upperBound(itemName))));
+        }
+        return null;
+    }
+
+    private BooleanExpression minPrice(Integer minPrice) {
+        if (minPrice != null) {
+            return item.price.goe(minPrice);
         }
         return null;
     }
@@ -44,4 +219,33 @@ public class ItemQueryRepositoryV2 { // Querydsl 사용, 복잡한 조회 쿼리
         }
         return null;
     }
+
+    private BooleanExpression afterId(Long lastId) {
+        if (lastId != null) {
+            return item.id.gt(lastId);
+        }
+        return null;
+    }
+
+    private BooleanExpression sortKeyNotNull(ItemSort sort) {
+        switch (sort) {
+            case PRICE:
+                return item.price.isNotNull();
+            case NAME:
+                return item.itemName.isNotNull();
+            default:
+                return null;
+        }
+    }
+
+    private OrderSpecifier<?>[] orderBy(ItemSort sort) {
+        switch (sort) {
+            case PRICE:
+                return new OrderSpecifier<?>[]{item.price.asc(), item.id.asc()};
+            case NAME:
+                return new OrderSpecifier<?>[]{item.itemName.asc(), item.id.asc()};
+            default:
+                return new OrderSpecifier<?>[]{item.id.asc()};
+        }
+    }
 }
@@ -0,0 +1,74 @@
+package hello.itemservice.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 복제본 하나의 커넥션 풀 + 상태
+ * - 내려간 것으로 표시되면 상태 확인(check)에서 다시 살아날 때까지 고르지 않음
+ */
+@Slf4j
+class ReplicaPool implements Closeable {
+
+    private final String name;
+    private final HikariDataSource dataSource;
+    private final int validationTimeoutSeconds;
+    private volatile boolean healthy = true;
+
+    ReplicaPool(String name, HikariDataSource dataSource, int validationTimeoutSeconds) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    String name() {
+        return name;
+    }
+
+    boolean isHealthy() {
+        return healthy;
+    }
+
+    Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    // 풀이 아직 안 만들어졌으면(첫 커넥션 전) 0
+    int activeConnections() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return pool != null ? pool.getActiveConnections() : 0;
+    }
+
+    void markDown(SQLException cause) {
+        if (healthy) {
+            healthy = false;
+            log.warn("replica {} down, reads go to primary until it recovers: {}", name, cause.toString());
+        }
+    }
+
+    void check() {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.isValid(validationTimeoutSeconds)) {
+                markDown(new SQLException("connection is not valid"));
+                return;
+            }
+        } catch (SQLException e) {
+            markDown(e);
+            return;
+        }
+        if (!healthy) {
+            healthy = true;
+            log.info("replica {} recovered", name);
+        }
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,58 @@
+package hello.itemservice.routing;
+
+import hello.itemservice.repository.ItemRepository;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.NameMatchMethodPointcut;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.interceptor.MatchAlwaysTransactionAttributeSource;
+import org.springframework.transaction.interceptor.RuleBasedTransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+/**
+ * 어떤 설정(@Import)을 쓰든 읽기 전용 트랜잭션의 쿼리를 복제본으로 - JdbcTemplate, MyBatis, JPA 모두 같은 DataSource를 쓰므로 여기서 한 번에
+ * - 읽기 전용 트랜잭션은 저장소의 조회 메서드와 ItemServiceV2의 조회 메서드 (@Transactional(readOnly = true))
+ * - JdbcTemplate, MyBatis 저장소의 조회 메서드(find*, streamAll)는 여기서만 읽기 전용 트랜잭션으로 감쌈 (replicaReadAdvisor)
+ *   라우팅이 꺼져 있으면 트랜잭션 없이 - JPA 스타터가 있으면 트랜잭션 매니저가 JpaTransactionManager라 조회마다 세션을 열게 되므로
+ * - 이미 시작된 쓰기 트랜잭션에 참여한 조회는 primary - 자기가 쓴 값을 읽을 수 있게
+ * - itemservice.routing.enabled=true일 때만
+ */
+@Configuration
+@ConditionalOnProperty(name = "itemservice.routing.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    // BeanPostProcessor는 다른 빈보다 먼저 만들어지므로 static, 설정 값도 Binder로 직접 읽음
+    @Bean
+    public static ReplicaRoutingPostProcessor replicaRoutingPostProcessor(Environment environment) {
+        ReplicaRoutingProperties properties = Binder.get(environment)
+                .bindOrCreate("itemservice.routing", ReplicaRoutingProperties.class);
+        return new ReplicaRoutingPostProcessor(properties);
+    }
+
+    // 트랜잭션 매니저는 첫 호출 때 BeanFactory에서 (@Transactional과 같은 기본 트랜잭션 매니저)
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor replicaReadAdvisor(BeanFactory beanFactory) {
+        NameMatchMethodPointcut pointcut = new NameMatchMethodPointcut();
+        pointcut.setMappedNames("find*", "streamAll");
+        pointcut.setClassFilter(new RootClassFilter(ItemRepository.class));
+
+        RuleBasedTransactionAttribute readOnly = new RuleBasedTransactionAttribute();
+        readOnly.setReadOnly(true);
+        MatchAlwaysTransactionAttributeSource attributeSource = new MatchAlwaysTransactionAttributeSource();
+        attributeSource.setTransactionAttribute(readOnly);
+
+        TransactionInterceptor interceptor = new TransactionInterceptor();
+        interceptor.setTransactionAttributeSource(attributeSource);
+        interceptor.setBeanFactory(beanFactory);
+        return new DefaultPointcutAdvisor(pointcut, interceptor);
+    }
+}
@@ -0,0 +1,91 @@
+package hello.itemservice.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션(@Transactional(readOnly = true))이면 복제본, 아니면 primary 커넥션
+ * - 트랜잭션 매니저는 readOnly 플래그(TransactionSynchronizationManager)를 커넥션을 얻은 다음에 세우므로
+ *   LazyConnectionDataSourceProxy로 감싸서 첫 쿼리 때 커넥션을 얻게 해야 함 (ReplicaRoutingPostProcessor)
+ * - 살아있는 복제본이 없거나 커넥션을 못 얻으면 primary로 - 읽기는 계속 되고, 못 얻은 복제본은 상태 확인 전까지 제외
+ * - AbstractRoutingDataSource 대신 직접 - 고른 복제본이 실패하면 primary로 다시 얻어야 해서
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private final DataSource primary;
+    private final List<ReplicaPool> replicas;
+    private final ReplicaSelection selection;
+    private final AtomicInteger counter = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    ReplicaRoutingDataSource(DataSource primary, List<ReplicaPool> replicas, ReplicaSelection selection,
+                             long healthCheckIntervalMillis) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.selection = selection;
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, healthCheckIntervalMillis, healthCheckIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            ReplicaPool replica = selectReplica();
+            if (replica != null) {
+                try {
+                    return replica.getConnection();
+                } catch (SQLException e) {
+                    replica.markDown(e);
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password); // 다른 계정은 복제본 풀에 없음
+    }
+
+    private ReplicaPool selectReplica() {
+        List<ReplicaPool> healthy = new ArrayList<>(replicas.size());
+        for (ReplicaPool replica : replicas) {
+            if (replica.isHealthy()) {
+                healthy.add(replica);
+            }
+        }
+        return healthy.isEmpty() ? null : selection.select(healthy, counter);
+    }
+
+    private void checkReplicas() {
+        for (ReplicaPool replica : replicas) {
+            replica.check();
+        }
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        for (ReplicaPool replica : replicas) {
+            replica.close();
+        }
+    }
+}
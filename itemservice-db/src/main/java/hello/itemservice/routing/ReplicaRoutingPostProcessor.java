@@ -0,0 +1,76 @@
+package hello.itemservice.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DataSource 빈(primary)을 LazyConnectionDataSourceProxy(ReplicaRoutingDataSource(primary, 복제본들))로 바꿈
+ * - 다른 DataSource 후처리(QueryLoggingDataSource 등)보다 먼저 - 쿼리 로그는 라우팅 바깥에서 양쪽 쿼리를 모두 기록
+ * - 복제본 풀은 빈이 아니므로 컨텍스트 종료 때 여기서 닫음
+ */
+public class ReplicaRoutingPostProcessor implements BeanPostProcessor, Ordered, DisposableBean {
+
+    private final ReplicaRoutingProperties properties;
+    private final List<ReplicaRoutingDataSource> created = new ArrayList<>();
+
+    public ReplicaRoutingPostProcessor(ReplicaRoutingProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource) || bean instanceof LazyConnectionDataSourceProxy) {
+            return bean;
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource((DataSource) bean, replicaPools(beanName),
+                properties.getSelection(), properties.getHealthCheckInterval().toMillis());
+        created.add(routing);
+
+        LazyConnectionDataSourceProxy lazy = new LazyConnectionDataSourceProxy();
+        lazy.setTargetDataSource(routing);
+        // 기본값을 정해 두면 시작할 때 기본값 확인용 커넥션을 얻지 않음
+        lazy.setDefaultAutoCommit(true);
+        lazy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        lazy.afterPropertiesSet();
+        return lazy;
+    }
+
+    private List<ReplicaPool> replicaPools(String beanName) {
+        int validationTimeoutMillis = (int) properties.getValidationTimeout().toMillis();
+        List<ReplicaPool> pools = new ArrayList<>();
+        for (ReplicaRoutingProperties.Replica replica : properties.getReplicas()) {
+            String name = beanName + "-replica-" + pools.size();
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName(name);
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername());
+            dataSource.setPassword(replica.getPassword());
+            dataSource.setMaximumPoolSize(properties.getMaxPoolSize());
+            dataSource.setReadOnly(true);
+            dataSource.setConnectionTimeout(Math.max(250, validationTimeoutMillis)); // 250ms가 Hikari 최소값
+            dataSource.setInitializationFailTimeout(-1); // 복제본이 내려가 있어도 시작은 함, 실패는 SQLException으로
+            pools.add(new ReplicaPool(name, dataSource, Math.max(1, validationTimeoutMillis / 1000)));
+        }
+        return pools;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public void destroy() {
+        for (ReplicaRoutingDataSource routing : created) {
+            routing.close();
+        }
+    }
+}
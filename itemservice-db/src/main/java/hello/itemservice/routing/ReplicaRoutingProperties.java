@@ -0,0 +1,45 @@
+package hello.itemservice.routing;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기 전용 복제본 라우팅 설정 - application.properties의 itemservice.routing.*
+ */
+@Data
+public class ReplicaRoutingProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * 복제본 접속 정보 - 비어 있으면 읽기 전용 트랜잭션도 primary(spring.datasource)로
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    private ReplicaSelection selection = ReplicaSelection.ROUND_ROBIN;
+
+    /**
+     * 복제본마다 커넥션 풀 크기
+     */
+    private int maxPoolSize = 10;
+
+    /**
+     * 복제본 상태 확인 주기 - 내려간 복제본은 다시 살아날 때까지 고르지 않음
+     */
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+    /**
+     * 상태 확인(Connection.isValid), 복제본 커넥션 획득 제한 시간 - 넘으면 내려간 것으로 보고 primary로
+     */
+    private Duration validationTimeout = Duration.ofSeconds(1);
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
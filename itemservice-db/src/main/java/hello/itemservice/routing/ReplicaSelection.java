@@ -0,0 +1,41 @@
+package hello.itemservice.routing;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 살아있는 복제본 중 하나 고르기
+ */
+public enum ReplicaSelection {
+
+    /**
+     * 차례대로
+     */
+    ROUND_ROBIN {
+        @Override
+        ReplicaPool select(List<ReplicaPool> healthy, AtomicInteger counter) {
+            return healthy.get(Math.floorMod(counter.getAndIncrement(), healthy.size()));
+        }
+    },
+
+    /**
+     * 사용 중인 커넥션이 가장 적은 것 - 느린 복제본(긴 쿼리, 복제 지연 따라잡는 중)에 덜 보냄
+     */
+    LEAST_LOADED {
+        @Override
+        ReplicaPool select(List<ReplicaPool> healthy, AtomicInteger counter) {
+            ReplicaPool least = null;
+            int leastActive = Integer.MAX_VALUE;
+            for (ReplicaPool replica : healthy) {
+                int active = replica.activeConnections();
+                if (active < leastActive) {
+                    least = replica;
+                    leastActive = active;
+                }
+            }
+            return least;
+        }
+    };
+
+    abstract ReplicaPool select(List<ReplicaPool> healthy, AtomicInteger counter);
+}
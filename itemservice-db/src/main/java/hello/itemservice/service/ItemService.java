@@ -1,10 +1,16 @@
 package hello.itemservice.service;
 
 import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemPriceBucket;
 import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
 import hello.itemservice.repository.ItemUpdateDto;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface ItemService {
@@ -13,7 +19,39 @@ public interface ItemService {
 
     void update(Long itemId, ItemUpdateDto updateParam);
 
+    /**
+     * 검색 조건에 맞는 상품 전체의 가격, 재고를 한 번에 - 수정된 건수 (ItemRepository.updateAll)
+     */
+    int updateItems(ItemSearchCond cond, ItemBulkUpdateDto updateParam);
+
+    int updateItemsById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam);
+
+    /**
+     * 재고 증감 한 번에 - 반영하지 못한 id (재고 부족, 없는 상품) (ItemRepository.addQuantities)
+     */
+    List<Long> addQuantities(Map<Long, Integer> deltas);
+
     Optional<Item> findById(Long id);
 
+    /**
+     * 여러 건 한 번에 - id 순서, 없는 id는 빠짐 (ItemRepository.findAllById)
+     */
+    List<Item> findAllById(Collection<Long> ids);
+
     List<Item> findItems(ItemSearchCond itemSearch);
+
+    /**
+     * findItems(~)와 같은 조건, 같은 순서로 목록 화면에 필요한 컬럼만 (ItemRepository.findSummaries)
+     */
+    List<ItemSummary> findItemSummaries(ItemSearchCond itemSearch);
+
+    /**
+     * 검색 조건에 맞는 상품의 건수, 재고 합계, 최소/최대 가격 (ItemRepository.findStats)
+     */
+    ItemStats findStats(ItemSearchCond cond);
+
+    /**
+     * 가격 구간별 상품 수 (ItemRepository.findPriceHistogram)
+     */
+    List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize);
 }
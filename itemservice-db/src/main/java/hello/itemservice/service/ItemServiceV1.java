@@ -1,13 +1,19 @@
 package hello.itemservice.service;
 
 import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemPriceBucket;
 import hello.itemservice.repository.ItemRepository;
 import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
 import hello.itemservice.repository.ItemUpdateDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -26,13 +32,48 @@ public class ItemServiceV1 implements ItemService {
         itemRepository.update(itemId, updateParam);
     }
 
+    @Override
+    public int updateItems(ItemSearchCond cond, ItemBulkUpdateDto updateParam) {
+        return itemRepository.updateAll(cond, updateParam);
+    }
+
+    @Override
+    public int updateItemsById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam) {
+        return itemRepository.updateAllById(itemIds, updateParam);
+    }
+
+    @Override
+    public List<Long> addQuantities(Map<Long, Integer> deltas) {
+        return itemRepository.addQuantities(deltas);
+    }
+
     @Override
     public Optional<Item> findById(Long id) {
         return itemRepository.findById(id);
     }
 
+    @Override
+    public List<Item> findAllById(Collection<Long> ids) {
+        return itemRepository.findAllById(ids);
+    }
+
     @Override
     public List<Item> findItems(ItemSearchCond cond) {
         return itemRepository.findAll(cond);
     }
+
+    @Override
+    public List<ItemSummary> findItemSummaries(ItemSearchCond cond) {
+        return itemRepository.findSummaries(cond);
+    }
+
+    @Override
+    public ItemStats findStats(ItemSearchCond cond) {
+        return itemRepository.findStats(cond);
+    }
+
+    @Override
+    public List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize) {
+        return itemRepository.findPriceHistogram(cond, bucketSize);
+    }
 }
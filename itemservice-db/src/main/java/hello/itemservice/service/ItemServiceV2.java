@@ -1,20 +1,27 @@
 package hello.itemservice.service;
 
 import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemPriceBucket;
 import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
 import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.repository.ItemVersions;
 import hello.itemservice.repository.v2.ItemQueryRepositoryV2;
 import hello.itemservice.repository.v2.ItemRepositoryV2;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
-@Transactional
+@Transactional // javax.transaction.Transactional에는 readOnly가 없어서 스프링 것으로
 public class ItemServiceV2 implements ItemService {
 
     private final ItemRepositoryV2 itemRepositoryV2;
@@ -22,24 +29,69 @@ public class ItemServiceV2 implements ItemService {
 
     @Override
     public Item save(Item item) {
-        return itemRepositoryV2.save(item);
+        Item savedItem = itemRepositoryV2.save(item);
+        itemQueryRepositoryV2.saveNameSuffixes(savedItem);
+        return savedItem;
     }
 
     @Override
     public void update(Long itemId, ItemUpdateDto updateParam) {
-        Item findItem = itemRepositoryV2.findById(itemId).orElseThrow();
-        findItem.setItemName(updateParam.getItemName());
-        findItem.setPrice(updateParam.getPrice());
-        findItem.setQuantity(updateParam.getQuantity());
+        // 변경 감지(findById + set), 버전이 다르면 충돌 - 버전은 @Version으로 (JpaItemRepository 참고)
+        Item findItem = itemRepositoryV2.findById(itemId).orElse(null);
+        String oldName = findItem != null ? findItem.getItemName() : null;
+        ItemVersions.apply(findItem, itemId, updateParam);
+        itemQueryRepositoryV2.renameNameSuffixes(itemId, oldName, updateParam.getItemName());
+        itemRepositoryV2.flush();
     }
 
     @Override
+    public int updateItems(ItemSearchCond cond, ItemBulkUpdateDto updateParam) {
+        return itemQueryRepositoryV2.updateAll(cond, updateParam);
+    }
+
+    @Override
+    public int updateItemsById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam) {
+        return itemQueryRepositoryV2.updateAllById(itemIds, updateParam);
+    }
+
+    @Override
+    public List<Long> addQuantities(Map<Long, Integer> deltas) {
+        return itemQueryRepositoryV2.addQuantities(deltas);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<Item> findById(Long id) {
         return itemRepositoryV2.findById(id);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<Item> findAllById(Collection<Long> ids) {
+        return itemQueryRepositoryV2.findAllById(ids);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<Item> findItems(ItemSearchCond cond) {
         return itemQueryRepositoryV2.findAll(cond);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemSummary> findItemSummaries(ItemSearchCond cond) {
+        return itemQueryRepositoryV2.findSummaries(cond);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ItemStats findStats(ItemSearchCond cond) {
+        return itemQueryRepositoryV2.findStats(cond);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize) {
+        return itemQueryRepositoryV2.findPriceHistogram(cond, bucketSize);
+    }
 }
@@ -0,0 +1,143 @@
+package hello.itemservice.stock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 상품 하나의 재고 카운터 - 재고를 칸(stripe)마다 나눠 담고, 스레드는 자기 칸에서만 CAS
+ * - 칸 사이는 long 8개(64바이트) 간격 - 다른 칸을 쓰는 스레드끼리 같은 캐시 라인을 두고 경합하지 않게
+ * - 칸은 항상 0 이상, 자기 칸이 모자랄 때만 락을 잡고 전체를 모아서 확인 후 다시 나눔 (재고가 넉넉하면 락 없음)
+ * - 봉인(seal): 모든 칸을 SEALED로 - 이후 증감은 전부 실패, 다시 찾아서 새 카운터로
+ */
+final class ItemStock {
+
+    enum Result {APPLIED, INSUFFICIENT, SEALED}
+
+    private static final int PADDING = 8;
+    private static final long SEALED = -1L;
+
+    private final AtomicLongArray cells;
+    private final int stripes;
+    private final int mask;
+
+    // flush 스레드에서 바꿈 (seal()은 다른 경로로 재고가 바뀌었을 때 요청 스레드에서도 - synchronized)
+    private long flushed; // DB에 반영된 합계
+    private long sealedTotal = SEALED; // 봉인할 때의 합계, 봉인 전에는 -1
+    private int idleRounds;
+
+    /**
+     * @param stripes 2의 거듭제곱
+     */
+    ItemStock(long quantity, int stripes) {
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        this.stripes = stripes;
+        this.mask = stripes - 1;
+        this.flushed = quantity;
+        spread(quantity, 0);
+    }
+
+    Result tryAdjust(int delta) {
+        int cell = cellOf(Thread.currentThread());
+        while (true) {
+            long value = cells.get(cell);
+            if (value < 0) {
+                return Result.SEALED;
+            }
+            long result = value + delta;
+            if (result < 0) {
+                return adjustAll(cell, delta);
+            }
+            if (cells.compareAndSet(cell, value, result)) {
+                return Result.APPLIED;
+            }
+        }
+    }
+
+    /**
+     * 지금 재고 - 봉인됐으면 -1
+     */
+    long quantity() {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            long value = cells.get(i * PADDING);
+            if (value < 0) {
+                return SEALED;
+            }
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * flush 스레드 - 마지막 반영 이후 증감, 다른 칸으로 옮기는 중(adjustAll)에는 읽지 않음
+     * 칸마다 한 번씩 읽은 합이라 동시에 들어온 증감 일부가 빠질 수 있음 - 빠진 것은 다음 flush에서
+     * 봉인됐으면 봉인할 때의 합계 기준 (seal()과 같음)
+     */
+    synchronized long delta() {
+        if (sealedTotal >= 0) {
+            return sealedTotal - flushed;
+        }
+        return quantity() - flushed;
+    }
+
+    /**
+     * 봉인하고 마지막 반영 이후 증감 - flush 스레드, ItemStockService.invalidate(~)
+     * 이미 봉인됐으면 봉인할 때의 합계 기준으로 다시 - DB 반영이 실패해서 다시 부르는 경우 (칸은 이미 전부 SEALED)
+     */
+    synchronized long seal() {
+        if (sealedTotal < 0) {
+            long total = 0;
+            for (int i = 0; i < stripes; i++) {
+                total += Math.max(0, cells.getAndSet(i * PADDING, SEALED));
+            }
+            sealedTotal = total;
+        }
+        return sealedTotal - flushed;
+    }
+
+    /**
+     * flush 스레드 - 봉인됐고 봉인 전 증감까지 모두 DB에 반영됨 (내려도 됨)
+     */
+    synchronized boolean drained() {
+        return sealedTotal >= 0 && sealedTotal == flushed;
+    }
+
+    // flush 스레드 - DB 반영 성공 후
+    synchronized void flushed(long delta) {
+        flushed += delta;
+        idleRounds = delta == 0 ? idleRounds + 1 : 0;
+    }
+
+    int idleRounds() {
+        return idleRounds;
+    }
+
+    // 전체를 모아서 확인 - 모으는 사이 다른 칸에 더해진 것은 그 칸에 남아 있으므로 잃지 않음
+    private synchronized Result adjustAll(int cell, int delta) {
+        if (cells.get(cell) < 0) {
+            return Result.SEALED;
+        }
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.getAndSet(i * PADDING, 0);
+        }
+        if (total + delta < 0) {
+            spread(total, cell);
+            return Result.INSUFFICIENT;
+        }
+        spread(total + delta, cell);
+        return Result.APPLIED;
+    }
+
+    // 칸마다 고르게, 나머지는 cell에
+    private void spread(long total, int cell) {
+        long share = total / stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.getAndAdd(i * PADDING, share);
+        }
+        cells.getAndAdd(cell, total - share * stripes);
+    }
+
+    private int cellOf(Thread thread) {
+        return (int) (thread.getId() & mask) * PADDING;
+    }
+}
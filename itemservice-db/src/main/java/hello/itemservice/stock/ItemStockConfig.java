@@ -0,0 +1,39 @@
+package hello.itemservice.stock;
+
+import hello.itemservice.service.ItemService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 재고 카운터(ItemStockService) - 어떤 설정(@Import)을 쓰든 ItemService 위에서 동작, /stock/items 컨트롤러는 컴포넌트 스캔
+ * - itemservice.stock.enabled=false면 등록 안 함
+ * - 등록된 ItemService 빈은 StockSyncItemService로 감쌈 - 화면 수정, 일괄 수정 뒤에 카운터를 내리고 DB에서 다시 읽게
+ */
+@Configuration
+@EnableConfigurationProperties(ItemStockProperties.class)
+@ConditionalOnProperty(name = "itemservice.stock.enabled", havingValue = "true", matchIfMissing = true)
+public class ItemStockConfig {
+
+    @Bean
+    public ItemStockService itemStockService(ItemService itemService, ItemStockProperties properties) {
+        return new ItemStockService(itemService, properties);
+    }
+
+    // BeanPostProcessor는 다른 빈보다 먼저 만들어지므로 static, ItemStockService는 ObjectProvider로 나중에
+    @Bean
+    public static BeanPostProcessor stockSyncItemServicePostProcessor(ObjectProvider<ItemStockService> itemStockService) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof ItemService && !(bean instanceof StockSyncItemService)) {
+                    return new StockSyncItemService((ItemService) bean, itemStockService::getObject);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package hello.itemservice.stock;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.NoSuchElementException;
+
+/**
+ * 재고 증감 JSON API - 주문처럼 한 상품에 몰리는 증감용, DB 반영은 ItemStockService가 모아서
+ * - 재고 부족이면 409, 없는 상품이면 404, DB에 반영이 밀려서 카운터를 다시 읽지 못하면 503
+ */
+@RestController
+@ConditionalOnProperty(name = "itemservice.stock.enabled", havingValue = "true", matchIfMissing = true)
+@RequestMapping("/stock/items")
+public class ItemStockController {
+
+    private final ItemStockService itemStockService;
+
+    public ItemStockController(ItemStockService itemStockService) {
+        this.itemStockService = itemStockService;
+    }
+
+    @GetMapping("/{itemId}")
+    public long quantity(@PathVariable Long itemId) {
+        try {
+            return itemStockService.quantity(itemId);
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        } catch (ItemStockUnavailableException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
+    @PostMapping("/{itemId}")
+    public long adjust(@PathVariable Long itemId, @RequestParam int delta) {
+        try {
+            if (!itemStockService.adjustQuantity(itemId, delta)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "재고 부족");
+            }
+            return itemStockService.quantity(itemId);
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        } catch (ItemStockUnavailableException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package hello.itemservice.stock;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 재고 카운터 설정 - application.properties의 itemservice.stock.*
+ */
+@Data
+@ConfigurationProperties("itemservice.stock")
+public class ItemStockProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 모아둔 증감을 DB에 반영하는 주기 - 서버가 죽으면 최대 이만큼의 증감을 잃음 (짧을수록 안전, 길수록 DB 쓰기가 적음)
+     */
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    /**
+     * 상품마다 재고를 나눠 담는 칸 수 (2의 거듭제곱으로 올림) - 동시에 증감하는 스레드 수 정도
+     */
+    private int stripes = 8;
+
+    /**
+     * 이 시간 동안 증감이 없으면 카운터를 내림 - 다음 요청 때 DB에서 다시 읽음
+     */
+    private Duration idleTimeout = Duration.ofMinutes(1);
+
+    /**
+     * 봉인된 카운터가 DB에 반영되어 내려가기를 기다리는 최대 시간 - 넘으면 503 (DB 장애 중 요청 스레드가 계속 돌지 않게)
+     */
+    private Duration sealedTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,234 @@
+package hello.itemservice.stock;
+
+import hello.itemservice.domain.Item;
+import hello.itemservice.service.ItemService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 재고 증감 - 요청 스레드는 메모리 카운터(ItemStock)만 바꾸고, DB 반영은 flush 스레드가 모아서 (write-behind)
+ * - 같은 상품에 주문이 몰려도 상품 행 하나를 두고 update 경합, 락 대기가 없음
+ * - flush마다 상품별 증감 합계를 ItemService.addQuantities(~) 한 번으로 - 재고가 음수가 되는 증감은 DB가 한 번 더 거부
+ * - 카운터는 처음 증감할 때 DB에서 읽어서 만듦
+ * - ItemService.update, updateItems(~)로 재고가 바뀌면 카운터를 봉인하고 바로 flush (StockSyncItemService)
+ *   아직 반영하지 않은 증감은 바뀐 재고 위에 더하고, 다음 요청은 DB에서 다시 읽음
+ * - 다른 인스턴스, 직접 SQL로 줄어서 DB가 증감을 거부하면 DB 재고를 다시 읽어 남은 만큼은 반영 - 모자라는 만큼(판매 초과)만 버리고 로그
+ * - 서버가 죽으면 아직 반영하지 않은 증감(최대 flushInterval)은 잃음
+ */
+@Slf4j
+public class ItemStockService implements Closeable {
+
+    private static final long SEALED_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ItemService itemService;
+    private final int stripes;
+    private final long idleRounds;
+    private final long sealedTimeoutNanos;
+    private final ConcurrentMap<Long, ItemStock> stocks = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    public ItemStockService(ItemService itemService, ItemStockProperties properties) {
+        this.itemService = itemService;
+        this.stripes = Integer.highestOneBit(Math.max(2, properties.getStripes()) - 1) << 1;
+        long interval = properties.getFlushInterval().toMillis();
+        this.idleRounds = Math.max(1, properties.getIdleTimeout().toMillis() / interval);
+        this.sealedTimeoutNanos = properties.getSealedTimeout().toNanos();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "item-stock-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 재고 증감 - 재고가 모자라면(결과가 음수) 반영하지 않고 false
+     * @throws java.util.NoSuchElementException 없는 상품
+     * @throws ItemStockUnavailableException 봉인된 카운터가 sealedTimeout 안에 DB에 반영되지 않음 (DB 장애 등)
+     */
+    public boolean adjustQuantity(Long itemId, int delta) {
+        long deadline = System.nanoTime() + sealedTimeoutNanos;
+        while (true) {
+            switch (stockOf(itemId).tryAdjust(delta)) {
+                case APPLIED:
+                    return true;
+                case INSUFFICIENT:
+                    return false;
+                default:
+                    awaitFlush(itemId, deadline); // 봉인된 카운터 - flush가 DB에 반영하고 내리면 새로 읽음
+            }
+        }
+    }
+
+    /**
+     * 지금 재고 - 아직 DB에 반영하지 않은 증감 포함 (다른 증감과 겹치면 근사치)
+     * @throws ItemStockUnavailableException 봉인된 카운터가 sealedTimeout 안에 DB에 반영되지 않음
+     */
+    public long quantity(Long itemId) {
+        long deadline = System.nanoTime() + sealedTimeoutNanos;
+        while (true) {
+            long quantity = stockOf(itemId).quantity();
+            if (quantity >= 0) {
+                return quantity;
+            }
+            awaitFlush(itemId, deadline);
+        }
+    }
+
+    /**
+     * 다른 경로로 재고가 바뀐 상품 - 카운터를 봉인하고 바로 flush, 봉인된 동안 들어온 증감은 새로 읽은 카운터에서 (awaitFlush)
+     */
+    public void invalidate(Collection<Long> itemIds) {
+        boolean sealed = false;
+        for (Long itemId : itemIds) {
+            ItemStock stock = stocks.get(itemId);
+            if (stock != null) {
+                stock.seal();
+                sealed = true;
+            }
+        }
+        if (sealed) {
+            flushNow();
+        }
+    }
+
+    public void invalidateAll() {
+        invalidate(stocks.keySet());
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(); // 남은 것까지
+    }
+
+    // 봉인된 카운터는 flush 한 번이면 내려감 - 바쁘게 돌지 않고 잠깐씩 쉬면서, DB 장애로 못 내리면 deadline에서 포기
+    private static void awaitFlush(Long itemId, long deadline) {
+        if (System.nanoTime() - deadline >= 0) {
+            throw new ItemStockUnavailableException(itemId);
+        }
+        LockSupport.parkNanos(SEALED_POLL_NANOS);
+    }
+
+    private void flushNow() {
+        try {
+            flusher.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            // close() 중 - close()가 마지막에 flush
+        }
+    }
+
+    private ItemStock stockOf(Long itemId) {
+        ItemStock stock = stocks.get(itemId);
+        if (stock != null) {
+            return stock;
+        }
+        return stocks.computeIfAbsent(itemId, id -> {
+            Item item = itemService.findById(id).orElseThrow();
+            return new ItemStock(item.getQuantity() != null ? item.getQuantity() : 0, stripes);
+        });
+    }
+
+    // flush 스레드, close()에서만 호출 - 둘이 겹치지 않게 synchronized
+    // 예외가 scheduleWithFixedDelay 작업 밖으로 나가면 이후 flush가 전부 취소되므로 여기서 모두 잡음
+    synchronized void flush() {
+        try {
+            flushDeltas();
+        } catch (RuntimeException e) {
+            // 반영 위치(flushed)를 그대로 두고 다음 flush에서 다시 - 봉인된 카운터는 봉인할 때의 합계로 다시 (ItemStock.seal)
+            log.error("stock flush failed, items={}", stocks.size(), e);
+        }
+    }
+
+    private void flushDeltas() {
+        Map<Long, Integer> deltas = new HashMap<>();
+        Map<Long, ItemStock> owners = new HashMap<>();
+        stocks.forEach((id, stock) -> {
+            // 오래 안 쓴 카운터는 봉인 - DB에 반영한 다음 내림
+            long delta = stock.idleRounds() >= idleRounds ? stock.seal() : stock.delta();
+            deltas.put(id, toInt(delta));
+            owners.put(id, stock);
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> changed = new HashMap<>(deltas);
+        changed.values().removeIf(delta -> delta == 0);
+        Set<Long> rejected = changed.isEmpty() ? Set.of() : new HashSet<>(itemService.addQuantities(changed));
+
+        deltas.forEach((id, delta) -> {
+            ItemStock stock = owners.get(id);
+            if (rejected.contains(id)) {
+                return; // 반영 안 됨 - 아래에서 따로
+            }
+            stock.flushed(delta);
+            if (stock.drained()) {
+                stocks.remove(id, stock);
+            }
+        });
+        for (Long id : rejected) {
+            try {
+                rebase(id, owners.get(id), deltas.get(id));
+            } catch (RuntimeException e) {
+                // 봉인된 채로 두고 다음 flush에서 다시 - 다른 상품의 반영 위치는 위에서 이미 맞춤
+                log.error("stock rebase failed, itemId={}", id, e);
+            }
+        }
+    }
+
+    /**
+     * DB가 증감을 거부 - 카운터가 알던 재고와 DB가 어긋남 (다른 인스턴스, 직접 SQL로 줄었거나 없는 상품)
+     * 카운터를 봉인하고 DB 재고를 다시 읽어, 아직 반영하지 않은 증감(거부된 것 + 그 사이 들어온 것)을 0 아래로 내려가지 않는 만큼 반영
+     * 모자라는 만큼은 이미 수락한 판매 초과 - 버리고 로그, 다음 요청은 DB에서 다시 읽은 카운터로
+     * 여기서도 실패하면(그 사이 또 바뀜, DB 장애) 봉인된 채로 두고 다음 flush에서 다시
+     */
+    private void rebase(Long id, ItemStock stock, int rejectedDelta) {
+        long unflushed = stock.seal();
+        Optional<Item> item = itemService.findById(id);
+        if (item.isEmpty()) {
+            stocks.remove(id, stock);
+            log.warn("stock delta dropped, item removed, itemId={} unflushed={}", id, unflushed);
+            return;
+        }
+        long quantity = item.get().getQuantity() != null ? item.get().getQuantity() : 0;
+        long target = Math.max(unflushed, -quantity);
+        int applied = toInt(target);
+        if (applied != 0 && !itemService.addQuantities(Map.of(id, applied)).isEmpty()) {
+            return;
+        }
+        stock.flushed(applied + (unflushed - target)); // 모자라는 만큼은 반영한 것으로 - 봉인 합계와 맞춤
+        if (stock.drained()) {
+            stocks.remove(id, stock);
+        }
+        if (target != unflushed) {
+            log.warn("stock oversold, itemId={} rejected={} unflushed={} quantity={} dropped={}",
+                    id, rejectedDelta, unflushed, quantity, target - unflushed);
+        }
+    }
+
+    // int를 넘는 증감은 int 범위만큼만 - 나머지는 반영 위치(flushed) 뒤에 남아서 다음 flush에서
+    private static int toInt(long delta) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, delta));
+    }
+}
@@ -0,0 +1,11 @@
+package hello.itemservice.stock;
+
+/**
+ * 봉인된 재고 카운터가 sealedTimeout 안에 DB에 반영되지 않음 - DB 장애 등, 잠시 후 다시 요청
+ */
+public class ItemStockUnavailableException extends RuntimeException {
+
+    public ItemStockUnavailableException(Long itemId) {
+        super("재고 카운터를 다시 읽지 못함, itemId=" + itemId);
+    }
+}
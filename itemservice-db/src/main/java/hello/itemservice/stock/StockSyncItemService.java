@@ -0,0 +1,92 @@
+package hello.itemservice.stock;
+
+import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemPriceBucket;
+import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
+import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.service.ItemService;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * ItemService 데코레이터 - 재고를 통째로 바꾸는 수정(update, updateItems) 뒤에 그 상품의 재고 카운터를 내림 (ItemStockService.invalidate)
+ * - ItemStockService도 ItemService를 쓰므로 처음 수정할 때 찾음 (Supplier)
+ * - addQuantities(~)는 증감이라 그대로 - 카운터의 flush도 이 경로
+ */
+class StockSyncItemService implements ItemService {
+
+    private final ItemService target;
+    private final Supplier<ItemStockService> itemStockService;
+
+    StockSyncItemService(ItemService target, Supplier<ItemStockService> itemStockService) {
+        this.target = target;
+        this.itemStockService = itemStockService;
+    }
+
+    @Override
+    public Item save(Item item) {
+        return target.save(item);
+    }
+
+    @Override
+    public void update(Long itemId, ItemUpdateDto updateParam) {
+        target.update(itemId, updateParam);
+        itemStockService.get().invalidate(List.of(itemId));
+    }
+
+    @Override
+    public int updateItems(ItemSearchCond cond, ItemBulkUpdateDto updateParam) {
+        int updated = target.updateItems(cond, updateParam);
+        itemStockService.get().invalidateAll(); // 어떤 상품이 바뀌었는지 모름
+        return updated;
+    }
+
+    @Override
+    public int updateItemsById(Collection<Long> itemIds, ItemBulkUpdateDto updateParam) {
+        int updated = target.updateItemsById(itemIds, updateParam);
+        itemStockService.get().invalidate(itemIds);
+        return updated;
+    }
+
+    @Override
+    public List<Long> addQuantities(Map<Long, Integer> deltas) {
+        return target.addQuantities(deltas);
+    }
+
+    @Override
+    public Optional<Item> findById(Long id) {
+        return target.findById(id);
+    }
+
+    @Override
+    public List<Item> findAllById(Collection<Long> ids) {
+        return target.findAllById(ids);
+    }
+
+    @Override
+    public List<Item> findItems(ItemSearchCond itemSearch) {
+        return target.findItems(itemSearch);
+    }
+
+    @Override
+    public List<ItemSummary> findItemSummaries(ItemSearchCond itemSearch) {
+        return target.findItemSummaries(itemSearch);
+    }
+
+    @Override
+    public ItemStats findStats(ItemSearchCond cond) {
+        return target.findStats(cond);
+    }
+
+    @Override
+    public List<ItemPriceBucket> findPriceHistogram(ItemSearchCond cond, int bucketSize) {
+        return target.findPriceHistogram(cond, bucketSize);
+    }
+}
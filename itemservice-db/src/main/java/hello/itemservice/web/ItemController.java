@@ -1,13 +1,20 @@
 package hello.itemservice.web;
 
 import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemPriceBucket;
 import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSort;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
 import hello.itemservice.repository.ItemUpdateDto;
 import hello.itemservice.service.ItemService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.List;
@@ -17,15 +24,56 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ItemController {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ItemService itemService;
 
     @GetMapping
     public String items(@ModelAttribute("itemSearch") ItemSearchCond itemSearch, Model model) {
-        List<Item> items = itemService.findItems(itemSearch);
+        // 목록은 항상 페이지 단위로 - ?lastId=마지막으로 본 id&limit=페이지 크기
+        Integer limit = itemSearch.getLimit();
+        itemSearch.setLimit(limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE));
+
+        // 목록에 보이는 컬럼만 - JPA 저장소는 엔티티를 만들지 않고 바로 조회
+        List<ItemSummary> items = itemService.findItemSummaries(itemSearch);
         model.addAttribute("items", items);
+        // 꽉 찼으면 다음 페이지가 있을 수 있음 - keyset 페이징은 id 순에서만, 가격순, 이름순은 상위 limit 건
+        if (items.size() == itemSearch.getLimit() && ItemSort.of(itemSearch) == ItemSort.ID) {
+            model.addAttribute("nextLastId", items.get(items.size() - 1).getId());
+        }
+        return "items";
+    }
+
+    @GetMapping(params = "ids")
+    public String itemsById(@RequestParam List<Long> ids, Model model) {
+        // ?ids=1,2,3 - 장바구니처럼 id를 들고 있는 화면용, 한 번에 조회 (findById 반복 대신)
+        // 페이지 크기를 넘으면 잘라서 일부만 보여주지 않고 400 - 나눠서 요청
+        if (ids.size() > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids는 한 번에 " + MAX_PAGE_SIZE + "개까지");
+        }
+        model.addAttribute("itemSearch", new ItemSearchCond());
+        model.addAttribute("items", itemService.findAllById(ids));
         return "items";
     }
 
+    @GetMapping("/stats")
+    @ResponseBody
+    public ItemStats stats(@ModelAttribute ItemSearchCond itemSearch) {
+        // 대시보드용 JSON - 목록과 같은 검색 조건, 저장소에서 집계만 (findItems로 전부 읽어서 더하지 않음)
+        return itemService.findStats(itemSearch);
+    }
+
+    @GetMapping("/stats/prices")
+    @ResponseBody
+    public List<ItemPriceBucket> priceHistogram(@ModelAttribute ItemSearchCond itemSearch,
+                                                @RequestParam(defaultValue = "1000") int bucketSize) {
+        if (bucketSize < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "bucketSize는 1 이상");
+        }
+        return itemService.findPriceHistogram(itemSearch, bucketSize);
+    }
+
     @GetMapping("/{itemId}")
     public String item(@PathVariable long itemId, Model model) {
         Item item = itemService.findById(itemId).get();
@@ -54,8 +102,15 @@ public class ItemController {
     }
 
     @PostMapping("/{itemId}/edit")
-    public String edit(@PathVariable Long itemId, @ModelAttribute ItemUpdateDto updateParam) {
-        itemService.update(itemId, updateParam);
+    public String edit(@PathVariable Long itemId, @ModelAttribute ItemUpdateDto updateParam,
+                       RedirectAttributes redirectAttributes) {
+        try {
+            itemService.update(itemId, updateParam);
+        } catch (OptimisticLockingFailureException e) {
+            // 폼을 연 뒤 다른 요청이 먼저 수정함 - 덮어쓰지 않고 최신 값으로 수정 폼을 다시 보여줌
+            redirectAttributes.addAttribute("conflict", true);
+            return "redirect:/items/{itemId}/edit";
+        }
         return "redirect:/items/{itemId}";
     }
 
@@ -0,0 +1,142 @@
+package hello.itemservice.cache;
+
+import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.repository.memory.MemoryItemRepository;
+import hello.itemservice.service.ItemServiceV1;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingItemServiceTest {
+
+    MemoryItemRepository itemRepository = new MemoryItemRepository();
+    CountingItemService target = new CountingItemService(itemRepository);
+    CachingItemService itemService = new CachingItemService(target, new ItemServiceCacheProperties());
+
+    @AfterEach
+    void afterEach() {
+        itemRepository.clearStore();
+    }
+
+    @Test
+    void cachedItemIsCopy() {
+        //given
+        Item item = itemService.save(new Item("itemA", 10000, 10));
+        itemService.findById(item.getId());
+
+        //when - 캐시에서 꺼낸 Item을 바꿔도
+        Item cached = itemService.findById(item.getId()).get();
+        cached.setPrice(99999);
+        itemService.findItems(new ItemSearchCond()).get(0).setPrice(99999);
+
+        //then - 캐시와 다음 조회에는 안 보임
+        assertThat(itemService.findById(item.getId()).get().getPrice()).isEqualTo(10000);
+        assertThat(itemService.findItems(new ItemSearchCond())).extracting("price").containsExactly(10000);
+        assertThat(target.findByIdCalls).hasValue(1);
+    }
+
+    @Test
+    void updateInvalidates() {
+        //given
+        Item item = itemService.save(new Item("itemA", 10000, 10));
+        itemService.findById(item.getId());
+        itemService.findItems(new ItemSearchCond("itemA", null));
+
+        //when
+        itemService.update(item.getId(), new ItemUpdateDto("itemB", 20000, 20));
+
+        //then
+        assertThat(itemService.findById(item.getId()).get().getItemName()).isEqualTo("itemB");
+        assertThat(itemService.findItems(new ItemSearchCond("itemA", null))).isEmpty();
+        assertThat(itemService.findItems(new ItemSearchCond("itemB", null))).extracting("id").containsExactly(item.getId());
+    }
+
+    @Test
+    void addQuantitiesInvalidatesById() {
+        //given
+        Item item1 = itemService.save(new Item("itemA", 10000, 10));
+        Item item2 = itemService.save(new Item("itemB", 20000, 20));
+        itemService.findById(item1.getId());
+        itemService.findById(item2.getId());
+        itemService.findItems(new ItemSearchCond("itemB", null));
+
+        //when - item1만 반영, item2는 재고 부족
+        List<Long> rejected = itemService.addQuantities(Map.of(item1.getId(), -3, item2.getId(), -30));
+
+        //then - item1만 다시 읽음, item2와 item2만 들어있는 검색 결과는 캐시 그대로
+        assertThat(rejected).containsExactly(item2.getId());
+        assertThat(itemService.findById(item1.getId()).get().getQuantity()).isEqualTo(7);
+        assertThat(itemService.findById(item2.getId()).get().getQuantity()).isEqualTo(20);
+        assertThat(target.findByIdCalls).hasValue(3);
+        itemService.findItems(new ItemSearchCond("itemB", null));
+        assertThat(target.findItemsCalls).hasValue(1);
+    }
+
+    @Test
+    void readOverlappingWriteIsNotCached() {
+        //given
+        Item item = itemService.save(new Item("itemA", 10000, 10));
+
+        //when - 저장소에서 읽은 뒤, 캐시에 넣기 전에 수정이 끼어듦
+        target.afterFind = () -> itemService.update(item.getId(), new ItemUpdateDto("itemA", 20000, 10));
+        assertThat(itemService.findById(item.getId()).get().getPrice()).isEqualTo(10000);
+        target.afterFind = () -> itemService.update(item.getId(), new ItemUpdateDto("itemA", 30000, 10));
+        assertThat(itemService.findItems(new ItemSearchCond())).extracting("price").containsExactly(20000);
+        target.afterFind = () -> {
+        };
+
+        //then - 수정 전에 읽은 값은 캐시에 남지 않음
+        assertThat(itemService.findById(item.getId()).get().getPrice()).isEqualTo(30000);
+        assertThat(itemService.findItems(new ItemSearchCond())).extracting("price").containsExactly(30000);
+    }
+
+    // 저장소까지 간 조회 수, 읽은 값을 돌려주기 직전에 afterFind 실행 (다른 요청의 쓰기)
+    static class CountingItemService extends ItemServiceV1 {
+
+        final AtomicInteger findByIdCalls = new AtomicInteger();
+        final AtomicInteger findItemsCalls = new AtomicInteger();
+        Runnable afterFind = () -> {
+        };
+
+        CountingItemService(ItemRepository itemRepository) {
+            super(itemRepository);
+        }
+
+        @Override
+        public Optional<Item> findById(Long id) {
+            findByIdCalls.incrementAndGet();
+            Optional<Item> item = super.findById(id).map(CountingItemService::copyOf);
+            afterFind.run();
+            return item;
+        }
+
+        @Override
+        public List<Item> findItems(ItemSearchCond cond) {
+            findItemsCalls.incrementAndGet();
+            List<Item> items = new ArrayList<>();
+            for (Item item : super.findItems(cond)) {
+                items.add(copyOf(item));
+            }
+            afterFind.run();
+            return items;
+        }
+
+        // MemoryItemRepository는 저장한 객체를 그대로 돌려줌 - 읽은 시점의 값으로 고정
+        private static Item copyOf(Item item) {
+            Item copy = new Item(item.getItemName(), item.getPrice(), item.getQuantity());
+            copy.setId(item.getId());
+            copy.setVersion(item.getVersion());
+            return copy;
+        }
+    }
+}
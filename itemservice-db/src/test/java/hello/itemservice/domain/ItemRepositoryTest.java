@@ -1,19 +1,31 @@
 package hello.itemservice.domain;
 
+import hello.itemservice.repository.ItemBulkUpdateDto;
+import hello.itemservice.repository.ItemPriceBucket;
 import hello.itemservice.repository.ItemRepository;
 import hello.itemservice.repository.ItemSearchCond;
+import hello.itemservice.repository.ItemSort;
+import hello.itemservice.repository.ItemStats;
+import hello.itemservice.repository.ItemSummary;
 import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.repository.file.MappedFileItemRepository;
+import hello.itemservice.repository.memory.MemoryColumnarItemRepository;
 import hello.itemservice.repository.memory.MemoryItemRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 @Slf4j
 @Transactional // 원래는 트랜잭션 시작하고 문제 없으면 커밋하는 어노테이션 - 테스트에서는 기본이 항상 롤백
@@ -43,6 +55,12 @@ class ItemRepositoryTest {
         if (itemRepository instanceof MemoryItemRepository) {
             ((MemoryItemRepository) itemRepository).clearStore();
         }
+        if (itemRepository instanceof MemoryColumnarItemRepository) {
+            ((MemoryColumnarItemRepository) itemRepository).clearStore();
+        }
+        if (itemRepository instanceof MappedFileItemRepository) {
+            ((MappedFileItemRepository) itemRepository).clearStore();
+        }
         /*
         // 트랜잭션 롤백
         transactionManager.rollback(status);
@@ -62,6 +80,84 @@ class ItemRepositoryTest {
         assertThat(findItem).isEqualTo(savedItem);
     }
 
+    @Test
+    void findByIdNotFound() {
+        assertThat(itemRepository.findById(Long.MAX_VALUE)).isEmpty();
+    }
+
+    @Test
+    void findAllById() {
+        //given
+        Item item1 = itemRepository.save(new Item("itemA-1", 10000, 10));
+        Item item2 = itemRepository.save(new Item("itemA-2", 20000, 20));
+        Item item3 = itemRepository.save(new Item("itemB-1", 30000, 30));
+
+        //id 순서, 중복과 없는 id는 빠짐 - 3건은 4건으로 채워서 보냄
+        assertThat(itemRepository.findAllById(List.of(item3.getId(), item1.getId(), item3.getId(), Long.MAX_VALUE)))
+                .extracting(Item::getId).containsExactly(item1.getId(), item3.getId());
+        assertThat(itemRepository.findAllById(List.of(item2.getId()))).containsExactly(item2);
+        assertThat(itemRepository.findAllById(List.of())).isEmpty();
+    }
+
+    @Test
+    void findStats() {
+        //given
+        itemRepository.save(new Item("itemA-1", 10000, 10));
+        itemRepository.save(new Item("itemA-2", 12000, 20));
+        itemRepository.save(new Item("itemA-3", 25000, null));
+        itemRepository.save(new Item("itemA-4", null, 5));
+        itemRepository.save(new Item("itemB-1", 30000, 30));
+
+        //가격, 재고가 없는 상품은 건수에만 - stockValue = 10000 * 10 + 12000 * 20
+        ItemStats stats = itemRepository.findStats(new ItemSearchCond("itemA", null));
+        assertThat(stats.getItemCount()).isEqualTo(4);
+        assertThat(stats.getTotalQuantity()).isEqualTo(35);
+        assertThat(stats.getStockValue()).isEqualTo(340000);
+        assertThat(stats.getMinPrice()).isEqualTo(10000);
+        assertThat(stats.getMaxPrice()).isEqualTo(25000);
+
+        //맞는 상품이 없으면 0, 최소/최대는 null
+        ItemStats empty = itemRepository.findStats(new ItemSearchCond("itemC", null));
+        assertThat(empty.getItemCount()).isZero();
+        assertThat(empty.getMinPrice()).isNull();
+
+        //가격 구간 - 가격 없는 상품은 빠짐
+        assertThat(itemRepository.findPriceHistogram(new ItemSearchCond("item", 30000), 10000))
+                .extracting(ItemPriceBucket::getFromPrice, ItemPriceBucket::getItemCount)
+                .containsExactly(tuple(10000, 2L), tuple(20000, 1L), tuple(30000, 1L));
+    }
+
+    @Test
+    void findPriceHistogramNegativePrice() {
+        //given - 음수 가격은 0 쪽이 아니라 아래 구간으로
+        itemRepository.save(new Item("itemA-1", -10000, 10));
+        itemRepository.save(new Item("itemA-2", -1, 10));
+        itemRepository.save(new Item("itemA-3", 0, 10));
+        itemRepository.save(new Item("itemA-4", 9999, 10));
+
+        //then
+        assertThat(itemRepository.findPriceHistogram(new ItemSearchCond(), 10000))
+                .extracting(ItemPriceBucket::getFromPrice, ItemPriceBucket::getItemCount)
+                .containsExactly(tuple(-10000, 2L), tuple(0, 2L));
+    }
+
+    @Test
+    void saveAll() {
+        //given
+        List<Item> items = List.of(new Item("itemA", 10000, 10), new Item("itemB", 20000, 20), new Item("itemC", 30000, 30));
+
+        //when
+        List<Item> savedItems = itemRepository.saveAll(items);
+
+        //then
+        assertThat(savedItems).hasSize(3);
+        assertThat(savedItems).extracting(Item::getId).doesNotContainNull().doesNotHaveDuplicates();
+        for (Item savedItem : savedItems) {
+            Item findItem = itemRepository.findById(savedItem.getId()).get();
+            assertThat(findItem).isEqualTo(savedItem);
+        }
+    }
+
     @Test
     // @Commit
     // cf. update의 경우 테스트에서 SQL 나가는 것을 확인하고 싶으면 @Commit해야함
@@ -81,6 +177,125 @@ class ItemRepositoryTest {
         assertThat(findItem.getItemName()).isEqualTo(updateParam.getItemName());
         assertThat(findItem.getPrice()).isEqualTo(updateParam.getPrice());
         assertThat(findItem.getQuantity()).isEqualTo(updateParam.getQuantity());
+
+        // 이름 검색도 바뀐 이름 기준
+        test("item2", null, findItem);
+        test("item1", null);
+    }
+
+    @Test
+    void updateItemNameSharingSuffixes() {
+        //given
+        Item savedItem = itemRepository.save(new Item("item2", 10000, 10));
+        Long itemId = savedItem.getId();
+
+        //when - 이전 이름의 접미사(item2, tem2, ...)가 새 이름에도 모두 들어있음
+        itemRepository.update(itemId, new ItemUpdateDto("newitem2", 10000, 10));
+
+        //then
+        Item findItem = itemRepository.findById(itemId).get();
+        test("wit", null, findItem);
+        test("tem2", null, findItem);
+        test("item3", null);
+    }
+
+    @Test
+    void updateItemVersion() {
+        //given
+        Item savedItem = itemRepository.save(new Item("item1", 10000, 10));
+        Long itemId = savedItem.getId();
+        Long version = itemRepository.findById(itemId).get().getVersion();
+
+        //when - 같은 버전으로 두 번 수정하면 두 번째는 충돌
+        itemRepository.update(itemId, new ItemUpdateDto("item2", 20000, 20, version));
+
+        //then
+        assertThatThrownBy(() -> itemRepository.update(itemId, new ItemUpdateDto("item3", 30000, 30, version)))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        Item findItem = itemRepository.findById(itemId).get();
+        assertThat(findItem.getItemName()).isEqualTo("item2");
+        assertThat(findItem.getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    void updateAll() {
+        //given
+        Item item1 = itemRepository.save(new Item("itemA-1", 10000, 10));
+        Item item2 = itemRepository.save(new Item("itemA-2", 20000, 20));
+        Item item3 = itemRepository.save(new Item("itemB-1", 30000, 30));
+        Item item4 = itemRepository.save(new Item("itemA-3", null, 40)); // 가격 없음
+
+        //조건 - 이름 itemA, 가격 15000 이상
+        assertThat(itemRepository.updateAll(new ItemSearchCond("itemA", 15000, null, null, null, null),
+                new ItemBulkUpdateDto(10, -5))).isEqualTo(1);
+        testBulkUpdated(item2, 22000, 15, 1L);
+        testBulkUpdated(item1, 10000, 10, 0L);
+
+        //조건 없음 - 전체, 가격 없는 상품은 재고만
+        assertThat(itemRepository.updateAll(new ItemSearchCond(), new ItemBulkUpdateDto(-50, 1))).isEqualTo(4);
+        testBulkUpdated(item1, 5000, 11, 1L);
+        testBulkUpdated(item2, 11000, 16, 2L);
+        testBulkUpdated(item3, 15000, 31, 1L);
+        testBulkUpdated(item4, null, 41, 1L);
+
+        //id 목록 - 중복, 없는 id는 무시
+        assertThat(itemRepository.updateAllById(List.of(item3.getId(), item1.getId(), item3.getId(), Long.MAX_VALUE),
+                new ItemBulkUpdateDto(0, 1))).isEqualTo(2);
+        testBulkUpdated(item1, 5000, 12, 2L);
+        testBulkUpdated(item3, 15000, 32, 2L);
+    }
+
+    @Test
+    void updateAllBounds() {
+        //given - price * pricePercent는 int 범위를 넘지만 결과는 범위 안
+        Item item1 = itemRepository.save(new Item("itemA-1", 1_000_000_000, 10));
+        Item item2 = itemRepository.save(new Item("itemA-2", 10000, 100));
+
+        //when - 재고는 0 아래로 내려가지 않음
+        assertThat(itemRepository.updateAll(new ItemSearchCond(), new ItemBulkUpdateDto(50, -50))).isEqualTo(2);
+
+        //then
+        testBulkUpdated(item1, 1_500_000_000, 0, 1L);
+        testBulkUpdated(item2, 15000, 50, 1L);
+    }
+
+    @Test
+    void updateAllOverflowChangesNothing() {
+        //given - id 순서로 앞의 상품은 범위 안, 뒤의 상품은 범위를 넘음
+        Item item1 = itemRepository.save(new Item("itemA-1", 10000, 10));
+        Item item2 = itemRepository.save(new Item("itemA-2", 2_000_000_000, 10));
+
+        //when
+        assertThatThrownBy(() -> itemRepository.updateAll(new ItemSearchCond(), new ItemBulkUpdateDto(10, 1)))
+                .isInstanceOf(RuntimeException.class);
+
+        //then - 앞의 상품도 그대로 (한 문장 안, 메모리와 파일 저장소는 먼저 전부 계산)
+        testBulkUpdated(item1, 10000, 10, 0L);
+        testBulkUpdated(item2, 2_000_000_000, 10, 0L);
+    }
+
+    @Test
+    void addQuantities() {
+        //given
+        Item item1 = itemRepository.save(new Item("itemA-1", 10000, 10));
+        Item item2 = itemRepository.save(new Item("itemA-2", 20000, 1));
+        Item item3 = itemRepository.save(new Item("itemB-1", 30000, null)); // 재고 없음 - 0으로
+
+        //재고 부족, 없는 상품은 건너뜀
+        List<Long> rejected = itemRepository.addQuantities(Map.of(
+                item1.getId(), -3, item2.getId(), -2, item3.getId(), 5, Long.MAX_VALUE, 1));
+        assertThat(rejected).containsExactly(item2.getId(), Long.MAX_VALUE);
+        testBulkUpdated(item1, 10000, 7, 1L);
+        testBulkUpdated(item2, 20000, 1, 0L);
+        testBulkUpdated(item3, 30000, 5, 1L);
+    }
+
+    void testBulkUpdated(Item item, Integer price, Integer quantity, Long version) {
+        Item findItem = itemRepository.findById(item.getId()).get();
+        assertThat(findItem.getItemName()).isEqualTo(item.getItemName());
+        assertThat(findItem.getPrice()).isEqualTo(price);
+        assertThat(findItem.getQuantity()).isEqualTo(quantity);
+        assertThat(findItem.getVersion()).isEqualTo(version);
     }
 
     @Test
@@ -113,6 +328,100 @@ class ItemRepositoryTest {
         test("itemA", 10000, item1);
     }
 
+    @Test
+    void findSummaries() {
+        //given
+        Item item1 = itemRepository.save(new Item("itemA-1", 20000, 10));
+        Item item2 = itemRepository.save(new Item("itemA-2", 10000, 20));
+        Item item3 = itemRepository.save(new Item("itemB-1", 30000, null));
+
+        //findAll(~)과 같은 조건, 같은 순서 - 목록에 보이는 컬럼만
+        assertThat(itemRepository.findSummaries(new ItemSearchCond(null, null, null, null, item1.getId(), 10)))
+                .containsExactly(ItemSummary.of(item2), ItemSummary.of(item3));
+        assertThat(itemRepository.findSummaries(new ItemSearchCond("itemA", null)))
+                .containsExactly(ItemSummary.of(item1), ItemSummary.of(item2));
+        assertThat(itemRepository.findSummaries(new ItemSearchCond("item", 25000, 40000, null, null, null)))
+                .containsExactly(new ItemSummary(item3.getId(), "itemB-1", 30000, null));
+        assertThat(itemRepository.findSummaries(new ItemSearchCond(null, null, null, ItemSort.PRICE, null, 2)))
+                .extracting(ItemSummary::getId).containsExactly(item2.getId(), item1.getId());
+    }
+
+    @Test
+    void findItemsPage() {
+        //given
+        Item item1 = itemRepository.save(new Item("itemA-1", 10000, 10));
+        Item item2 = itemRepository.save(new Item("itemA-2", 20000, 20));
+        Item item3 = itemRepository.save(new Item("itemB-1", 30000, 30));
+        Item item4 = itemRepository.save(new Item("itemA-3", 40000, 40));
+
+        //keyset 페이징 - 마지막으로 본 id 다음부터 limit 건
+        testPage(null, null, null, 2, item1, item2);
+        testPage(null, null, item2.getId(), 2, item3, item4);
+        testPage(null, null, item4.getId(), 2);
+
+        //조건과 함께
+        testPage("itemA", null, item1.getId(), 1, item2);
+        testPage("itemA", null, item2.getId(), 10, item4);
+        testPage(null, 30000, item1.getId(), null, item2, item3);
+        testPage("itemA", 30000, null, 5, item1, item2);
+    }
+
+    @Test
+    void findItemsSorted() {
+        //given
+        Item item1 = itemRepository.save(new Item("itemC", 30000, 30));
+        Item item2 = itemRepository.save(new Item("itemA", 10000, 10));
+        Item item3 = itemRepository.save(new Item("itemB", 20000, 20));
+        Item item4 = itemRepository.save(new Item("itemD", null, 40)); // 가격 없음
+
+        //가격 범위 - id 순
+        testSorted(null, 15000, 30000, null, null, item1, item3);
+
+        //가격순 - 가격 없는 상품 제외, lastId는 무시
+        testSorted(null, null, null, ItemSort.PRICE, null, item2, item3, item1);
+        testSorted(null, null, 25000, ItemSort.PRICE, 1, item2);
+        assertThat(itemRepository.findAll(new ItemSearchCond(null, null, null, ItemSort.PRICE, item2.getId(), 2)))
+                .containsExactly(item2, item3);
+
+        //이름순
+        testSorted(null, null, null, ItemSort.NAME, 3, item2, item3, item1);
+        testSorted("item", 15000, null, ItemSort.NAME, null, item3, item1);
+
+        //streamAll(~)도 같은 순서
+        testStream(new ItemSearchCond(null, null, null, ItemSort.PRICE, null, 2), item2, item3);
+        testStream(new ItemSearchCond(null, null, null, ItemSort.NAME, null, null), item2, item3, item1, item4);
+    }
+
+    @Test
+    void streamAll() {
+        //given
+        Item item1 = itemRepository.save(new Item("itemA-1", 10000, 10));
+        Item item2 = itemRepository.save(new Item("itemA-2", 20000, 20));
+        Item item3 = itemRepository.save(new Item("itemB-1", 30000, 30));
+
+        //when, then - findAll(~)과 같은 결과를 한 건씩
+        testStream(new ItemSearchCond(null, null), item1, item2, item3);
+        testStream(new ItemSearchCond("itemA", null), item1, item2);
+        testStream(new ItemSearchCond(null, 20000, item1.getId(), null), item2);
+        testStream(new ItemSearchCond(null, null, null, 2), item1, item2);
+    }
+
+    void testStream(ItemSearchCond cond, Item... items) {
+        List<Item> result = new ArrayList<>();
+        itemRepository.streamAll(cond, result::add);
+        assertThat(result).containsExactly(items);
+    }
+
+    void testSorted(String itemName, Integer minPrice, Integer maxPrice, ItemSort sort, Integer limit, Item... items) {
+        List<Item> result = itemRepository.findAll(new ItemSearchCond(itemName, minPrice, maxPrice, sort, null, limit));
+        assertThat(result).containsExactly(items);
+    }
+
+    void testPage(String itemName, Integer maxPrice, Long lastId, Integer limit, Item... items) {
+        List<Item> result = itemRepository.findAll(new ItemSearchCond(itemName, maxPrice, lastId, limit));
+        assertThat(result).containsExactly(items);
+    }
+
     void test(String itemName, Integer maxPrice, Item... items) {
         List<Item> result = itemRepository.findAll(new ItemSearchCond(itemName, maxPrice));
         assertThat(result).containsExactly(items);
@@ -0,0 +1,48 @@
+package hello.itemservice.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItemIdRangeTest {
+
+    // 시퀀스가 50씩 건너뛰는 id - 1, 51, 101, ..., 4951 (100건)
+    List<Long> ids = new ArrayList<>();
+
+    {
+        for (long id = 1; id <= 4951; id += 50) {
+            ids.add(id);
+        }
+    }
+
+    @Test
+    void forEachChunkByRowCount() {
+        //given
+        ItemIdRange range = new ItemIdRange(ids.get(0), ids.get(ids.size() - 1));
+        List<long[]> chunks = new ArrayList<>();
+
+        //when
+        int updated = range.forEachChunk(30, this::chunkEnd, (afterId, toId) -> {
+            chunks.add(new long[]{afterId, toId});
+            return (int) ids.stream().filter(id -> id > afterId && id <= toId).count();
+        });
+
+        //then - id 폭이 아니라 30행씩, 마지막은 남은 10행
+        assertThat(updated).isEqualTo(100);
+        assertThat(chunks).containsExactly(
+                new long[]{0, 1451}, new long[]{1451, 2951}, new long[]{2951, 4451}, new long[]{4451, 4951});
+    }
+
+    @Test
+    void forEachChunkEmpty() {
+        assertThat(new ItemIdRange(null, null).forEachChunk(30, this::chunkEnd, (afterId, toId) -> 1)).isZero();
+    }
+
+    // CHUNK_END_SQL과 같은 결과
+    private Long chunkEnd(long afterId, int offset) {
+        return ids.stream().filter(id -> id > afterId).skip(offset).findFirst().orElse(null);
+    }
+}
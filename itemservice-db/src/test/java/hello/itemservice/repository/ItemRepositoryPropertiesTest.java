@@ -0,0 +1,35 @@
+package hello.itemservice.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.BindException;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ItemRepositoryPropertiesTest {
+
+    @Test
+    void bind() {
+        ItemRepositoryProperties properties = bind(Map.of("itemservice.repository.batch-size", "100"));
+        assertThat(properties.getBatchSize()).isEqualTo(100);
+        assertThat(properties.getUpdateChunkSize()).isEqualTo(1000);
+    }
+
+    @Test
+    void rejectNonPositiveSize() {
+        for (String name : new String[]{"batch-size", "fetch-size", "update-chunk-size", "find-chunk-size"}) {
+            assertThatThrownBy(() -> bind(Map.of("itemservice.repository." + name, "0")))
+                    .isInstanceOf(BindException.class)
+                    .hasRootCauseInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private static ItemRepositoryProperties bind(Map<String, String> values) {
+        return new Binder(new MapConfigurationPropertySource(values))
+                .bindOrCreate("itemservice.repository", ItemRepositoryProperties.class);
+    }
+}
@@ -0,0 +1,62 @@
+package hello.itemservice.repository.file;
+
+import hello.itemservice.domain.Item;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedFileItemRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void migrateFromVersion1() throws IOException {
+        //given - 형식 1 파일(64 byte 레코드, 이름은 20부터 최대 44 byte)
+        String longName = "a".repeat(44);
+        ByteBuffer file = ByteBuffer.allocate(16 + 2 * 64);
+        file.putInt(0, 0x4954454D).putInt(4, 1).putLong(8, 2);
+        writeVersion1Record(file, 0, 1L, "itemA", 10000, 10);
+        writeVersion1Record(file, 1, 2L, longName, 20000, 20);
+        Files.write(directory.resolve("item.dat"), file.array());
+
+        //when
+        try (MappedFileItemRepository repository = new MappedFileItemRepository(directory)) {
+            //then - 이름 자리(44 byte)가 줄지 않고 version은 0부터
+            Item itemA = repository.findById(1L).orElseThrow();
+            assertThat(itemA.getItemName()).isEqualTo("itemA");
+            assertThat(itemA.getPrice()).isEqualTo(10000);
+            assertThat(itemA.getQuantity()).isEqualTo(10);
+            assertThat(itemA.getVersion()).isZero();
+            assertThat(repository.findById(2L).orElseThrow().getItemName()).isEqualTo(longName);
+
+            Item saved = repository.save(new Item(longName, 30000, 30));
+            assertThat(repository.findById(saved.getId()).orElseThrow().getItemName()).isEqualTo(longName);
+        }
+        assertThat(directory.resolve("item.dat.migrating")).doesNotExist();
+
+        //다시 열어도 그대로 (변환은 한 번만)
+        try (MappedFileItemRepository repository = new MappedFileItemRepository(directory)) {
+            assertThat(repository.findById(3L).orElseThrow().getItemName()).isEqualTo(longName);
+        }
+    }
+
+    private static void writeVersion1Record(ByteBuffer file, int row, long id, String itemName, int price, int quantity) {
+        byte[] name = itemName.getBytes(StandardCharsets.UTF_8);
+        int offset = 16 + row * 64;
+        file.putLong(offset, id);
+        file.putShort(offset + 10, (short) name.length);
+        file.putInt(offset + 12, price);
+        file.putInt(offset + 16, quantity);
+        for (int i = 0; i < name.length; i++) {
+            file.put(offset + 20 + i, name[i]);
+        }
+    }
+}
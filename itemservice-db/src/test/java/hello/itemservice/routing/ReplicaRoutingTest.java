@@ -0,0 +1,113 @@
+package hello.itemservice.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * primary는 테스트 내장 H2, 복제본은 따로 띄운 두 번째 H2(jdbc:h2:mem) - 같은 스키마, 다른 데이터로 어느 쪽에서 읽었는지 구분
+ */
+@SpringBootTest(properties = {
+        "itemservice.routing.enabled=true",
+        "itemservice.routing.replicas[0].url=" + ReplicaRoutingTest.REPLICA_URL,
+        "itemservice.routing.replicas[0].username=sa",
+        "itemservice.routing.health-check-interval=1h"
+})
+class ReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+    static final long REPLICA_ITEM_ID = 1_000_000L;
+
+    static final DataSource replica = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    // 복제본에만 있는 상품 하나
+    @BeforeAll
+    static void setUpReplica() throws SQLException {
+        try (Connection connection = replica.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+        }
+        new JdbcTemplate(replica).update("insert into item(id, item_name, price, quantity) values (?, 'replica', 1000, 1)",
+                REPLICA_ITEM_ID);
+    }
+
+    @Test
+    void readOnlyGoesToReplica() {
+        //저장소 조회 - 읽기 전용 트랜잭션
+        assertThat(itemRepository.findById(REPLICA_ITEM_ID)).map(Item::getItemName).hasValue("replica");
+
+        //직접 연 읽기 전용 트랜잭션
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        assertThat(readOnly.execute(status -> countByName(dataSource, "replica"))).isEqualTo(1);
+
+        //트랜잭션 밖은 primary
+        assertThat(countByName(dataSource, "replica")).isZero();
+    }
+
+    @Test
+    void writeGoesToPrimary() {
+        //when
+        itemRepository.save(new Item("primary", 10000, 10));
+
+        //then - primary에만 있음
+        assertThat(countByName(dataSource, "primary")).isEqualTo(1);
+        assertThat(countByName(replica, "primary")).isZero();
+    }
+
+    @Test
+    void fallbackToPrimaryWhenReplicaDown() throws SQLException {
+        //given - 접속할 수 없는 복제본
+        DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1", "sa", "");
+        HikariDataSource unreachable = new HikariDataSource();
+        unreachable.setJdbcUrl("jdbc:h2:tcp://localhost:1/~/unreachable");
+        unreachable.setUsername("sa");
+        unreachable.setConnectionTimeout(250);
+        unreachable.setInitializationFailTimeout(-1);
+        ReplicaPool down = new ReplicaPool("down", unreachable, 1);
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(down),
+                ReplicaSelection.ROUND_ROBIN, 3_600_000);
+
+        //when - 읽기 전용 트랜잭션 중
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try (Connection connection = routing.getConnection()) {
+            //then - primary 커넥션, 복제본은 내려간 것으로 표시되어 다음부터 고르지 않음
+            assertThat(connection.getMetaData().getURL()).contains("routing-primary");
+            assertThat(down.isHealthy()).isFalse();
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            routing.close();
+        }
+    }
+
+    private static int countByName(DataSource dataSource, String itemName) {
+        return new JdbcTemplate(dataSource).queryForObject("select count(*) from item where item_name = ?",
+                Integer.class, itemName);
+    }
+}
@@ -0,0 +1,147 @@
+package hello.itemservice.stock;
+
+import hello.itemservice.domain.Item;
+import hello.itemservice.repository.ItemRepository;
+import hello.itemservice.repository.ItemUpdateDto;
+import hello.itemservice.repository.memory.MemoryItemRepository;
+import hello.itemservice.service.ItemService;
+import hello.itemservice.service.ItemServiceV1;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItemStockServiceTest {
+
+    MemoryItemRepository itemRepository = new MemoryItemRepository();
+    AtomicInteger failures = new AtomicInteger();
+    ItemStockService itemStockService = new ItemStockService(new FailingItemService(itemRepository, failures), properties());
+
+    @AfterEach
+    void afterEach() {
+        itemStockService.close();
+        itemRepository.clearStore();
+    }
+
+    @Test
+    void sealedFlushFailure() {
+        //given
+        Item item = itemRepository.save(new Item("itemA", 10000, 10));
+        assertThat(itemStockService.quantity(item.getId())).isEqualTo(10);
+        itemStockService.flush(); // 증감 없음 - 다음 flush에서 봉인
+
+        //when - 봉인한 flush의 DB 반영이 실패
+        assertThat(itemStockService.adjustQuantity(item.getId(), -3)).isTrue();
+        failures.set(1);
+        itemStockService.flush();
+        assertThat(itemRepository.findById(item.getId()).get().getQuantity()).isEqualTo(10);
+
+        //then - 다시 flush하면 봉인할 때의 증감(-3)만 반영, 카운터는 DB에서 다시 읽음
+        itemStockService.flush();
+        assertThat(itemRepository.findById(item.getId()).get().getQuantity()).isEqualTo(7);
+        assertThat(itemStockService.quantity(item.getId())).isEqualTo(7);
+    }
+
+    @Test
+    void concurrentDecrementsNeverGoNegative() throws Exception {
+        //given
+        Item item = itemRepository.save(new Item("itemA", 10000, 100));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Integer>> orders = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            orders.add(() -> {
+                int applied = 0;
+                for (int j = 0; j < 50; j++) {
+                    if (itemStockService.adjustQuantity(item.getId(), -1)) {
+                        applied++;
+                    }
+                }
+                return applied;
+            });
+        }
+
+        //when - 400건 주문, 재고는 100
+        int applied = 0;
+        for (Future<Integer> result : executor.invokeAll(orders)) {
+            applied += result.get();
+        }
+        executor.shutdown();
+
+        //then - 정확히 100건만 수락, DB도 0
+        assertThat(applied).isEqualTo(100);
+        assertThat(itemStockService.quantity(item.getId())).isZero();
+        itemStockService.flush();
+        assertThat(itemRepository.findById(item.getId()).get().getQuantity()).isZero();
+    }
+
+    @Test
+    void rejectedFlushRebases() {
+        //given - 카운터는 10으로 읽고 8 판매
+        Item item = itemRepository.save(new Item("itemA", 10000, 10));
+        assertThat(itemStockService.adjustQuantity(item.getId(), -8)).isTrue();
+
+        //when - 그 사이 다른 경로(다른 인스턴스, 직접 SQL)로 DB 재고가 5로
+        itemRepository.update(item.getId(), new ItemUpdateDto("itemA", 10000, 5));
+        itemStockService.flush();
+
+        //then - 거부된 증감을 버리지 않고 DB 재고(5)만큼은 반영, 카운터는 DB에서 다시 읽음
+        assertThat(itemRepository.findById(item.getId()).get().getQuantity()).isZero();
+        assertThat(itemStockService.quantity(item.getId())).isZero();
+        assertThat(itemStockService.adjustQuantity(item.getId(), 3)).isTrue();
+        itemStockService.flush();
+        assertThat(itemRepository.findById(item.getId()).get().getQuantity()).isEqualTo(3);
+    }
+
+    @Test
+    void updateInvalidatesCounter() {
+        //given - 아직 반영하지 않은 판매 3
+        ItemService itemService = new StockSyncItemService(new ItemServiceV1(itemRepository), () -> itemStockService);
+        Item item = itemRepository.save(new Item("itemA", 10000, 10));
+        assertThat(itemStockService.adjustQuantity(item.getId(), -3)).isTrue();
+
+        //when - 화면에서 재고를 50으로
+        itemService.update(item.getId(), new ItemUpdateDto("itemA", 10000, 50));
+
+        //then - 판매는 새 재고 위에 더해지고, 카운터는 DB에서 다시 읽음 (flush를 기다림)
+        assertThat(itemStockService.quantity(item.getId())).isEqualTo(47);
+        assertThat(itemRepository.findById(item.getId()).get().getQuantity()).isEqualTo(47);
+    }
+
+    // flush는 테스트에서 직접 - 주기는 길게, 한 번 증감이 없으면 봉인
+    private static ItemStockProperties properties() {
+        ItemStockProperties properties = new ItemStockProperties();
+        properties.setFlushInterval(Duration.ofHours(1));
+        properties.setIdleTimeout(Duration.ofHours(1));
+        properties.setStripes(2);
+        return properties;
+    }
+
+    // addQuantities(~)가 failures 번 실패 (DB 장애)
+    static class FailingItemService extends ItemServiceV1 {
+
+        private final AtomicInteger failures;
+
+        FailingItemService(ItemRepository itemRepository, AtomicInteger failures) {
+            super(itemRepository);
+            this.failures = failures;
+        }
+
+        @Override
+        public List<Long> addQuantities(Map<Long, Integer> deltas) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("DB 장애");
+            }
+            return super.addQuantities(deltas);
+        }
+    }
+}